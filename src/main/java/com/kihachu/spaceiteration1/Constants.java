@@ -1,4 +1,184 @@
 package com.kihachu.spaceiteration1;
 
+/**
+ * Application-wide constants, such as asset paths and the names of the system properties used for configuration.
+ */
 public class Constants {
+    /**
+     * The paths of the asteroid models. The model id of an asteroid is an index into this array.
+     */
+    public static final String[] ASTEROID_MODELS = {
+            "/models/asteroid/asteroid1.3ds",
+            "/models/asteroid/asteroid2.3ds",
+            "/models/asteroid/asteroid3.3ds",
+            "/models/asteroid/asteroid4.3ds",
+            "/models/asteroid/asteroid5.3ds",
+            "/models/asteroid/asteroid6.3ds",
+            "/models/asteroid/asteroid7.3ds",
+            "/models/asteroid/asteroid8.3ds"
+    };
+
+    /**
+     * The number of asteroids generated in a new universe.
+     */
+    public static final int ASTEROID_COUNT = 1000;
+
+    /**
+     * The number of laser beams that can be shown at once.
+     */
+    public static final int BEAM_POOL_SIZE = 64;
+
+    /**
+     * The number of pending scene graph mutations above which producers should back off.
+     */
+    public static final int SCENE_MUTATION_CAPACITY = 10_000;
+
+    /**
+     * The time in nanoseconds each pulse may spend applying queued scene graph mutations.
+     */
+    public static final long SCENE_MUTATION_BUDGET_NANOS = 2_000_000;
+
+    /**
+     * The edge length of a cell of the scene grid that world objects are grouped in.
+     */
+    public static final double SCENE_CELL_SIZE = 25_000;
+
+    /**
+     * The maximum number of local lights applied to one region of the scene.
+     */
+    public static final int MAX_LIGHTS_PER_REGION = 4;
+
+    /**
+     * The distance the glow of a mined asteroid reaches.
+     */
+    public static final double MINING_GLOW_RANGE = 20_000;
+
+    /**
+     * The maximum number of triangles the surface of one celestial body shows at once.
+     */
+    public static final int PLANET_TRIANGLE_BUDGET = 100_000;
+
+    /**
+     * System property naming the directory that holds the tile pyramids of planet textures, one subdirectory per
+     * planet. Pyramids missing there are built from the texture resources at first use. Defaults to
+     * {@value #DEFAULT_TEXTURE_DIR}.
+     */
+    public static final String TEXTURE_DIR_PROPERTY = "spaceiteration.textures";
+
+    /**
+     * The texture directory used if {@value #TEXTURE_DIR_PROPERTY} is not set.
+     */
+    public static final String DEFAULT_TEXTURE_DIR = "tiles";
+
+    /**
+     * The maximum number of texture tiles kept in memory, shared by all planets.
+     */
+    public static final int TEXTURE_CACHE_TILES = 256;
+
+    /**
+     * System property setting the seed the universe is generated with. A random seed is used if it is not set.
+     */
+    public static final String SEED_PROPERTY = "spaceiteration.seed";
+
+    /**
+     * System property naming a file that user input is recorded to. A recording session starts from a universe
+     * generated from its seed rather than from the snapshot file, and does not save.
+     */
+    public static final String INPUT_RECORD_PROPERTY = "spaceiteration.input.record";
+
+    /**
+     * System property naming a recorded input file that is replayed instead of live input. A replay starts from a
+     * universe generated from the seed of the recording rather than from the snapshot file, and does not save.
+     */
+    public static final String INPUT_REPLAY_PROPERTY = "spaceiteration.input.replay";
+
+    /**
+     * System property naming the file that metrics are periodically exported to.
+     * Metrics are exported as JSON lines if the file name ends in {@code .json}, and as CSV otherwise.
+     */
+    public static final String METRICS_FILE_PROPERTY = "spaceiteration.metrics.file";
+
+    /**
+     * System property setting the metrics export interval in seconds.
+     */
+    public static final String METRICS_PERIOD_PROPERTY = "spaceiteration.metrics.period";
+
+    /**
+     * System property naming the snapshot file. The universe is restored from it and its journal at startup if it
+     * exists, F5 saves the universe to it and autosaves append to its journal. Defaults to {@value #DEFAULT_SNAPSHOT_FILE}.
+     */
+    public static final String SNAPSHOT_PROPERTY = "spaceiteration.snapshot";
+
+    /**
+     * The snapshot file used if {@value #SNAPSHOT_PROPERTY} is not set.
+     */
+    public static final String DEFAULT_SNAPSHOT_FILE = "universe.snapshot";
+
+    /**
+     * System property setting the autosave interval in seconds. Zero disables autosaving.
+     */
+    public static final String AUTOSAVE_PERIOD_PROPERTY = "spaceiteration.autosave.period";
+
+    /**
+     * System property limiting the number of HUD updates per second. By default the HUD is updated on every pulse.
+     */
+    public static final String HUD_RATE_PROPERTY = "spaceiteration.hud.rate";
+
+    /**
+     * System property fixing the rendering quality to LOW, MEDIUM or HIGH. By default the quality adapts to the frame rate.
+     */
+    public static final String QUALITY_PROPERTY = "spaceiteration.quality";
+
+    /**
+     * System property setting the frame rate the adaptive quality tries to hold.
+     */
+    public static final String TARGET_FPS_PROPERTY = "spaceiteration.quality.fps";
+
+    /**
+     * The default frame rate the adaptive quality tries to hold.
+     */
+    public static final double DEFAULT_TARGET_FPS = 60;
+
+    /**
+     * System property setting the maximum number of asteroid nodes in the scene. Only the asteroids nearest to the ship get nodes.
+     */
+    public static final String ASTEROID_NODES_PROPERTY = "spaceiteration.asteroids.nodes";
+
+    /**
+     * The default maximum number of asteroid nodes in the scene.
+     */
+    public static final int DEFAULT_ASTEROID_NODES = 5000;
+
+    /**
+     * System property setting the number of procedural asteroid shapes. Zero draws the asteroids with the imported
+     * models of {@link #ASTEROID_MODELS} instead.
+     */
+    public static final String ASTEROID_VARIANTS_PROPERTY = "spaceiteration.asteroids.variants";
+
+    /**
+     * The default number of procedural asteroid shapes.
+     */
+    public static final int DEFAULT_ASTEROID_VARIANTS = 64;
+
+    /**
+     * System property naming a directory in which procedural asteroid shapes are kept between runs. Shapes are
+     * generated on every start if it is not set.
+     */
+    public static final String ASTEROID_SHAPES_PROPERTY = "spaceiteration.asteroids.shapes";
+
+    /**
+     * The number of times the icosahedron of a procedural asteroid is subdivided, giving 1280 triangles.
+     */
+    public static final int ASTEROID_SUBDIVISIONS = 3;
+
+    /**
+     * The mean radius of a procedural asteroid in model units, which matches the imported models.
+     */
+    public static final double ASTEROID_SHAPE_RADIUS = 25;
+
+    /**
+     * The seed the procedural asteroid shapes are derived from. Fixed, so that the shapes are the same in every
+     * universe and persisted shapes stay valid.
+     */
+    public static final long ASTEROID_SHAPE_SEED = 0x5EED_A57E_401DL;
 }
@@ -0,0 +1,186 @@
+package com.kihachu.spaceiteration1;
+
+import com.kihachu.spaceiteration1.controller.InputDispatcher;
+import com.kihachu.spaceiteration1.controller.InputEvent;
+import com.kihachu.spaceiteration1.controller.InputReplay;
+import com.kihachu.spaceiteration1.persistence.UniverseStore;
+import com.kihachu.spaceiteration1.simulation.AsteroidField;
+import com.kihachu.spaceiteration1.simulation.AsteroidStore;
+import com.kihachu.spaceiteration1.simulation.ShipAction;
+import com.kihachu.spaceiteration1.simulation.ShipState;
+import com.kihachu.spaceiteration1.simulation.Simulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the simulation without JavaFX rendering, for batch and CI performance runs.
+ * By default an autopilot flies the ship forward and continuously mines the nearest asteroid, so every part of the
+ * simulation is exercised. With {@code --replay} a recorded input journal drives the ship instead, and with
+ * {@code --record} the autopilot input is written to a journal. {@code --load} starts from a snapshot and its
+ * journal instead of generating a universe; it cannot be combined with {@code --record} or {@code --replay}, since
+ * an input journal only names the seed of the universe it starts from. {@code --save} writes a snapshot after the
+ * run. With {@code --autosave N} the changes are also journaled to the {@code --save} file every N steps.
+ * {@code --warp N} runs the simulation at N times the normal speed, so each step advances N of the requested ticks,
+ * and {@code --off-heap} keeps the asteroids in native memory.
+ *
+ * <p>Usage: {@code HeadlessMain [--ticks N] [--asteroids N] [--seed N] [--warp N] [--off-heap] [--record FILE | --replay FILE | --load FILE] [--save FILE [--autosave N]]}
+ */
+public class HeadlessMain {
+    private static final String USAGE = "Usage: HeadlessMain [--ticks N] [--asteroids N] [--seed N] [--warp N] [--off-heap] [--record FILE | --replay FILE | --load FILE] [--save FILE [--autosave N]]";
+    private static final int REPORT_INTERVAL = 10_000;
+
+    /**
+     * Builds the universe model, steps it for the requested number of ticks and reports throughput and memory.
+     *
+     * @param args the command line arguments.
+     * @throws IOException if an input journal or snapshot cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        long ticks = 100_000;
+        int asteroidCount = Constants.ASTEROID_COUNT;
+        long seed = 42;
+        Path record = null;
+        Path replayFile = null;
+        Path loadFile = null;
+        Path saveFile = null;
+        long autosaveTicks = 0;
+        int warp = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--ticks" -> ticks = Long.parseLong(args[++i]);
+                case "--asteroids" -> asteroidCount = Integer.parseInt(args[++i]);
+                case "--seed" -> seed = Long.parseLong(args[++i]);
+                case "--warp" -> warp = Integer.parseInt(args[++i]);
+                case "--off-heap" -> System.setProperty(AsteroidStore.OFF_HEAP_PROPERTY, "true");
+                case "--record" -> record = Path.of(args[++i]);
+                case "--replay" -> replayFile = Path.of(args[++i]);
+                case "--load" -> loadFile = Path.of(args[++i]);
+                case "--save" -> saveFile = Path.of(args[++i]);
+                case "--autosave" -> autosaveTicks = Long.parseLong(args[++i]);
+                default -> {
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.err.println(USAGE);
+                    System.exit(2);
+                }
+            }
+        }
+
+        if (loadFile != null && (record != null || replayFile != null)) {
+            System.err.println("--load cannot be combined with --record or --replay");
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        InputReplay replay = null;
+        if (replayFile != null) {
+            replay = new InputReplay(replayFile);
+            seed = replay.getSeed();
+            asteroidCount = replay.getAsteroidCount();
+        }
+
+        long buildStart = System.nanoTime();
+        Simulation simulation;
+        UniverseStore store = saveFile != null ? new UniverseStore(saveFile, true) : null;
+        if (loadFile != null) {
+            // Loading from the save file lets autosaves continue its journal instead of starting with a checkpoint
+            simulation = (loadFile.equals(saveFile) ? store : new UniverseStore(loadFile)).load();
+            System.out.printf("Loaded snapshot with %d asteroids at tick %d in %.1f ms%n",
+                    simulation.getAsteroidField().size(), simulation.getTick(), (System.nanoTime() - buildStart) / 1e6);
+        } else {
+            simulation = Simulation.createDefault(asteroidCount, Constants.ASTEROID_MODELS.length, seed);
+            System.out.printf("Built universe with %d asteroids in %.1f ms%n", asteroidCount, (System.nanoTime() - buildStart) / 1e6);
+        }
+
+        InputDispatcher inputDispatcher = new InputDispatcher(simulation);
+        if (replay != null) {
+            inputDispatcher.replay(replay);
+        } else {
+            if (record != null) {
+                inputDispatcher.record(record);
+            }
+            if (warp != 1) {
+                inputDispatcher.dispatch(InputEvent.warp(warp));
+            }
+        }
+        run(simulation, inputDispatcher, ticks, store, autosaveTicks);
+        inputDispatcher.close();
+
+        if (store != null) {
+            long saveStart = System.nanoTime();
+            CompletableFuture<Long> save = autosaveTicks > 0 ? store.autosave(simulation) : store.checkpoint(simulation);
+            store.flush();
+            long bytes = save.join();
+            System.out.printf("Saved %d bytes in %.1f ms; %d checkpoints and %d journal records written%n",
+                    bytes, (System.nanoTime() - saveStart) / 1e6, store.getCheckpointCount(), store.getAppendCount());
+            store.close();
+        }
+    }
+
+    /**
+     * Steps the simulation and prints progress every {@value #REPORT_INTERVAL} steps and a summary at the end.
+     * A replay runs until the end of its recording instead of for a fixed number of ticks.
+     *
+     * @param simulation the simulation to step.
+     * @param inputDispatcher the dispatcher that applies the autopilot or replayed input.
+     * @param ticks the number of ticks to simulate.
+     * @param store the store to autosave to, or null.
+     * @param autosaveTicks the number of steps between autosaves, or 0 to disable autosaving.
+     */
+    private static void run(Simulation simulation, InputDispatcher inputDispatcher, long ticks, UniverseStore store, long autosaveTicks) {
+        ShipState ship = simulation.getShip();
+        AsteroidField field = simulation.getAsteroidField();
+        long start = System.nanoTime();
+        long intervalStart = start;
+        long startTick = simulation.getTick();
+        long steps = 0;
+        while (inputDispatcher.isReplaying() ? !inputDispatcher.isReplayFinished() : simulation.getTick() - startTick < ticks) {
+            if (!inputDispatcher.isReplaying()) {
+                steer(simulation, inputDispatcher);
+            }
+            inputDispatcher.beforeTick();
+            simulation.tick();
+            steps++;
+            if (store != null) {
+                store.advance();
+                if (autosaveTicks > 0 && steps % autosaveTicks == 0) {
+                    store.autosave(simulation);
+                }
+            }
+            if (steps % REPORT_INTERVAL == 0) {
+                long now = System.nanoTime();
+                System.out.printf("step %d: %.0f steps/s, %d asteroids left, %d resources collected%n",
+                        steps, REPORT_INTERVAL / ((now - intervalStart) / 1e9), field.getActiveCount(), simulation.getLedger().total(Simulation.SHIP_ACCOUNT));
+                intervalStart = now;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long tick = simulation.getTick() - startTick;
+        System.out.printf("Simulated %d ticks in %d steps in %.2f s: %.0f ticks/s%n", tick, steps, seconds, tick / seconds);
+        System.out.printf("Ship at (%.3f, %.3f, %.3f), %d resources collected, %d asteroids left%n",
+                ship.getX(), ship.getY(), ship.getZ(), simulation.getLedger().total(Simulation.SHIP_ACCOUNT), field.getActiveCount());
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("Heap used: %.1f MB of %.1f MB committed, %.1f MB max%n",
+                (runtime.totalMemory() - runtime.freeMemory()) / 1048576.0, runtime.totalMemory() / 1048576.0, runtime.maxMemory() / 1048576.0);
+    }
+
+    /**
+     * Autopilot: holds the forward control and starts mining the nearest asteroid whenever the ship is idle.
+     *
+     * @param simulation the simulation to steer.
+     * @param inputDispatcher the dispatcher the autopilot input is sent through.
+     */
+    private static void steer(Simulation simulation, InputDispatcher inputDispatcher) {
+        ShipState ship = simulation.getShip();
+        if (!simulation.getControls().isPressed(ShipAction.FORWARD)) {
+            inputDispatcher.dispatch(InputEvent.keyPress(ShipAction.FORWARD));
+        }
+        if (simulation.getMiningTarget() < 0) {
+            int nearest = simulation.getAsteroidField().findNearest(ship.getX(), ship.getY(), ship.getZ());
+            if (nearest >= 0) {
+                inputDispatcher.dispatch(InputEvent.mine(nearest));
+            }
+        }
+    }
+}
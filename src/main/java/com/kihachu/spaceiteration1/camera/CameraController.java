@@ -1,17 +1,19 @@
 package com.kihachu.spaceiteration1.camera;
 
+import com.kihachu.spaceiteration1.controller.InputEvent;
 import com.kihachu.spaceiteration1.model.Asteroids;
 import com.kihachu.spaceiteration1.model.SpaceCraft;
 import com.kihachu.spaceiteration1.model.Universe;
-import javafx.animation.AnimationTimer;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.geometry.Point3D;
 import javafx.scene.Camera;
 import javafx.scene.Group;
+import javafx.scene.PointLight;
 import javafx.scene.Scene;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.input.ScrollEvent;
+import javafx.scene.paint.Color;
 import javafx.scene.transform.Rotate;
 import javafx.scene.transform.Translate;
 import javafx.stage.Stage;
@@ -30,10 +32,10 @@ public class CameraController {
     private RaycastingController raycastingController;
     private final DoubleProperty angleX = new SimpleDoubleProperty(0);
     private final DoubleProperty angleY = new SimpleDoubleProperty(0);
-    private AnimationTimer animationTimer;
     public Rotate xRotate;
     public Rotate yRotate;
     public Group spaceCraftGroup;
+    private final PointLight headlight = new PointLight(Color.WHITE);
     private Asteroids asteroids;
     private Universe universe;
 
@@ -55,12 +57,14 @@ public class CameraController {
         camera.getTransforms().addAll(new Translate(0, 0, -2000));
         this.spaceCraftGroup = new Group();
         spaceCraftGroup.getChildren().add(camera);
+        // Replaces the default light of JavaFX, which is only used while the scene has no lights of its own
+        headlight.getTransforms().add(new Translate(0, 0, -2000));
+        spaceCraftGroup.getChildren().add(headlight);
         universeGroup.getChildren().add(spaceCraftGroup);
 
         camera.setFarClip(1000000);
         camera.setNearClip(1);
         initMouseControl(spaceCraftGroup, scene, primaryStage);
-        startAnimationTimer();
     }
 
     private void initMouseControl(Group group, Scene scene, Stage stage) {
@@ -80,20 +84,75 @@ public class CameraController {
         });
 
         scene.setOnMouseDragged(mouseEvent -> {
-            angleX.set(clamp(anchorAngleX - (anchorY - mouseEvent.getSceneY()), -90, 90));
-            angleY.set(clamp(anchorAngleY + (anchorX - mouseEvent.getSceneX()), -180, 180));
+            setCameraAngles(clamp(anchorAngleX - (anchorY - mouseEvent.getSceneY()), -90, 90),
+                    clamp(anchorAngleY + (anchorX - mouseEvent.getSceneX()), -180, 180));
+            universe.getInputDispatcher().dispatch(InputEvent.camera(angleX.get(), angleY.get()));
         });
 
 
         scene.addEventHandler(ScrollEvent.SCROLL, scrollEvent -> {
             double mouseDelta = scrollEvent.getDeltaY();
-            group.translateZProperty().set(group.getTranslateZ() - mouseDelta);
+            zoom(mouseDelta);
+            universe.getInputDispatcher().dispatch(InputEvent.zoom(mouseDelta));
         });
 
         scene.addEventHandler(MouseEvent.MOUSE_CLICKED, this::handleMouseClick);
     }
 
-    private void updateCameraPosition() {
+    /**
+     * Sets the rotation angles of the camera around the spacecraft.
+     *
+     * @param x the angle around the X axis.
+     * @param y the angle around the Y axis.
+     */
+    public void setCameraAngles(double x, double y) {
+        angleX.set(x);
+        angleY.set(y);
+    }
+
+    /**
+     * Moves the camera along its view axis.
+     *
+     * @param delta the distance to move; positive values move the camera closer.
+     */
+    public void zoom(double delta) {
+        spaceCraftGroup.setTranslateZ(spaceCraftGroup.getTranslateZ() - delta);
+    }
+
+    /**
+     * Returns the light at the camera, which moves and turns with it.
+     *
+     * @return the headlight.
+     */
+    public PointLight getHeadlight() {
+        return headlight;
+    }
+
+    /**
+     * Returns the position of the camera in universe coordinates.
+     *
+     * @return the eye position.
+     */
+    public Point3D getEyePosition() {
+        return spaceCraftGroup.localToParent(camera.localToParent(Point3D.ZERO));
+    }
+
+    /**
+     * Returns the controller that handles asteroid picking and mining.
+     *
+     * @return the raycasting controller, or null if no spacecraft has been set.
+     */
+    public RaycastingController getRaycastingController() {
+        return raycastingController;
+    }
+
+    /**
+     * Moves the camera group to the current position of the spacecraft.
+     */
+    public void updateCameraPosition() {
+        if (spaceCraft == null) {
+            return;
+        }
         spaceCraftGroup.setTranslateX(spaceCraft.getTranslateXX());
         spaceCraftGroup.setTranslateY(spaceCraft.getTranslateYY());
         spaceCraftGroup.setTranslateZ(spaceCraft.getTranslateZZ());
@@ -105,19 +164,6 @@ public class CameraController {
         }
     }
 
-    private void startAnimationTimer() {
-        animationTimer = new AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                if (spaceCraft != null) {
-                    spaceCraft.update();
-                    updateCameraPosition();
-                }
-            }
-        };
-        animationTimer.start();
-    }
-
     /**
      * Sets the spacecraft and adds it to the universe group and to the spacecraft group.
      *
@@ -127,7 +173,8 @@ public class CameraController {
         this.spaceCraft = spaceCraft;
         spaceCraftGroup.getChildren().add(spaceCraft);
         universeGroup.getChildren().add(spaceCraft);
-        raycastingController = new RaycastingController(universeGroup, spaceCraftGroup, this.spaceCraft, universe.getUi());
+        raycastingController = new RaycastingController(universe.getBeams(), universe.getLights(), spaceCraftGroup,
+                this.spaceCraft, universe.getHud(), universe.getInputDispatcher());
     }
 
     /**
@@ -1,5 +1,6 @@
 package com.kihachu.spaceiteration1.camera;
 
+import com.kihachu.spaceiteration1.controller.KeyController;
 import com.kihachu.spaceiteration1.model.SpaceCraft;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
@@ -11,6 +12,7 @@ import javafx.scene.Scene;
  */
 public class Controller {
     private final Scene scene;
+    private final KeyController keyController;
     private SpaceCraft spaceCraft;
 
     /**
@@ -18,9 +20,11 @@ public class Controller {
      *
      * @param scene the scene to which the controller is attached.
      * @param spaceCraft the spacecraft to be controlled.
+     * @param keyController the key controller that keeps the key state of the simulation up to date.
      */
-    public Controller(Scene scene, SpaceCraft spaceCraft) {
+    public Controller(Scene scene, SpaceCraft spaceCraft, KeyController keyController) {
         this.scene = scene;
+        this.keyController = keyController;
         initKeyHandler();
     }
 
@@ -39,34 +43,7 @@ public class Controller {
      */
     private void handleKeyPress(KeyEvent keyEvent) {
         if (spaceCraft != null) {
-            switch (keyEvent.getCode()) {
-                case UP:
-                    spaceCraft.accelerateForward();
-                    break;
-                case DOWN:
-                    spaceCraft.accelerateBackward();
-                    break;
-                case A:
-                    spaceCraft.rotateYawLeft();
-                    break;
-                case D:
-                    spaceCraft.rotateYawRight();
-                    break;
-                case W:
-                    spaceCraft.rotatePitchUp();
-                    break;
-                case S:
-                    spaceCraft.rotatePitchDown();
-                    break;
-                case Q:
-                    spaceCraft.rotateRollLeft();
-                    break;
-                case E:
-                    spaceCraft.rotateRollRight();
-                    break;
-                default:
-                    break;
-            }
+            keyController.keyPressed(keyEvent.getCode());
         }
     }
 
@@ -76,7 +53,7 @@ public class Controller {
      * @param keyEvent the key event triggered by a key release.
      */
     private void handleKeyRelease(KeyEvent keyEvent) {
-        // No action needed on key release for continuous acceleration
+        keyController.keyReleased(keyEvent.getCode());
     }
 
     /**
@@ -1,92 +1,101 @@
 package com.kihachu.spaceiteration1.camera;
 
+import com.kihachu.spaceiteration1.controller.InputDispatcher;
+import com.kihachu.spaceiteration1.controller.InputEvent;
+import com.kihachu.spaceiteration1.Constants;
+import com.kihachu.spaceiteration1.graphics.BeamPool;
+import com.kihachu.spaceiteration1.graphics.LightManager;
+import com.kihachu.spaceiteration1.hud.Hud;
+import com.kihachu.spaceiteration1.hud.HudText;
+import com.kihachu.spaceiteration1.logging.Log;
+import com.kihachu.spaceiteration1.logging.Logger;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import com.kihachu.spaceiteration1.metrics.jfr.PickEvent;
 import com.kihachu.spaceiteration1.model.Asteroids.Asteroid;
 import com.kihachu.spaceiteration1.model.SpaceCraft;
-import com.kihachu.spaceiteration1.model.UI;
+import com.kihachu.spaceiteration1.simulation.ShipState;
 import javafx.animation.AnimationTimer;
 import javafx.geometry.Point3D;
 import javafx.scene.Group;
 import javafx.scene.Node;
+import javafx.scene.PointLight;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
-import javafx.scene.paint.PhongMaterial;
-import javafx.scene.shape.Cylinder;
-import javafx.scene.text.Font;
-import javafx.scene.text.Text;
-import javafx.scene.transform.Rotate;
-import javafx.scene.transform.Translate;
 
 /**
  * Controller class for handling raycasting interactions, such as detecting and mining asteroids, within a 3D space environment.
  */
 public class RaycastingController {
-    private final Group universeGroup;
+    private static final Logger LOG = Log.logger("mining");
+
+    private final BeamPool beams;
+    private final LightManager lights;
+    private final PointLight glow = new PointLight(Color.ORANGERED);
+    private boolean glowing;
     private final Group spaceCraftGroup;
     private final SpaceCraft spaceCraft;
-    private final Text text;
-    private Cylinder laser;
-    private final UI ui;
+    private final HudText text;
+    private BeamPool.Beam laser;
+    private final InputDispatcher inputDispatcher;
     private AnimationTimer miningTimer;
 
     /**
-     * Constructs a RaycastingController object with the specified universe group, spacecraft group, spacecraft, and UI.
+     * Constructs a RaycastingController object with the specified beam pool, light manager, spacecraft group,
+     * spacecraft, and HUD.
      *
-     * @param universeGroup the group representing the universe.
+     * @param beams the pool the mining laser is taken from.
+     * @param lights the light manager the glow of the mined asteroid is registered with.
      * @param spaceCraftGroup the group representing the spacecraft.
      * @param spaceCraft the spacecraft instance being controlled.
-     * @param ui the user interface instance for updating text information.
+     * @param hud the HUD that shows information about the picked asteroid.
+     * @param inputDispatcher the dispatcher that starts the mining in the simulation.
      */
-    public RaycastingController(Group universeGroup, Group spaceCraftGroup, SpaceCraft spaceCraft, UI ui) {
-        this.universeGroup = universeGroup;
+    public RaycastingController(BeamPool beams, LightManager lights, Group spaceCraftGroup, SpaceCraft spaceCraft, Hud hud,
+                                InputDispatcher inputDispatcher) {
+        this.beams = beams;
+        this.lights = lights;
         this.spaceCraftGroup = spaceCraftGroup;
         this.spaceCraft = spaceCraft;
-        this.ui = ui;
-        this.text = new Text();
-        initText();
-        initLaser();
-    }
-
-    /**
-     * Initializes the text element used for displaying information.
-     */
-    private void initText() {
-        text.setFont(new Font(40));
-        text.setFill(Color.WHITE);
-        text.setTranslateX(300);
-        text.setTranslateY(200);
-        spaceCraftGroup.getChildren().add(text);
+        this.inputDispatcher = inputDispatcher;
+        this.text = hud.addText(40, 110, 28, Color.WHITE);
     }
 
     /**
-     * Initializes the laser element.
-     */
-    private void initLaser() {
-        laser = new Cylinder(5, 100);
-        laser.setMaterial(new PhongMaterial(Color.RED));
-        laser.setVisible(false);
-        universeGroup.getChildren().add(laser);
-    }
-
-    /**
-     * Handles mouse click events for detecting and interacting with asteroids.
+     * Handles mouse click events for detecting and interacting with asteroids. Clicks are ignored while input is
+     * replayed, since only the replayed mining may drive the mining animation.
      *
      * @param event the mouse event triggered by a click.
      */
     public void handleMouseClick(MouseEvent event) {
+        if (inputDispatcher.isReplaying()) {
+            LOG.debug("Ignoring click during replay");
+            return;
+        }
+        PickEvent pickEvent = new PickEvent();
+        pickEvent.begin();
+        long start = System.nanoTime();
         Point3D clickPoint = new Point3D(event.getX(), event.getY(), event.getZ());
-        System.out.println("Mouse clicked at: " + clickPoint);
+        LOG.debug("Mouse clicked at: {}", clickPoint);
 
         Node pickedNode = event.getPickResult().getIntersectedNode();
         Asteroid asteroid = findAsteroid(pickedNode);
+        Metrics.PICKING.recordSince(start);
+        pickEvent.end();
+        if (pickEvent.shouldCommit()) {
+            pickEvent.hit = asteroid != null;
+            pickEvent.asteroid = asteroid != null ? asteroid.getName() : null;
+            pickEvent.commit();
+        }
 
         if (asteroid != null) {
             int resources = asteroid.getResources();
-            text.setText(asteroid.getName() + " has " + resources + " resources left.");
-            System.out.println(asteroid.getName() + " with " + resources + " resources left.");
+            text.begin().append(asteroid.getName()).append(" has ").append(resources).append(" resources left.");
+            LOG.info("{} with {} resources left.", asteroid.getName(), resources);
+            inputDispatcher.dispatch(InputEvent.mine(asteroid.getAsteroidId()));
             startMining(asteroid);
         } else {
-            text.setText("No asteroid clicked.");
-            System.out.println("No asteroid clicked. Picked node: " + pickedNode);
+            text.set("No asteroid clicked.");
+            LOG.debug("No asteroid clicked. Picked node: {}", pickedNode == null ? null : pickedNode.toString());
         }
     }
 
@@ -107,90 +116,80 @@ public class RaycastingController {
     }
 
     /**
-     * Starts mining resources from the specified asteroid.
+     * Starts the mining animation for the specified asteroid. The simulation performs the actual mining.
      *
      * @param asteroid the asteroid to mine resources from.
      */
-    private void startMining(Asteroid asteroid) {
-        spaceCraft.startMining(asteroid);
-
+    public void startMining(Asteroid asteroid) {
         createLaser();
         updateLaser(asteroid);
 
         if (miningTimer != null) {
             miningTimer.stop();
-
+            Metrics.MINING_TIMERS.decrement();
         }
 
         miningTimer = new AnimationTimer() {
             @Override
             public void handle(long now) {
                 if (asteroid.getResources() > 0) {
-                    asteroid.mineResources(1, spaceCraft);
-                    text.setText(asteroid.getName() + " has " + asteroid.getResources() + " resources left.");
+                    text.begin().append(asteroid.getName()).append(" has ").append(asteroid.getResources()).append(" resources left.");
                     updateLaser(asteroid);
-                    ui.updateText();
                 } else {
                     stop();
+                    miningTimer = null;
+                    Metrics.MINING_TIMERS.decrement();
                     removeLaser();
-                    laser.setVisible(false);
-                    universeGroup.getChildren().remove(asteroid);
-                    text.setText(asteroid.getName() + " has been depleted and removed.");
+                    text.begin().append(asteroid.getName()).append(" has been depleted and removed.");
                 }
             }
         };
         miningTimer.start();
+        Metrics.MINING_TIMERS.increment();
     }
 
     /**
-     * Creates a laser element for the mining animation.
+     * Takes a laser beam from the pool for the mining animation, unless one is already shown,
+     * and lights up the mined asteroid.
      */
     private void createLaser() {
-        laser = new Cylinder(10, 100);
-        laser.setMaterial(new PhongMaterial(Color.RED));
-        laser.setVisible(true);
-        universeGroup.getChildren().add(laser);
+        if (laser == null) {
+            laser = beams.acquire(Color.RED, 10);
+        }
+        if (!glowing) {
+            lights.addLocal(glow, Constants.MINING_GLOW_RANGE);
+            glowing = true;
+        }
     }
 
     /**
-     * Removes the laser element from the scene.
+     * Returns the laser beam to the pool and switches off the glow of the mined asteroid.
      */
     private void removeLaser() {
         if (laser != null) {
-            laser.setVisible(false);
-            universeGroup.getChildren().remove(laser);
+            laser.release();
+            laser = null;
+        }
+        if (glowing) {
+            lights.removeLocal(glow);
+            glowing = false;
         }
     }
 
     /**
-     * Updates the laser element's position and orientation based on the target asteroid.
+     * Aims the laser beam from just above the spacecraft at the target asteroid and moves the glow to the asteroid.
      *
      * @param asteroid the target asteroid.
      */
-    //With chatgpt
     private void updateLaser(Asteroid asteroid) {
-        Point3D start = new Point3D(
-                spaceCraft.getPosition().getX(), // Offset the laser position
-                spaceCraft.getPosition().getY() + 300,
-                spaceCraft.getPosition().getZ()
-        );
-        Point3D end = new Point3D(
-                asteroid.getTranslateX(),
-                asteroid.getTranslateY(),
-                asteroid.getTranslateZ()
-        );
-        Point3D direction = end.subtract(start);
-        double distance = direction.magnitude();
-
-        // Update laser height and orientation
-        laser.setHeight(distance);
-        laser.setTranslateX((start.getX() + end.getX()) / 2);
-        laser.setTranslateY((start.getY() + end.getY()) / 2);
-        laser.setTranslateZ((start.getZ() + end.getZ()) / 2);
-
-        // Set rotation axis and angle
-        Point3D axis = new Point3D(0, 1, 0).crossProduct(direction);
-        double angle = Math.toDegrees(Math.acos(new Point3D(0, 1, 0).dotProduct(direction.normalize())));
-        laser.getTransforms().setAll(new Rotate(angle, axis));
+        glow.setTranslateX(asteroid.getTranslateX());
+        glow.setTranslateY(asteroid.getTranslateY());
+        glow.setTranslateZ(asteroid.getTranslateZ());
+        if (laser == null) {
+            return;
+        }
+        ShipState ship = spaceCraft.getState();
+        laser.aim(ship.getX(), ship.getY() + 300, ship.getZ(),
+                asteroid.getTranslateX(), asteroid.getTranslateY(), asteroid.getTranslateZ());
     }
 }
@@ -0,0 +1,164 @@
+package com.kihachu.spaceiteration1.controller;
+
+import com.kihachu.spaceiteration1.logging.Log;
+import com.kihachu.spaceiteration1.logging.Logger;
+import com.kihachu.spaceiteration1.simulation.Simulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Routes input events to the simulation, timestamping them with the current simulation tick.
+ * Live events can be recorded to an {@link InputJournal}; while an {@link InputReplay} is running,
+ * live events are ignored and the recorded events are applied instead, so a session can be reproduced exactly.
+ */
+public class InputDispatcher {
+    private static final Logger LOG = Log.logger("input");
+
+    private final Simulation simulation;
+    private final List<Consumer<InputEvent>> replayListeners = new ArrayList<>();
+    private InputJournal journal;
+    private InputReplay replay;
+
+    /**
+     * Constructs an InputDispatcher for the specified simulation.
+     *
+     * @param simulation the simulation that receives the input.
+     */
+    public InputDispatcher(Simulation simulation) {
+        this.simulation = simulation;
+    }
+
+    /**
+     * Starts recording live events to the specified journal file.
+     *
+     * @param file the journal file to write.
+     * @throws IOException if the journal cannot be created.
+     */
+    public void record(Path file) throws IOException {
+        this.journal = new InputJournal(file, simulation.getSeed(), simulation.getAsteroidField().size());
+    }
+
+    /**
+     * Replays the events of the specified journal instead of live input.
+     *
+     * @param replay the journal to replay.
+     */
+    public void replay(InputReplay replay) {
+        this.replay = replay;
+    }
+
+    /**
+     * Returns whether a replay is running.
+     *
+     * @return true if a replay is running.
+     */
+    public boolean isReplaying() {
+        return replay != null;
+    }
+
+    /**
+     * Returns whether a replay has reached the last tick of its recording.
+     *
+     * @return true if a replay has finished, false if it is still running or no replay was started.
+     */
+    public boolean isReplayFinished() {
+        return replay != null && replay.isFinished() && simulation.getTick() >= replay.getEndTick();
+    }
+
+    /**
+     * Returns the time warp factor of the simulation.
+     *
+     * @return the warp factor.
+     */
+    public int getWarp() {
+        return simulation.getWarp();
+    }
+
+    /**
+     * Adds a listener that is notified of every replayed event after it has been applied to the simulation.
+     * The rendered view uses this to mirror replayed camera movements and mining.
+     *
+     * @param listener the listener.
+     */
+    public void addReplayListener(Consumer<InputEvent> listener) {
+        replayListeners.add(listener);
+    }
+
+    /**
+     * Dispatches a live input event. The event is ignored while a replay is running.
+     *
+     * @param event the event to dispatch.
+     */
+    public void dispatch(InputEvent event) {
+        if (replay != null) {
+            return;
+        }
+        InputEvent stamped = event.atTick(simulation.getTick());
+        if (journal != null) {
+            try {
+                journal.record(stamped);
+            } catch (IOException e) {
+                LOG.warn("Input recording stopped: {}", e.getMessage());
+                journal = null;
+            }
+        }
+        apply(stamped);
+    }
+
+    /**
+     * Applies the replayed events that are due before the next simulation tick. Must be called before every tick.
+     */
+    public void beforeTick() {
+        if (replay == null) {
+            return;
+        }
+        try {
+            replay.poll(simulation.getTick(), event -> {
+                apply(event);
+                for (Consumer<InputEvent> listener : replayListeners) {
+                    listener.accept(event);
+                }
+            });
+        } catch (IOException e) {
+            LOG.warn("Input replay stopped: {}", e.getMessage());
+            replay = null;
+        }
+    }
+
+    /**
+     * Applies an event to the simulation. Camera and zoom events only affect the view.
+     *
+     * @param event the event to apply.
+     */
+    private void apply(InputEvent event) {
+        switch (event.getType()) {
+            case KEY_PRESS -> simulation.getControls().press(event.getAction());
+            case KEY_RELEASE -> simulation.getControls().release(event.getAction());
+            case MINE -> simulation.startMining(event.getAsteroidId());
+            case WARP -> simulation.setWarp(event.getWarp());
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Closes the journal being recorded and the replay being read, if any.
+     */
+    public void close() {
+        try {
+            if (journal != null) {
+                journal.close(simulation.getTick());
+                journal = null;
+            }
+            if (replay != null) {
+                replay.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not close input journal: {}", e.getMessage());
+        }
+    }
+}
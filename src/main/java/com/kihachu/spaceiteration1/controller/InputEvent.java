@@ -0,0 +1,180 @@
+package com.kihachu.spaceiteration1.controller;
+
+import com.kihachu.spaceiteration1.simulation.ShipAction;
+
+/**
+ * A user input event, timestamped with the simulation tick it applies to.
+ * Events carry simulation-level meaning (a ship action, a mined asteroid id, camera angles)
+ * rather than raw key codes or screen coordinates, so they can be replayed without a scene.
+ */
+public class InputEvent {
+    /**
+     * The kinds of input events.
+     */
+    public enum Type {
+        KEY_PRESS,
+        KEY_RELEASE,
+        MINE,
+        CAMERA,
+        ZOOM,
+        WARP;
+
+        private static final Type[] VALUES = values();
+
+        static Type fromOrdinal(int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+
+    private final Type type;
+    private final long tick;
+    private final ShipAction action;
+    private final int asteroidId;
+    private final int warp;
+    private final double x;
+    private final double y;
+
+    private InputEvent(Type type, long tick, ShipAction action, int asteroidId, int warp, double x, double y) {
+        this.type = type;
+        this.tick = tick;
+        this.action = action;
+        this.asteroidId = asteroidId;
+        this.warp = warp;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Creates a key press event.
+     *
+     * @param action the ship action bound to the key.
+     * @return the event, not yet timestamped.
+     */
+    public static InputEvent keyPress(ShipAction action) {
+        return new InputEvent(Type.KEY_PRESS, -1, action, -1, 0, 0, 0);
+    }
+
+    /**
+     * Creates a key release event.
+     *
+     * @param action the ship action bound to the key.
+     * @return the event, not yet timestamped.
+     */
+    public static InputEvent keyRelease(ShipAction action) {
+        return new InputEvent(Type.KEY_RELEASE, -1, action, -1, 0, 0, 0);
+    }
+
+    /**
+     * Creates an event that starts mining an asteroid, as produced by clicking it.
+     *
+     * @param asteroidId the id of the clicked asteroid.
+     * @return the event, not yet timestamped.
+     */
+    public static InputEvent mine(int asteroidId) {
+        return new InputEvent(Type.MINE, -1, null, asteroidId, 0, 0, 0);
+    }
+
+    /**
+     * Creates an event that rotates the camera, as produced by dragging the mouse.
+     *
+     * @param angleX the camera angle around the X axis.
+     * @param angleY the camera angle around the Y axis.
+     * @return the event, not yet timestamped.
+     */
+    public static InputEvent camera(double angleX, double angleY) {
+        return new InputEvent(Type.CAMERA, -1, null, -1, 0, angleX, angleY);
+    }
+
+    /**
+     * Creates an event that moves the camera along its view axis, as produced by scrolling.
+     *
+     * @param delta the scroll delta.
+     * @return the event, not yet timestamped.
+     */
+    public static InputEvent zoom(double delta) {
+        return new InputEvent(Type.ZOOM, -1, null, -1, 0, delta, 0);
+    }
+
+    /**
+     * Creates an event that changes the time warp factor.
+     *
+     * @param warp the new warp factor.
+     * @return the event, not yet timestamped.
+     */
+    public static InputEvent warp(int warp) {
+        return new InputEvent(Type.WARP, -1, null, -1, warp, 0, 0);
+    }
+
+    /**
+     * Returns a copy of this event timestamped with the specified tick.
+     *
+     * @param tick the simulation tick the event applies to.
+     * @return the timestamped event.
+     */
+    public InputEvent atTick(long tick) {
+        return new InputEvent(type, tick, action, asteroidId, warp, x, y);
+    }
+
+    /**
+     * Returns the type of the event.
+     *
+     * @return the event type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the simulation tick the event applies to.
+     *
+     * @return the tick, or -1 if the event has not been timestamped.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the ship action of a key event.
+     *
+     * @return the ship action, or null for other events.
+     */
+    public ShipAction getAction() {
+        return action;
+    }
+
+    /**
+     * Returns the asteroid id of a mine event.
+     *
+     * @return the asteroid id, or -1 for other events.
+     */
+    public int getAsteroidId() {
+        return asteroidId;
+    }
+
+    /**
+     * Returns the warp factor of a warp event.
+     *
+     * @return the warp factor, or 0 for other events.
+     */
+    public int getWarp() {
+        return warp;
+    }
+
+    /**
+     * Returns the camera angle around the X axis of a camera event, or the delta of a zoom event.
+     *
+     * @return the first value of the event.
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the camera angle around the Y axis of a camera event.
+     *
+     * @return the second value of the event.
+     */
+    public double getY() {
+        return y;
+    }
+}
@@ -0,0 +1,92 @@
+package com.kihachu.spaceiteration1.controller;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Records input events to a compact binary log.
+ *
+ * <p>The log starts with a header holding the seed and asteroid count of the recorded universe. Each record
+ * holds the tick delta to the previous record as a variable-length integer, the event type as a byte and a small
+ * type-specific payload, so a typical key event takes three bytes. The log ends with a marker holding the last tick.
+ */
+public class InputJournal implements Closeable {
+    static final int MAGIC = 0x53494A31; // "SIJ1"
+    static final int VERSION = 3;
+    static final int END_MARKER = 0xFF;
+
+    private final DataOutputStream out;
+    private long lastTick;
+
+    /**
+     * Creates a journal file and writes its header.
+     *
+     * @param file the file to write.
+     * @param seed the seed the recorded universe was generated with.
+     * @param asteroidCount the number of asteroids in the recorded universe.
+     * @throws IOException if the file cannot be created.
+     */
+    public InputJournal(Path file, long seed, int asteroidCount) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(seed);
+        out.writeInt(asteroidCount);
+    }
+
+    /**
+     * Appends a timestamped event to the journal.
+     *
+     * @param event the event to record.
+     * @throws IOException if the event cannot be written.
+     */
+    public void record(InputEvent event) throws IOException {
+        writeVarLong(event.getTick() - lastTick);
+        lastTick = event.getTick();
+        out.writeByte(event.getType().ordinal());
+        switch (event.getType()) {
+            case KEY_PRESS, KEY_RELEASE -> out.writeByte(event.getAction().ordinal());
+            case MINE -> writeVarLong(event.getAsteroidId());
+            case CAMERA -> {
+                out.writeFloat((float) event.getX());
+                out.writeFloat((float) event.getY());
+            }
+            case ZOOM -> out.writeFloat((float) event.getX());
+            case WARP -> writeVarLong(event.getWarp());
+        }
+    }
+
+    /**
+     * Writes the end marker with the last simulated tick and closes the journal.
+     *
+     * @param endTick the last simulated tick, so a replay runs as long as the recording.
+     * @throws IOException if the journal cannot be written.
+     */
+    public void close(long endTick) throws IOException {
+        writeVarLong(Math.max(0, endTick - lastTick));
+        out.writeByte(END_MARKER);
+        out.close();
+    }
+
+    /**
+     * Closes the journal, ending it at the tick of the last recorded event.
+     *
+     * @throws IOException if the journal cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        close(lastTick);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
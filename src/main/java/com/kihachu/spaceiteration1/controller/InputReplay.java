@@ -0,0 +1,137 @@
+package com.kihachu.spaceiteration1.controller;
+
+import com.kihachu.spaceiteration1.simulation.ShipAction;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Reads an input journal written by {@link InputJournal} and hands its events out tick by tick.
+ */
+public class InputReplay implements Closeable {
+    private final DataInputStream in;
+    private final long seed;
+    private final int asteroidCount;
+    private InputEvent next;
+    private long lastTick;
+    private long endTick = -1;
+
+    /**
+     * Opens a journal file and reads its header.
+     *
+     * @param file the journal file.
+     * @throws IOException if the file cannot be read or is not an input journal.
+     */
+    public InputReplay(Path file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        if (in.readInt() != InputJournal.MAGIC) {
+            throw new IOException("Not an input journal: " + file);
+        }
+        int version = in.readUnsignedByte();
+        // Version 3 only added warp events, so version 2 journals replay unchanged
+        if (version != InputJournal.VERSION && version != 2) {
+            throw new IOException("Unsupported input journal version " + version + ": " + file);
+        }
+        this.seed = in.readLong();
+        this.asteroidCount = in.readInt();
+        readNext();
+    }
+
+    /**
+     * Returns the seed the recorded universe was generated with.
+     *
+     * @return the seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of asteroids in the recorded universe.
+     *
+     * @return the asteroid count.
+     */
+    public int getAsteroidCount() {
+        return asteroidCount;
+    }
+
+    /**
+     * Returns whether all events have been handed out.
+     *
+     * @return true if the replay has no more events.
+     */
+    public boolean isFinished() {
+        return next == null;
+    }
+
+    /**
+     * Returns the last tick of the recording.
+     *
+     * @return the last tick, or -1 if the end of the journal has not been reached yet.
+     */
+    public long getEndTick() {
+        return endTick;
+    }
+
+    /**
+     * Hands out every event recorded for ticks up to and including the specified tick.
+     *
+     * @param tick the current simulation tick.
+     * @param consumer the consumer of the events.
+     * @throws IOException if the journal cannot be read.
+     */
+    public void poll(long tick, Consumer<InputEvent> consumer) throws IOException {
+        while (next != null && next.getTick() <= tick) {
+            InputEvent event = next;
+            readNext();
+            consumer.accept(event);
+        }
+    }
+
+    private void readNext() throws IOException {
+        long tick = lastTick + readVarLong();
+        lastTick = tick;
+        int type = in.readUnsignedByte();
+        if (type == InputJournal.END_MARKER) {
+            next = null;
+            endTick = tick;
+            return;
+        }
+        InputEvent event = switch (InputEvent.Type.fromOrdinal(type)) {
+            case KEY_PRESS -> InputEvent.keyPress(ShipAction.fromOrdinal(in.readUnsignedByte()));
+            case KEY_RELEASE -> InputEvent.keyRelease(ShipAction.fromOrdinal(in.readUnsignedByte()));
+            case MINE -> InputEvent.mine((int) readVarLong());
+            case CAMERA -> InputEvent.camera(in.readFloat(), in.readFloat());
+            case ZOOM -> InputEvent.zoom(in.readFloat());
+            case WARP -> InputEvent.warp((int) readVarLong());
+        };
+        next = event.atTick(tick);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Closes the journal file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
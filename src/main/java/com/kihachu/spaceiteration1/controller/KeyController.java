@@ -1,12 +1,125 @@
 package com.kihachu.spaceiteration1.controller;
 
-import javafx.scene.input.KeyEvent;
+import com.kihachu.spaceiteration1.simulation.ShipAction;
+import com.kihachu.spaceiteration1.simulation.Simulation;
+import javafx.scene.input.KeyCode;
 import javafx.stage.Stage;
 
+/**
+ * Tracks which control keys are held down and keeps the simulation's key state up to date.
+ * Only transitions are dispatched, so OS key repeat neither floods the event queue nor changes the ship's
+ * acceleration; the simulation samples the key state once per tick instead.
+ * The period and comma keys raise and lower the time warp by a factor of {@value #WARP_STEP}.
+ */
 public class KeyController {
+    private static final int WARP_STEP = 10;
+
     Stage primaryStage;
+    private final InputDispatcher inputDispatcher;
+    private long pressedKeys;
 
-    public KeyController(Stage primaryStage) {
+    /**
+     * Constructs a KeyController for the specified stage. All keys are released when the stage loses focus,
+     * since the release events would otherwise be missed.
+     *
+     * @param primaryStage the primary stage of the application.
+     * @param inputDispatcher the dispatcher that applies and records the key transitions.
+     */
+    public KeyController(Stage primaryStage, InputDispatcher inputDispatcher) {
         this.primaryStage = primaryStage;
+        this.inputDispatcher = inputDispatcher;
+        primaryStage.focusedProperty().addListener((observable, wasFocused, focused) -> {
+            if (!focused) {
+                releaseAll();
+            }
+        });
+    }
+
+    /**
+     * Handles a key press. Repeated presses of a key that is already held down are ignored.
+     *
+     * @param code the code of the pressed key.
+     */
+    public void keyPressed(KeyCode code) {
+        if (code == KeyCode.PERIOD || code == KeyCode.COMMA) {
+            changeWarp(code == KeyCode.PERIOD);
+            return;
+        }
+        ShipAction action = toShipAction(code);
+        if (action != null && (pressedKeys & bit(action)) == 0) {
+            pressedKeys |= bit(action);
+            inputDispatcher.dispatch(InputEvent.keyPress(action));
+        }
+    }
+
+    /**
+     * Handles a key release.
+     *
+     * @param code the code of the released key.
+     */
+    public void keyReleased(KeyCode code) {
+        ShipAction action = toShipAction(code);
+        if (action != null && (pressedKeys & bit(action)) != 0) {
+            pressedKeys &= ~bit(action);
+            inputDispatcher.dispatch(InputEvent.keyRelease(action));
+        }
+    }
+
+    /**
+     * Raises or lowers the time warp by one step.
+     *
+     * @param faster true to raise the warp, false to lower it.
+     */
+    private void changeWarp(boolean faster) {
+        int warp = inputDispatcher.getWarp();
+        int next = faster ? Math.min(Simulation.MAX_WARP, warp * WARP_STEP) : Math.max(1, warp / WARP_STEP);
+        if (next != warp) {
+            inputDispatcher.dispatch(InputEvent.warp(next));
+        }
+    }
+
+    /**
+     * Releases every key that is held down.
+     */
+    public void releaseAll() {
+        for (ShipAction action : ShipAction.values()) {
+            if ((pressedKeys & bit(action)) != 0) {
+                inputDispatcher.dispatch(InputEvent.keyRelease(action));
+            }
+        }
+        pressedKeys = 0;
+    }
+
+    private static long bit(ShipAction action) {
+        return 1L << action.ordinal();
+    }
+
+    /**
+     * Returns the ship action bound to the specified key.
+     *
+     * @param code the key code.
+     * @return the ship action, or null if the key is not bound.
+     */
+    public static ShipAction toShipAction(KeyCode code) {
+        switch (code) {
+            case UP:
+                return ShipAction.FORWARD;
+            case DOWN:
+                return ShipAction.BACKWARD;
+            case A:
+                return ShipAction.YAW_LEFT;
+            case D:
+                return ShipAction.YAW_RIGHT;
+            case W:
+                return ShipAction.PITCH_UP;
+            case S:
+                return ShipAction.PITCH_DOWN;
+            case Q:
+                return ShipAction.ROLL_LEFT;
+            case E:
+                return ShipAction.ROLL_RIGHT;
+            default:
+                return null;
+        }
     }
 }
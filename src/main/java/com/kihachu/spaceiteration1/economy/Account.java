@@ -0,0 +1,74 @@
+package com.kihachu.spaceiteration1.economy;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The balance of one resource type held by one owner.
+ *
+ * <p>Deposits go to a striped {@link LongAdder}, so many concurrent miners can credit the same account without
+ * contending on a single cache line. Withdrawals are rare and go to a separate {@link AtomicLong} with a
+ * compare-and-set loop. Since deposits only ever increase the credited total, a withdrawal that was covered when
+ * it was checked stays covered, and the balance never becomes negative.
+ */
+public class Account {
+    private final LongAdder credits = new LongAdder();
+    private final AtomicLong debits = new AtomicLong();
+
+    /**
+     * Credits the account.
+     *
+     * @param amount the amount to credit, which must not be negative.
+     */
+    public void deposit(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Negative deposit: " + amount);
+        }
+        if (amount > 0) {
+            credits.add(amount);
+        }
+    }
+
+    /**
+     * Debits the account if the balance covers the amount.
+     *
+     * @param amount the amount to debit, which must not be negative.
+     * @return true if the amount was debited, false if the balance was insufficient.
+     */
+    public boolean withdraw(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Negative withdrawal: " + amount);
+        }
+        while (true) {
+            long debited = debits.get();
+            if (credits.sum() - debited < amount) {
+                return false;
+            }
+            if (debits.compareAndSet(debited, debited + amount)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the balance. Concurrent deposits may or may not be included.
+     *
+     * @return the balance.
+     */
+    public long balance() {
+        // Read the debits first, so a concurrent transfer out can only make the balance appear larger, never negative
+        long debited = debits.get();
+        return credits.sum() - debited;
+    }
+
+    /**
+     * Replaces the balance, for example when restoring a saved state. Must not be called concurrently with other updates.
+     *
+     * @param balance the new balance.
+     */
+    public void reset(long balance) {
+        credits.reset();
+        debits.set(0);
+        deposit(balance);
+    }
+}
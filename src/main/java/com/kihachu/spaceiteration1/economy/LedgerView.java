@@ -0,0 +1,67 @@
+package com.kihachu.spaceiteration1.economy;
+
+/**
+ * A throttled, coalesced text view of one owner's balances for the UI.
+ * Any number of ledger updates between two refreshes result in at most one new text, and the ledger is sampled
+ * at most once per refresh interval.
+ */
+public class LedgerView {
+    private final ResourceLedger ledger;
+    private final String owner;
+    private final long intervalNanos;
+    private final StringBuilder builder = new StringBuilder(96);
+    private long lastRefresh = Long.MIN_VALUE / 2;
+    private long lastChangeCount = -1;
+    private String text = "";
+
+    /**
+     * Constructs a LedgerView.
+     *
+     * @param ledger the ledger to show.
+     * @param owner the owner whose balances are shown.
+     * @param intervalNanos the minimum time between two samples of the ledger, in nanoseconds.
+     */
+    public LedgerView(ResourceLedger ledger, String owner, long intervalNanos) {
+        this.ledger = ledger;
+        this.owner = owner;
+        this.intervalNanos = intervalNanos;
+    }
+
+    /**
+     * Samples the ledger if the refresh interval has passed and it has changed since the previous sample.
+     *
+     * @param now the current time in nanoseconds.
+     * @return true if the text has changed.
+     */
+    public boolean refresh(long now) {
+        if (now - lastRefresh < intervalNanos) {
+            return false;
+        }
+        lastRefresh = now;
+        long changeCount = ledger.changeCount();
+        if (changeCount == lastChangeCount) {
+            return false;
+        }
+        lastChangeCount = changeCount;
+        builder.setLength(0);
+        builder.append("Collected resources: ").append(ledger.total(owner)).append("kg");
+        for (int i = 0; i < ResourceType.count(); i++) {
+            ResourceType type = ResourceType.fromOrdinal(i);
+            builder.append(i == 0 ? " (" : ", ").append(type.getDisplayName()).append(' ').append(ledger.balance(owner, type));
+        }
+        builder.append(')');
+        String newText = builder.toString();
+        boolean changed = !newText.equals(text);
+        text = newText;
+        return changed;
+    }
+
+    /**
+     * Returns the text from the latest refresh.
+     *
+     * @return the text.
+     */
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,126 @@
+package com.kihachu.spaceiteration1.economy;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe ledger of the resources held by each owner, such as a ship, with one {@link Account} per resource type.
+ * Deposits and transfers may come from any thread; accounts are created on first use.
+ */
+public class ResourceLedger {
+    private final ConcurrentHashMap<String, Account[]> accounts = new ConcurrentHashMap<>();
+    private final LongAdder changes = new LongAdder();
+
+    /**
+     * Returns the account of an owner for a resource type, creating the owner's accounts if necessary.
+     *
+     * @param owner the owner.
+     * @param type the resource type.
+     * @return the account.
+     */
+    public Account account(String owner, ResourceType type) {
+        Account[] owned = accounts.get(owner);
+        if (owned == null) {
+            owned = accounts.computeIfAbsent(owner, key -> {
+                Account[] created = new Account[ResourceType.count()];
+                for (int i = 0; i < created.length; i++) {
+                    created[i] = new Account();
+                }
+                return created;
+            });
+        }
+        return owned[type.ordinal()];
+    }
+
+    /**
+     * Credits an owner with mined or received resources.
+     *
+     * @param owner the owner.
+     * @param type the resource type.
+     * @param amount the amount.
+     */
+    public void deposit(String owner, ResourceType type, long amount) {
+        account(owner, type).deposit(amount);
+        changes.increment();
+    }
+
+    /**
+     * Moves resources from one owner to another. Either the whole amount is moved or nothing is.
+     *
+     * @param from the owner to debit.
+     * @param to the owner to credit.
+     * @param type the resource type.
+     * @param amount the amount.
+     * @return true if the amount was moved, false if the balance of {@code from} was insufficient.
+     */
+    public boolean transfer(String from, String to, ResourceType type, long amount) {
+        Account target = account(to, type);
+        if (!account(from, type).withdraw(amount)) {
+            return false;
+        }
+        target.deposit(amount);
+        changes.increment();
+        return true;
+    }
+
+    /**
+     * Returns the balance of an owner for a resource type.
+     *
+     * @param owner the owner.
+     * @param type the resource type.
+     * @return the balance.
+     */
+    public long balance(String owner, ResourceType type) {
+        Account[] owned = accounts.get(owner);
+        return owned == null ? 0 : owned[type.ordinal()].balance();
+    }
+
+    /**
+     * Returns the total balance of an owner over all resource types.
+     *
+     * @param owner the owner.
+     * @return the total balance.
+     */
+    public long total(String owner) {
+        Account[] owned = accounts.get(owner);
+        if (owned == null) {
+            return 0;
+        }
+        long total = 0;
+        for (Account account : owned) {
+            total += account.balance();
+        }
+        return total;
+    }
+
+    /**
+     * Replaces the balance of an owner, for example when restoring a saved state.
+     *
+     * @param owner the owner.
+     * @param type the resource type.
+     * @param balance the new balance.
+     */
+    public void restore(String owner, ResourceType type, long balance) {
+        account(owner, type).reset(balance);
+        changes.increment();
+    }
+
+    /**
+     * Returns a number that changes whenever the ledger is updated, so readers can skip unchanged states.
+     *
+     * @return the change count.
+     */
+    public long changeCount() {
+        return changes.sum();
+    }
+
+    /**
+     * Returns the owners that have accounts.
+     *
+     * @return the owners.
+     */
+    public Set<String> owners() {
+        return accounts.keySet();
+    }
+}
@@ -0,0 +1,56 @@
+package com.kihachu.spaceiteration1.economy;
+
+/**
+ * The kinds of resources that can be mined. The type of an asteroid is determined by its model.
+ */
+public enum ResourceType {
+    METAL("metal"),
+    SILICATE("silicate"),
+    ICE("ice");
+
+    private static final ResourceType[] VALUES = values();
+
+    private final String displayName;
+
+    ResourceType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Returns the resource type of asteroids with the specified model.
+     *
+     * @param modelId the asteroid model id.
+     * @return the resource type.
+     */
+    public static ResourceType forModel(int modelId) {
+        return VALUES[modelId % VALUES.length];
+    }
+
+    /**
+     * Returns the resource type with the specified ordinal.
+     *
+     * @param ordinal the ordinal.
+     * @return the resource type.
+     */
+    public static ResourceType fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Returns the number of resource types.
+     *
+     * @return the number of resource types.
+     */
+    public static int count() {
+        return VALUES.length;
+    }
+
+    /**
+     * Returns the name shown in the UI.
+     *
+     * @return the display name.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+}
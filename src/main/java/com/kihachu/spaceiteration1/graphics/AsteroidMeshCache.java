@@ -0,0 +1,223 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import com.kihachu.spaceiteration1.logging.Log;
+import com.kihachu.spaceiteration1.logging.Logger;
+import com.kihachu.spaceiteration1.metrics.Counter;
+import com.kihachu.spaceiteration1.metrics.LatencyHistogram;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import javafx.scene.shape.TriangleMesh;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Supplies the meshes of a fixed number of procedural asteroid variants, each generated by
+ * {@link AsteroidMeshGenerator} from its own seed. Every variant is generated once and its mesh shared by all asteroids
+ * of that variant, so thousands of asteroids cost only as many meshes as there are variants. Variants are generated
+ * in parallel on worker threads, either all up front with {@link #prefetch()} or on first use, and never on the
+ * caller's thread. If a directory is given, shapes are read from it instead of generated when present, and written
+ * to it in the background otherwise. A variant whose generation fails is forgotten, so it is retried on next use.
+ */
+public class AsteroidMeshCache {
+    private static final Logger LOG = Log.logger("assets");
+    private static final Counter GENERATED = Metrics.counter("asteroid.meshes.generated");
+    private static final Counter LOADED = Metrics.counter("asteroid.meshes.loaded");
+    private static final LatencyHistogram GENERATE = Metrics.histogram("asteroid.mesh.generate");
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1), runnable -> {
+                Thread thread = new Thread(runnable, "asteroid-mesh");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final int variants;
+    private final int subdivisions;
+    private final double radius;
+    private final long baseSeed;
+    private final Path directory;
+    private final Map<Long, CompletableFuture<TriangleMesh>> meshes = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+
+    /**
+     * Constructs an AsteroidMeshCache. No shapes are generated until they are prefetched or used.
+     *
+     * @param variants the number of asteroid variants.
+     * @param subdivisions the number of times the icosahedron of each shape is subdivided.
+     * @param radius the mean radius of the asteroids in model units.
+     * @param baseSeed the seed the seeds of the variants are derived from.
+     * @param directory the directory shapes are persisted in, or null to generate them on every start.
+     */
+    public AsteroidMeshCache(int variants, int subdivisions, double radius, long baseSeed, Path directory) {
+        this.variants = variants;
+        this.subdivisions = subdivisions;
+        this.radius = radius;
+        this.baseSeed = baseSeed;
+        this.directory = directory;
+        Metrics.gauge("asteroid.meshes", meshes::size);
+        Metrics.gauge("asteroid.meshes.bytes", bytes::get);
+    }
+
+    /**
+     * Returns the number of variants.
+     *
+     * @return the number of variants.
+     */
+    public int getVariants() {
+        return variants;
+    }
+
+    /**
+     * Returns the variant of an asteroid. Variants are spread evenly over the asteroids, so neighbouring asteroids
+     * rarely share a shape.
+     *
+     * @param asteroidId the asteroid id.
+     * @return the variant, in [0, {@link #getVariants()}).
+     */
+    public int variantOf(int asteroidId) {
+        return (int) Math.floorMod(mix(asteroidId), (long) variants);
+    }
+
+    /**
+     * Returns the seed of a variant.
+     *
+     * @param variant the variant.
+     * @return the seed.
+     */
+    public long seedOf(int variant) {
+        return mix(baseSeed + variant);
+    }
+
+    /**
+     * Starts generating all variants in parallel.
+     *
+     * @return a future that completes once every variant is ready.
+     */
+    public CompletableFuture<Void> prefetch() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[variants];
+        for (int variant = 0; variant < variants; variant++) {
+            futures[variant] = request(seedOf(variant));
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Returns the mesh of a variant if it is ready, and starts generating it in the background otherwise.
+     * Never blocks, so it can be called on the FX thread.
+     *
+     * @param variant the variant.
+     * @return the mesh, shared by all asteroids of the variant, or null while it is not ready.
+     */
+    public TriangleMesh getMesh(int variant) {
+        CompletableFuture<TriangleMesh> mesh = request(seedOf(variant));
+        return mesh.isDone() && !mesh.isCompletedExceptionally() ? mesh.join() : null;
+    }
+
+    /**
+     * Returns the future mesh of a seed, starting to build it if it is neither built nor being built.
+     */
+    private CompletableFuture<TriangleMesh> request(long seed) {
+        CompletableFuture<TriangleMesh> mesh = meshes.get(seed);
+        if (mesh != null) {
+            return mesh;
+        }
+        CompletableFuture<TriangleMesh> created = new CompletableFuture<>();
+        mesh = meshes.putIfAbsent(seed, created);
+        if (mesh != null) {
+            return mesh;
+        }
+        // Registered before it starts, so that a failure always finds and evicts its own entry
+        created.whenComplete((result, error) -> {
+            if (error != null) {
+                LOG.warn("Could not build asteroid shape {}: {}", Long.toHexString(seed), error.getMessage());
+                meshes.remove(seed, created);
+            }
+        });
+        return created.completeAsync(() -> build(seed), WORKERS);
+    }
+
+    private TriangleMesh build(long seed) {
+        AsteroidShape shape = directory != null ? read(seed) : null;
+        if (shape == null) {
+            long start = System.nanoTime();
+            shape = AsteroidMeshGenerator.generate(seed, subdivisions, radius);
+            GENERATE.recordSince(start);
+            GENERATED.increment();
+            if (directory != null) {
+                write(seed, shape);
+            }
+        }
+        bytes.addAndGet(shape.sizeInBytes());
+        return shape.toMesh();
+    }
+
+    private Path file(long seed) {
+        return directory.resolve(String.format("%016x-%d.shape", seed, subdivisions));
+    }
+
+    /**
+     * Reads a persisted shape.
+     *
+     * @return the shape, or null if it has not been persisted or cannot be read.
+     */
+    private AsteroidShape read(long seed) {
+        Path file = file(seed);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            AsteroidShape shape = AsteroidShape.read(in);
+            LOADED.increment();
+            return shape;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOG.warn("Could not read asteroid shape {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Persists a shape, writing it to a temporary file first so that readers never see a partial shape.
+     */
+    private void write(long seed, AsteroidShape shape) {
+        Path file = file(seed);
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, "shape", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                shape.write(out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Could not write asteroid shape {}: {}", file, e.getMessage());
+            try {
+                if (temporary != null) {
+                    Files.deleteIfExists(temporary);
+                }
+            } catch (IOException ignored) {
+                // The temporary file is left behind, which does no harm
+            }
+        }
+    }
+
+    /**
+     * Scrambles the bits of a value, so that consecutive values give unrelated results.
+     */
+    private static long mix(long value) {
+        long z = value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
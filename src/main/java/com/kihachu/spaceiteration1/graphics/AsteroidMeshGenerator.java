@@ -0,0 +1,290 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates asteroid shapes from a seed. An icosahedron is subdivided into an icosphere, stretched into a random
+ * ellipsoid and displaced along each vertex direction by seeded fractal gradient noise. The same seed and
+ * subdivisions always give the same shape, so shapes can be cached and persisted by seed.
+ */
+public final class AsteroidMeshGenerator {
+    /**
+     * How far the noise displaces the surface, as a fraction of the radius.
+     */
+    public static final double ROUGHNESS = 0.35;
+
+    private static final int OCTAVES = 4;
+    private static final double T = (1 + Math.sqrt(5)) / 2;
+    private static final double[] ICOSAHEDRON_POINTS = {
+            -1, T, 0, 1, T, 0, -1, -T, 0, 1, -T, 0,
+            0, -1, T, 0, 1, T, 0, -1, -T, 0, 1, -T,
+            T, 0, -1, T, 0, 1, -T, 0, -1, -T, 0, 1,
+    };
+    private static final int[] ICOSAHEDRON_FACES = {
+            0, 11, 5, 0, 5, 1, 0, 1, 7, 0, 7, 10, 0, 10, 11,
+            1, 5, 9, 5, 11, 4, 11, 10, 2, 10, 7, 6, 7, 1, 8,
+            3, 9, 4, 3, 4, 2, 3, 2, 6, 3, 6, 8, 3, 8, 9,
+            4, 9, 5, 2, 4, 11, 6, 2, 10, 8, 6, 7, 9, 8, 1,
+    };
+
+    private AsteroidMeshGenerator() {
+    }
+
+    /**
+     * Returns the number of triangles of a shape.
+     *
+     * @param subdivisions the number of times the icosahedron is subdivided.
+     * @return the number of triangles.
+     */
+    public static int triangles(int subdivisions) {
+        return 20 << (2 * subdivisions);
+    }
+
+    /**
+     * Generates the shape of an asteroid.
+     *
+     * @param seed the seed of the shape.
+     * @param subdivisions the number of times the icosahedron is subdivided; each one quadruples the triangles.
+     * @param radius the mean radius of the asteroid.
+     * @return the shape.
+     */
+    static AsteroidShape generate(long seed, int subdivisions, double radius) {
+        int vertexCount = 10 * (1 << (2 * subdivisions)) + 2;
+        double[] directions = new double[vertexCount * 3];
+        System.arraycopy(ICOSAHEDRON_POINTS, 0, directions, 0, ICOSAHEDRON_POINTS.length);
+        for (int i = 0; i < 12; i++) {
+            normalize(directions, i);
+        }
+        int[] triangles = ICOSAHEDRON_FACES.clone();
+        orientOutward(directions, triangles);
+        int count = 12;
+        for (int level = 0; level < subdivisions; level++) {
+            Map<Long, Integer> midpoints = new HashMap<>();
+            int[] next = new int[triangles.length * 4];
+            for (int t = 0; t < triangles.length; t += 3) {
+                int a = triangles[t];
+                int b = triangles[t + 1];
+                int c = triangles[t + 2];
+                int ab = midpoint(directions, midpoints, a, b, count);
+                count += ab == count ? 1 : 0;
+                int bc = midpoint(directions, midpoints, b, c, count);
+                count += bc == count ? 1 : 0;
+                int ca = midpoint(directions, midpoints, c, a, count);
+                count += ca == count ? 1 : 0;
+                // The four triangles keep the winding of their parent
+                int n = t * 4;
+                set(next, n, a, ab, ca);
+                set(next, n + 3, b, bc, ab);
+                set(next, n + 6, c, ca, bc);
+                set(next, n + 9, ab, bc, ca);
+            }
+            triangles = next;
+        }
+
+        Random random = new Random(seed);
+        Noise noise = new Noise(random.nextLong());
+        double stretchX = 0.75 + 0.5 * random.nextDouble();
+        double stretchY = 0.6 + 0.4 * random.nextDouble();
+        double stretchZ = 0.75 + 0.5 * random.nextDouble();
+        double frequency = 1.2 + random.nextDouble();
+        float[] points = new float[vertexCount * 3];
+        for (int i = 0; i < vertexCount; i++) {
+            double x = directions[i * 3];
+            double y = directions[i * 3 + 1];
+            double z = directions[i * 3 + 2];
+            double r = radius * (1 + ROUGHNESS * noise.fractal(x * frequency, y * frequency, z * frequency));
+            points[i * 3] = (float) (x * r * stretchX);
+            points[i * 3 + 1] = (float) (y * r * stretchY);
+            points[i * 3 + 2] = (float) (z * r * stretchZ);
+        }
+
+        float[] normals = vertexNormals(points, triangles);
+        int[] faces = new int[triangles.length * 3];
+        for (int t = 0; t < triangles.length; t++) {
+            faces[t * 3] = triangles[t];
+            faces[t * 3 + 1] = triangles[t];
+        }
+        return new AsteroidShape(points, normals, faces);
+    }
+
+    /**
+     * Returns the index of the vertex halfway between two vertices on the unit sphere, adding it if it is new.
+     */
+    private static int midpoint(double[] directions, Map<Long, Integer> midpoints, int a, int b, int next) {
+        long key = (long) Math.min(a, b) << 32 | Math.max(a, b);
+        Integer existing = midpoints.putIfAbsent(key, next);
+        if (existing != null) {
+            return existing;
+        }
+        for (int k = 0; k < 3; k++) {
+            directions[next * 3 + k] = (directions[a * 3 + k] + directions[b * 3 + k]) / 2;
+        }
+        normalize(directions, next);
+        return next;
+    }
+
+    private static void normalize(double[] directions, int i) {
+        double x = directions[i * 3];
+        double y = directions[i * 3 + 1];
+        double z = directions[i * 3 + 2];
+        double length = Math.sqrt(x * x + y * y + z * z);
+        directions[i * 3] = x / length;
+        directions[i * 3 + 1] = y / length;
+        directions[i * 3 + 2] = z / length;
+    }
+
+    /**
+     * Winds each triangle so that its front face points away from the center.
+     * JavaFX draws the side of a triangle abc towards which (b - a) x (c - a) points.
+     */
+    private static void orientOutward(double[] directions, int[] triangles) {
+        for (int t = 0; t < triangles.length; t += 3) {
+            int a = triangles[t] * 3;
+            int b = triangles[t + 1] * 3;
+            int c = triangles[t + 2] * 3;
+            double abx = directions[b] - directions[a];
+            double aby = directions[b + 1] - directions[a + 1];
+            double abz = directions[b + 2] - directions[a + 2];
+            double acx = directions[c] - directions[a];
+            double acy = directions[c + 1] - directions[a + 1];
+            double acz = directions[c + 2] - directions[a + 2];
+            double nx = aby * acz - abz * acy;
+            double ny = abz * acx - abx * acz;
+            double nz = abx * acy - aby * acx;
+            if (nx * directions[a] + ny * directions[a + 1] + nz * directions[a + 2] < 0) {
+                int swap = triangles[t + 1];
+                triangles[t + 1] = triangles[t + 2];
+                triangles[t + 2] = swap;
+            }
+        }
+    }
+
+    /**
+     * Averages the normals of the triangles around each vertex, weighted by their areas.
+     */
+    private static float[] vertexNormals(float[] points, int[] triangles) {
+        double[] sums = new double[points.length];
+        for (int t = 0; t < triangles.length; t += 3) {
+            int a = triangles[t] * 3;
+            int b = triangles[t + 1] * 3;
+            int c = triangles[t + 2] * 3;
+            double abx = points[b] - points[a];
+            double aby = points[b + 1] - points[a + 1];
+            double abz = points[b + 2] - points[a + 2];
+            double acx = points[c] - points[a];
+            double acy = points[c + 1] - points[a + 1];
+            double acz = points[c + 2] - points[a + 2];
+            double nx = aby * acz - abz * acy;
+            double ny = abz * acx - abx * acz;
+            double nz = abx * acy - aby * acx;
+            for (int corner : new int[]{a, b, c}) {
+                sums[corner] += nx;
+                sums[corner + 1] += ny;
+                sums[corner + 2] += nz;
+            }
+        }
+        float[] normals = new float[points.length];
+        for (int i = 0; i < points.length; i += 3) {
+            double length = Math.sqrt(sums[i] * sums[i] + sums[i + 1] * sums[i + 1] + sums[i + 2] * sums[i + 2]);
+            if (length > 0) {
+                normals[i] = (float) (sums[i] / length);
+                normals[i + 1] = (float) (sums[i + 1] / length);
+                normals[i + 2] = (float) (sums[i + 2] / length);
+            }
+        }
+        return normals;
+    }
+
+    private static void set(int[] triangles, int t, int a, int b, int c) {
+        triangles[t] = a;
+        triangles[t + 1] = b;
+        triangles[t + 2] = c;
+    }
+
+    /**
+     * Seeded 3D gradient noise, summed over several octaves. Values lie roughly in [-1, 1].
+     */
+    private static final class Noise {
+        private final int[] permutation = new int[512];
+
+        private Noise(long seed) {
+            int[] p = new int[256];
+            for (int i = 0; i < p.length; i++) {
+                p[i] = i;
+            }
+            Random random = new Random(seed);
+            for (int i = p.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = p[i];
+                p[i] = p[j];
+                p[j] = swap;
+            }
+            for (int i = 0; i < permutation.length; i++) {
+                permutation[i] = p[i & 255];
+            }
+        }
+
+        private double fractal(double x, double y, double z) {
+            double sum = 0;
+            double amplitude = 1;
+            double total = 0;
+            for (int octave = 0; octave < OCTAVES; octave++) {
+                sum += amplitude * noise(x, y, z);
+                total += amplitude;
+                amplitude /= 2;
+                x *= 2;
+                y *= 2;
+                z *= 2;
+            }
+            // Single octaves rarely exceed half their range, so rescale to use most of [-1, 1]
+            return Math.max(-1, Math.min(1, 2 * sum / total));
+        }
+
+        private double noise(double x, double y, double z) {
+            int ix = (int) Math.floor(x);
+            int iy = (int) Math.floor(y);
+            int iz = (int) Math.floor(z);
+            x -= ix;
+            y -= iy;
+            z -= iz;
+            ix &= 255;
+            iy &= 255;
+            iz &= 255;
+            double u = fade(x);
+            double v = fade(y);
+            double w = fade(z);
+            int[] p = permutation;
+            int a = p[ix] + iy;
+            int aa = p[a] + iz;
+            int ab = p[a + 1] + iz;
+            int b = p[ix + 1] + iy;
+            int ba = p[b] + iz;
+            int bb = p[b + 1] + iz;
+            return lerp(w,
+                    lerp(v, lerp(u, gradient(p[aa], x, y, z), gradient(p[ba], x - 1, y, z)),
+                            lerp(u, gradient(p[ab], x, y - 1, z), gradient(p[bb], x - 1, y - 1, z))),
+                    lerp(v, lerp(u, gradient(p[aa + 1], x, y, z - 1), gradient(p[ba + 1], x - 1, y, z - 1)),
+                            lerp(u, gradient(p[ab + 1], x, y - 1, z - 1), gradient(p[bb + 1], x - 1, y - 1, z - 1))));
+        }
+
+        private static double fade(double t) {
+            return t * t * t * (t * (t * 6 - 15) + 10);
+        }
+
+        private static double lerp(double t, double a, double b) {
+            return a + t * (b - a);
+        }
+
+        /**
+         * Dots the offset with one of the 12 edge directions of a cube, picked by the hash.
+         */
+        private static double gradient(int hash, double x, double y, double z) {
+            int h = hash & 15;
+            double u = h < 8 ? x : y;
+            double v = h < 4 ? y : h == 12 || h == 14 ? x : z;
+            return ((h & 1) == 0 ? u : -u) + ((h & 2) == 0 ? v : -v);
+        }
+    }
+}
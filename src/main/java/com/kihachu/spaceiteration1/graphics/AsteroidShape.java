@@ -0,0 +1,93 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The mesh arrays of one procedural asteroid, built off the FX thread. Vertices and normals share their indices, and
+ * all vertices use a single texture coordinate, since asteroids are drawn in plain materials. Shapes can be written
+ * to and read from a compact binary form.
+ */
+final class AsteroidShape {
+    private static final int MAGIC = 0x41534850; // "ASHP"
+    private static final int VERSION = 1;
+
+    final float[] points;
+    final float[] normals;
+    final int[] faces;
+
+    AsteroidShape(float[] points, float[] normals, int[] faces) {
+        this.points = points;
+        this.normals = normals;
+        this.faces = faces;
+    }
+
+    /**
+     * Creates a mesh of the shape. Meshes may be created on any thread, as long as they are not yet in the scene.
+     *
+     * @return the mesh.
+     */
+    TriangleMesh toMesh() {
+        TriangleMesh mesh = new TriangleMesh(VertexFormat.POINT_NORMAL_TEXCOORD);
+        mesh.getPoints().setAll(points);
+        mesh.getNormals().setAll(normals);
+        mesh.getTexCoords().setAll(0, 0);
+        mesh.getFaces().setAll(faces);
+        return mesh;
+    }
+
+    /**
+     * Returns the number of bytes the arrays of the shape take.
+     *
+     * @return the size in bytes.
+     */
+    long sizeInBytes() {
+        return 4L * (points.length + normals.length + faces.length);
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(points.length / 3);
+        out.writeInt(faces.length / 9);
+        for (int i = 0; i < points.length; i++) {
+            out.writeFloat(points[i]);
+            out.writeFloat(normals[i]);
+        }
+        // Each corner refers to the same index for its point and normal, and to texture coordinate 0
+        for (int i = 0; i < faces.length; i += 3) {
+            out.writeInt(faces[i]);
+        }
+    }
+
+    static AsteroidShape read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not an asteroid shape");
+        }
+        int vertexCount = in.readInt();
+        int triangleCount = in.readInt();
+        if (vertexCount < 0 || triangleCount < 0) {
+            throw new IOException("Corrupt asteroid shape");
+        }
+        float[] points = new float[vertexCount * 3];
+        float[] normals = new float[vertexCount * 3];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = in.readFloat();
+            normals[i] = in.readFloat();
+        }
+        int[] faces = new int[triangleCount * 9];
+        for (int i = 0; i < faces.length; i += 3) {
+            int vertex = in.readInt();
+            if (vertex < 0 || vertex >= vertexCount) {
+                throw new IOException("Corrupt asteroid shape");
+            }
+            faces[i] = vertex;
+            faces[i + 1] = vertex;
+        }
+        return new AsteroidShape(points, normals, faces);
+    }
+}
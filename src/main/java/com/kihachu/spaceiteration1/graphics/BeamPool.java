@@ -0,0 +1,167 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import com.kihachu.spaceiteration1.metrics.Counter;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import javafx.scene.Group;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Cylinder;
+import javafx.scene.transform.Affine;
+
+/**
+ * A fixed pool of beam nodes for laser effects. All beams are created up front as unit cylinders under one group
+ * and are only shown, hidden and re-aimed afterwards: aiming a beam writes the scale, rotation and translation
+ * into the beam's {@link Affine} in place, so firing and updating beams neither adds nodes to the scene
+ * nor allocates. When every beam is in use, further requests are refused and counted in {@code beams.refused}.
+ */
+public class BeamPool {
+    private static final Counter REFUSED = Metrics.counter("beams.refused");
+
+    private final Group root = new Group();
+    private final Beam[] beams;
+    private final Beam[] free;
+    private int freeCount;
+
+    /**
+     * Constructs a BeamPool with the specified number of beams.
+     *
+     * @param capacity the maximum number of beams shown at once.
+     */
+    public BeamPool(int capacity) {
+        this.beams = new Beam[capacity];
+        this.free = new Beam[capacity];
+        for (int i = 0; i < capacity; i++) {
+            beams[i] = new Beam(this);
+            root.getChildren().add(beams[i].node);
+            free[capacity - 1 - i] = beams[i];
+        }
+        this.freeCount = capacity;
+        Metrics.gauge("beams.active", this::getActiveCount);
+    }
+
+    /**
+     * Takes a beam from the pool. The beam stays hidden until it is aimed.
+     *
+     * @param color the color of the beam.
+     * @param radius the radius of the beam.
+     * @return the beam, or null if all beams are in use.
+     */
+    public Beam acquire(Color color, double radius) {
+        if (freeCount == 0) {
+            REFUSED.increment();
+            return null;
+        }
+        Beam beam = free[--freeCount];
+        beam.inUse = true;
+        beam.radius = radius;
+        beam.node.setMaterial(MaterialRegistry.color(color));
+        return beam;
+    }
+
+    /**
+     * Returns the group holding the beam nodes, which must be added to the scene once.
+     *
+     * @return the root group.
+     */
+    public Group getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the number of beams in use.
+     *
+     * @return the number of acquired beams.
+     */
+    public int getActiveCount() {
+        return beams.length - freeCount;
+    }
+
+    /**
+     * Returns the number of beams in the pool.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return beams.length;
+    }
+
+    /**
+     * A beam of the pool, drawn as a cylinder between two points.
+     */
+    public static final class Beam {
+        private final BeamPool pool;
+        private final Cylinder node = new Cylinder(1, 1, 8);
+        private final Affine transform = new Affine();
+        private double radius;
+        private boolean inUse;
+
+        private Beam(BeamPool pool) {
+            this.pool = pool;
+            node.getTransforms().add(transform);
+            node.setVisible(false);
+            node.setMouseTransparent(true);
+        }
+
+        /**
+         * Shows the beam between two points. The unit cylinder along the Y axis is scaled to the beam's length
+         * and radius, and rotated so that its axis points from the start to the end.
+         *
+         * @param startX the X coordinate of the start point.
+         * @param startY the Y coordinate of the start point.
+         * @param startZ the Z coordinate of the start point.
+         * @param endX the X coordinate of the end point.
+         * @param endY the Y coordinate of the end point.
+         * @param endZ the Z coordinate of the end point.
+         */
+        public void aim(double startX, double startY, double startZ, double endX, double endY, double endZ) {
+            double dx = endX - startX;
+            double dy = endY - startY;
+            double dz = endZ - startZ;
+            double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (length == 0) {
+                node.setVisible(false);
+                return;
+            }
+            dx /= length;
+            dy /= length;
+            dz /= length;
+            // u = helper x d, normalized, with a helper axis that is not parallel to the beam
+            double ux;
+            double uy;
+            double uz;
+            if (Math.abs(dy) < 0.9) {
+                ux = dz;
+                uy = 0;
+                uz = -dx;
+            } else {
+                ux = 0;
+                uy = -dz;
+                uz = dy;
+            }
+            double norm = Math.sqrt(ux * ux + uy * uy + uz * uz);
+            ux /= norm;
+            uy /= norm;
+            uz /= norm;
+            // w = u x d completes the right-handed basis (u, d, w)
+            double wx = uy * dz - uz * dy;
+            double wy = uz * dx - ux * dz;
+            double wz = ux * dy - uy * dx;
+            transform.setToTransform(
+                    ux * radius, dx * length, wx * radius, (startX + endX) / 2,
+                    uy * radius, dy * length, wy * radius, (startY + endY) / 2,
+                    uz * radius, dz * length, wz * radius, (startZ + endZ) / 2);
+            node.setVisible(true);
+        }
+
+        /**
+         * Hides the beam and returns it to the pool. Releasing a beam twice has no effect.
+         */
+        public void release() {
+            if (!inUse) {
+                return;
+            }
+            inUse = false;
+            node.setVisible(false);
+            pool.free[pool.freeCount++] = this;
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import com.kihachu.spaceiteration1.logging.Log;
+import com.kihachu.spaceiteration1.logging.Logger;
+import com.kihachu.spaceiteration1.metrics.Counter;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
+import javafx.scene.shape.VertexFormat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A planet surface whose detail follows the viewer. The sphere is a cube whose six faces are quadtrees of
+ * {@link TriangleMesh} patches, each a grid of {@value #SEGMENTS} by {@value #SEGMENTS} quads pushed out onto the
+ * sphere. On each {@link #update}, the patches are refined largest and closest first. A patch is split into four
+ * while it is nearer than {@value #SPLIT_DISTANCE} patch sizes, and is kept split until it is farther than
+ * {@value #MERGE_DISTANCE}. Patches beyond the horizon are never split. Refinement stops when the triangle
+ * budget is reached. So the planet costs a few thousand triangles from afar, yet stays smooth during a close fly-by.
+ * The geometry of new patches is built on worker threads, and a patch is only replaced by its children once all four
+ * are ready. Patches that have not been needed for a while are dropped again. With a {@link PlanetTexture}, every
+ * patch starts with the base image of the texture and switches to its own page once that has been streamed in.
+ */
+public class CubeSpherePlanet {
+    /**
+     * The number of quads along each edge of a patch.
+     */
+    public static final int SEGMENTS = 16;
+
+    /**
+     * The deepest level of the quadtrees. A patch at this level spans 1/16384 of a cube face.
+     */
+    public static final int MAX_LEVEL = 14;
+
+    /**
+     * The distance, in patch sizes, within which a patch is split.
+     */
+    public static final double SPLIT_DISTANCE = 2.5;
+
+    /**
+     * The distance, in patch sizes, beyond which a split patch is merged again.
+     */
+    public static final double MERGE_DISTANCE = 3.5;
+
+    private static final Logger LOG = Log.logger("planet");
+    private static final int PATCH_TRIANGLES = PatchGeometry.triangles(SEGMENTS);
+    private static final int KEEP_UPDATES = 120;
+    private static final Counter PATCHES_BUILT = Metrics.counter("planet.patches.built");
+    private static final AtomicInteger TRIANGLES = new AtomicInteger();
+    private static final AtomicInteger PENDING = new AtomicInteger();
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+                Thread thread = new Thread(runnable, "planet-mesh");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    static {
+        Metrics.gauge("planet.triangles", TRIANGLES::get);
+        Metrics.gauge("planet.patches.pending", PENDING::get);
+    }
+
+    private final Group root = new Group();
+    private final double radius;
+    private final PhongMaterial material;
+    private final PlanetTexture texture;
+    private final int triangleBudget;
+    private final Patch[] faces = new Patch[6];
+    private final PriorityQueue<Patch> queue = new PriorityQueue<>((a, b) -> Double.compare(b.priority, a.priority));
+    private List<Node> shown = new ArrayList<>();
+    private List<Node> next = new ArrayList<>();
+    private long updates;
+    private int triangles;
+
+    /**
+     * Constructs a CubeSpherePlanet. The six coarsest patches are built immediately.
+     *
+     * @param radius the radius of the planet.
+     * @param material the material of the surface; its diffuse map is set to the base image of the texture.
+     * @param texture the texture of the surface, or null for a plain material.
+     * @param triangleBudget the maximum number of triangles shown at once; at least the six coarsest patches are.
+     */
+    public CubeSpherePlanet(double radius, PhongMaterial material, PlanetTexture texture, int triangleBudget) {
+        this.radius = radius;
+        this.material = material;
+        this.texture = texture;
+        this.triangleBudget = triangleBudget;
+        for (int face = 0; face < 6; face++) {
+            faces[face] = new Patch(face, -1, -1, 2, 0);
+            faces[face].show(PatchGeometry.build(face, -1, -1, 2, radius, SEGMENTS));
+            shown.add(faces[face].view);
+        }
+        root.getChildren().setAll(shown);
+        triangles = 6 * PATCH_TRIANGLES;
+        TRIANGLES.addAndGet(triangles);
+    }
+
+    /**
+     * Returns the group holding the patches, centered on the planet.
+     *
+     * @return the root group.
+     */
+    public Group getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the number of triangles currently shown.
+     *
+     * @return the number of triangles.
+     */
+    public int getTriangleCount() {
+        return triangles;
+    }
+
+    /**
+     * Refines and merges the patches for a viewer. Must be called on the FX thread.
+     *
+     * @param x the X coordinate of the viewer relative to the planet center.
+     * @param y the Y coordinate of the viewer relative to the planet center.
+     * @param z the Z coordinate of the viewer relative to the planet center.
+     */
+    public void update(double x, double y, double z) {
+        updates++;
+        if (texture != null && material.getDiffuseMap() == null) {
+            material.setDiffuseMap(texture.getBaseImage());
+        }
+        double viewDistance = Math.sqrt(x * x + y * y + z * z);
+        // The angle between the viewer and the horizon, seen from the planet center
+        double horizon = viewDistance > radius ? Math.acos(radius / viewDistance) : Math.PI;
+        int count = 6 * PATCH_TRIANGLES;
+        next.clear();
+        for (Patch face : faces) {
+            face.measure(x, y, z);
+            queue.add(face);
+        }
+        while (!queue.isEmpty()) {
+            Patch patch = queue.poll();
+            patch.lastUsed = updates;
+            if (count + 3 * PATCH_TRIANGLES <= triangleBudget && patch.wantsSplit(x, y, z, viewDistance, horizon)
+                    && patch.childrenReady()) {
+                count += 3 * PATCH_TRIANGLES;
+                for (Patch child : patch.children) {
+                    child.measure(x, y, z);
+                    queue.add(child);
+                }
+            } else {
+                patch.applyPage();
+                next.add(patch.view);
+            }
+        }
+        for (Patch face : faces) {
+            face.prune();
+        }
+        if (!next.equals(shown)) {
+            root.getChildren().setAll(next);
+            List<Node> previous = shown;
+            shown = next;
+            next = previous;
+        }
+        TRIANGLES.addAndGet(count - triangles);
+        triangles = count;
+    }
+
+    /**
+     * A square of a cube face, shown as one mesh or replaced by its four children.
+     */
+    private final class Patch {
+        private final int face;
+        private final double u0;
+        private final double v0;
+        private final double size;
+        private final int level;
+        private final double centerX;
+        private final double centerY;
+        private final double centerZ;
+        private Patch[] children;
+        private CompletableFuture<PatchGeometry> geometry;
+        private MeshView view;
+        private float[] texCoords;
+        private CompletableFuture<PlanetTexture.Page> page;
+        private long lastUsed;
+        private double distance;
+        private double priority;
+
+        private Patch(int face, double u0, double v0, double size, int level) {
+            this.face = face;
+            this.u0 = u0;
+            this.v0 = v0;
+            this.size = size;
+            this.level = level;
+            double[] dir = new double[3];
+            PatchGeometry.direction(face, u0 + size / 2, v0 + size / 2, dir);
+            this.centerX = dir[0] * radius;
+            this.centerY = dir[1] * radius;
+            this.centerZ = dir[2] * radius;
+        }
+
+        /**
+         * Measures the distance from the viewer, and ranks larger and closer patches first.
+         */
+        private void measure(double x, double y, double z) {
+            double dx = centerX - x;
+            double dy = centerY - y;
+            double dz = centerZ - z;
+            distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            priority = size * radius / Math.max(distance, 1e-9);
+        }
+
+        private boolean wantsSplit(double x, double y, double z, double viewDistance, double horizon) {
+            if (level == MAX_LEVEL) {
+                return false;
+            }
+            double threshold = children != null ? MERGE_DISTANCE : SPLIT_DISTANCE;
+            if (distance > threshold * size * radius) {
+                return false;
+            }
+            if (viewDistance > 0) {
+                double cos = (centerX * x + centerY * y + centerZ * z) / (radius * viewDistance);
+                // From its center to a corner, a patch spans at most half its diagonal, 0.71 radians per unit of face
+                // coordinates
+                return Math.acos(Math.max(-1, Math.min(1, cos))) <= horizon + 0.71 * size;
+            }
+            return true;
+        }
+
+        /**
+         * Creates the children if necessary and checks whether all of their meshes are ready.
+         */
+        private boolean childrenReady() {
+            if (children == null) {
+                double half = size / 2;
+                children = new Patch[]{
+                        new Patch(face, u0, v0, half, level + 1),
+                        new Patch(face, u0 + half, v0, half, level + 1),
+                        new Patch(face, u0, v0 + half, half, level + 1),
+                        new Patch(face, u0 + half, v0 + half, half, level + 1),
+                };
+                for (Patch child : children) {
+                    child.build();
+                }
+            }
+            boolean ready = true;
+            for (Patch child : children) {
+                // Children still being built count as used, so they are not pruned before they are shown
+                child.lastUsed = updates;
+                ready &= child.ready();
+            }
+            return ready;
+        }
+
+        private void build() {
+            PENDING.incrementAndGet();
+            geometry = CompletableFuture.supplyAsync(() -> PatchGeometry.build(face, u0, v0, size, radius, SEGMENTS), WORKERS);
+            geometry.whenComplete((result, error) -> PENDING.decrementAndGet());
+        }
+
+        /**
+         * Shows the mesh once its geometry is ready, and starts building the geometry again if it failed.
+         */
+        private boolean ready() {
+            if (view == null && geometry != null && geometry.isDone()) {
+                try {
+                    show(geometry.join());
+                    geometry = null;
+                } catch (CompletionException e) {
+                    LOG.warn("Could not build planet patch at level {}: {}", level, e.getCause().getMessage());
+                    build();
+                }
+            }
+            return view != null;
+        }
+
+        /**
+         * Creates the view of the patch and requests its page of the texture.
+         */
+        private void show(PatchGeometry geometry) {
+            TriangleMesh mesh = new TriangleMesh(VertexFormat.POINT_NORMAL_TEXCOORD);
+            mesh.getPoints().setAll(geometry.points);
+            mesh.getNormals().setAll(geometry.normals);
+            mesh.getTexCoords().setAll(geometry.texCoords);
+            mesh.getFaces().setAll(geometry.faces);
+            view = new MeshView(mesh);
+            view.setMaterial(material);
+            view.setTranslateX(geometry.centerX);
+            view.setTranslateY(geometry.centerY);
+            view.setTranslateZ(geometry.centerZ);
+            PATCHES_BUILT.increment();
+            if (texture != null) {
+                texCoords = geometry.texCoords;
+                page = texture.requestPage(texCoords);
+            }
+        }
+
+        /**
+         * Switches the patch to its page of the texture once it has been streamed in.
+         */
+        private void applyPage() {
+            if (page == null || !page.isDone()) {
+                return;
+            }
+            PlanetTexture.Page result = page.isCompletedExceptionally() ? null : page.join();
+            if (result != null) {
+                TriangleMesh mesh = (TriangleMesh) view.getMesh();
+                mesh.getTexCoords().setAll(result.remap(texCoords));
+                PhongMaterial paged = new PhongMaterial(material.getDiffuseColor());
+                paged.setDiffuseMap(result.image());
+                view.setMaterial(paged);
+            }
+            page = null;
+            texCoords = null;
+        }
+
+        /**
+         * Drops the children of this patch if they have not been needed for a while.
+         */
+        private void prune() {
+            if (children == null) {
+                return;
+            }
+            boolean used = false;
+            for (Patch child : children) {
+                used |= updates - child.lastUsed < KEEP_UPDATES;
+            }
+            if (used) {
+                for (Patch child : children) {
+                    child.prune();
+                }
+            } else {
+                for (Patch child : children) {
+                    child.discard();
+                }
+                children = null;
+            }
+        }
+
+        private void discard() {
+            if (geometry != null) {
+                geometry.cancel(false);
+            }
+            if (page != null) {
+                page.cancel(false);
+            }
+            if (children != null) {
+                for (Patch child : children) {
+                    child.discard();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import com.kihachu.spaceiteration1.metrics.Counter;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import javafx.scene.Group;
+import javafx.scene.LightBase;
+import javafx.scene.Node;
+import javafx.scene.PointLight;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the number of lights affecting each part of the scene bounded. Global lights, such as the camera headlight,
+ * light everything. Local point lights have a range and are ranked per region: per occupied cell of a
+ * {@link SceneGrid}, and per node registered with {@link #addRegion} for objects outside the grid. On each
+ * {@link #update}, every region picks the lights that reach it, up to the configured maximum, nearest first. Each
+ * light's {@link LightBase#getScope() scope} is then restricted to the groups of the regions that picked it, so it
+ * only applies to their nodes. A light no region picked is switched off, because a light with an empty scope would
+ * light the whole scene. Scopes are only rewritten when they change. So the lighting cost per node stays bounded
+ * however many lights and asteroids there are.
+ */
+public class LightManager {
+    private static final Counter SCOPE_CHANGES = Metrics.counter("lights.scope.changes");
+
+    private final Group root = new Group();
+    private final SceneGrid grid;
+    private final int maxLightsPerRegion;
+    private final List<LightBase> globalLights = new ArrayList<>();
+    private final Map<PointLight, Local> localLights = new LinkedHashMap<>();
+    private final List<Node> regions = new ArrayList<>();
+
+    /*
+     * Scratch state of an update: the lights picked by the current region, nearest first.
+     */
+    private final Local[] picked;
+    private final double[] pickedDistances;
+    private int activeCount;
+
+    /**
+     * Constructs a LightManager.
+     *
+     * @param grid the scene grid whose cells are lit as regions.
+     * @param maxLightsPerRegion the maximum number of local lights applied to one region.
+     */
+    public LightManager(SceneGrid grid, int maxLightsPerRegion) {
+        this.grid = grid;
+        this.maxLightsPerRegion = maxLightsPerRegion;
+        this.picked = new Local[maxLightsPerRegion];
+        this.pickedDistances = new double[maxLightsPerRegion];
+        Metrics.gauge("lights.registered", () -> globalLights.size() + localLights.size());
+        Metrics.gauge("lights.active", () -> globalLights.size() + activeCount);
+    }
+
+    /**
+     * Returns the group holding the managed lights, which is added to the 3D scene.
+     *
+     * @return the root group.
+     */
+    public Group getRoot() {
+        return root;
+    }
+
+    /**
+     * Registers a light that applies to the whole scene. The light stays where the caller placed it in the scene
+     * graph, or is added to the root of the manager if it has no parent.
+     *
+     * @param light the light.
+     */
+    public void addGlobal(LightBase light) {
+        globalLights.add(light);
+        if (light.getParent() == null) {
+            root.getChildren().add(light);
+        }
+    }
+
+    /**
+     * Registers a point light that only applies to the regions within its range. The light is added to the root of
+     * the manager and positioned by its translate in universe coordinates. It stays off until the next update.
+     *
+     * @param light the light.
+     * @param range the distance beyond which the light does not reach.
+     */
+    public void addLocal(PointLight light, double range) {
+        light.setLightOn(false);
+        localLights.put(light, new Local(light, range));
+        root.getChildren().add(light);
+    }
+
+    /**
+     * Unregisters a local light and removes it from the scene.
+     *
+     * @param light the light.
+     */
+    public void removeLocal(PointLight light) {
+        if (localLights.remove(light) != null) {
+            light.getScope().clear();
+            root.getChildren().remove(light);
+        }
+    }
+
+    /**
+     * Registers a node outside the scene grid as a region of its own, lit by the local lights nearest to its
+     * translate.
+     *
+     * @param node the node.
+     */
+    public void addRegion(Node node) {
+        regions.add(node);
+    }
+
+    /**
+     * Picks the lights of every region and updates the scopes of the local lights. Called once per frame.
+     */
+    public void update() {
+        if (localLights.isEmpty()) {
+            activeCount = 0;
+            return;
+        }
+        for (Local local : localLights.values()) {
+            local.scope.clear();
+        }
+        for (SceneGrid.Cell cell : grid.getCells()) {
+            pick(cell.getGroup(), cell, cell.getCenterX(), cell.getCenterY(), cell.getCenterZ());
+        }
+        for (Node region : regions) {
+            pick(region, null, region.getTranslateX(), region.getTranslateY(), region.getTranslateZ());
+        }
+        activeCount = 0;
+        for (Local local : localLights.values()) {
+            apply(local);
+        }
+    }
+
+    /**
+     * Picks the nearest local lights that reach a region and adds the region to their scopes.
+     *
+     * @param target the node the picked lights apply to.
+     * @param cell the cell of the region, or null for a single node.
+     * @param x the X coordinate of the region center.
+     * @param y the Y coordinate of the region center.
+     * @param z the Z coordinate of the region center.
+     */
+    private void pick(Node target, SceneGrid.Cell cell, double x, double y, double z) {
+        int count = 0;
+        for (Local local : localLights.values()) {
+            PointLight light = local.light;
+            double lx = light.getTranslateX();
+            double ly = light.getTranslateY();
+            double lz = light.getTranslateZ();
+            double reach = cell != null ? cell.distanceSquared(lx, ly, lz) : distanceSquared(lx, ly, lz, x, y, z);
+            if (reach > local.range * local.range) {
+                continue;
+            }
+            double distance = distanceSquared(lx, ly, lz, x, y, z);
+            if (count == maxLightsPerRegion && distance >= pickedDistances[count - 1]) {
+                continue;
+            }
+            // Insert into the short list, which is sorted nearest first
+            int i = count < maxLightsPerRegion ? count++ : count - 1;
+            while (i > 0 && pickedDistances[i - 1] > distance) {
+                picked[i] = picked[i - 1];
+                pickedDistances[i] = pickedDistances[i - 1];
+                i--;
+            }
+            picked[i] = local;
+            pickedDistances[i] = distance;
+        }
+        for (int i = 0; i < count; i++) {
+            picked[i].scope.add(target);
+            picked[i] = null;
+        }
+    }
+
+    private void apply(Local local) {
+        PointLight light = local.light;
+        if (local.scope.isEmpty()) {
+            light.setLightOn(false);
+            return;
+        }
+        activeCount++;
+        if (!local.scope.equals(local.applied)) {
+            local.applied.clear();
+            local.applied.addAll(local.scope);
+            light.getScope().setAll(local.scope);
+            SCOPE_CHANGES.increment();
+        }
+        light.setLightOn(true);
+    }
+
+    private static double distanceSquared(double ax, double ay, double az, double bx, double by, double bz) {
+        double dx = ax - bx;
+        double dy = ay - by;
+        double dz = az - bz;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * A local light, the regions it was picked by in the current update and the scope last applied to it.
+     */
+    private static final class Local {
+        private final PointLight light;
+        private final double range;
+        private final Set<Node> scope = new HashSet<>();
+        private final Set<Node> applied = new HashSet<>();
+
+        private Local(PointLight light, double range) {
+            this.light = light;
+            this.range = range;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.PhongMaterial;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out one shared {@link PhongMaterial} per distinct appearance, so that every node that looks the same
+ * references the same material and the renderer uploads its textures and shader state once.
+ * Shared materials must not be modified; nodes that need their own appearance create their own material.
+ */
+public final class MaterialRegistry {
+    private static final Map<Key, PhongMaterial> materials = new ConcurrentHashMap<>();
+
+    static {
+        Metrics.gauge("gpu.materials", MaterialRegistry::size);
+    }
+
+    private MaterialRegistry() {
+    }
+
+    /**
+     * The properties that make up the appearance of a material. Images are compared by identity.
+     */
+    private record Key(Color diffuse, Color specular, double specularPower,
+                       Image diffuseMap, Image specularMap, Image bumpMap, Image selfIlluminationMap) {
+        Key(PhongMaterial material) {
+            this(material.getDiffuseColor(), material.getSpecularColor(), material.getSpecularPower(),
+                    material.getDiffuseMap(), material.getSpecularMap(), material.getBumpMap(), material.getSelfIlluminationMap());
+        }
+    }
+
+    /**
+     * Returns the shared material with the specified diffuse color.
+     *
+     * @param color the diffuse color.
+     * @return the shared material.
+     */
+    public static PhongMaterial color(Color color) {
+        return materials.computeIfAbsent(new Key(color, null, 32, null, null, null, null), key -> new PhongMaterial(color));
+    }
+
+    /**
+     * Returns the shared material that looks the same as the specified material, registering it if it is the first of its kind.
+     *
+     * @param material the material to share.
+     * @return the shared material, which is the specified material if none with the same appearance was registered before.
+     */
+    public static PhongMaterial share(PhongMaterial material) {
+        return materials.computeIfAbsent(new Key(material), key -> material);
+    }
+
+    /**
+     * Returns the number of distinct materials handed out.
+     *
+     * @return the number of materials.
+     */
+    public static long size() {
+        return materials.size();
+    }
+}
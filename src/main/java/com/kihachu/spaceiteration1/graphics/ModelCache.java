@@ -0,0 +1,157 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import com.interactivemesh.jfx.importer.tds.TdsModelImporter;
+import com.kihachu.spaceiteration1.logging.Log;
+import com.kihachu.spaceiteration1.logging.Logger;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import com.kihachu.spaceiteration1.metrics.jfr.ModelImportEvent;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.Material;
+import javafx.scene.paint.PhongMaterial;
+import javafx.scene.shape.Mesh;
+import javafx.scene.shape.MeshView;
+import javafx.scene.transform.Transform;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Imports each 3D model file once and builds the nodes of every further instance from the imported template.
+ * The instances get their own {@link MeshView} and {@link Group} nodes, since a node can only have one parent,
+ * but share the template's {@link Mesh} objects and materials, so the vertex buffers and textures of a model
+ * exist once no matter how many instances are in the scene. Materials are shared through the {@link MaterialRegistry},
+ * so identical materials of different models are merged as well.
+ */
+public final class ModelCache {
+    private static final Logger LOG = Log.logger("assets");
+
+    private static final Map<String, Node[]> templates = new ConcurrentHashMap<>();
+    private static final Map<Mesh, Boolean> meshes = new ConcurrentHashMap<>();
+
+    static {
+        Metrics.gauge("gpu.meshes", ModelCache::meshCount);
+    }
+
+    private ModelCache() {
+    }
+
+    /**
+     * Returns new nodes for an instance of the specified model, importing the model on first use.
+     *
+     * @param modelPath the resource path of the 3DS model.
+     * @return the nodes of the instance, or an empty array if the model cannot be found.
+     */
+    public static Node[] instantiate(String modelPath) {
+        Node[] template = templates.computeIfAbsent(modelPath, ModelCache::load);
+        Node[] instance = new Node[template.length];
+        for (int i = 0; i < template.length; i++) {
+            instance[i] = copy(template[i]);
+        }
+        return instance;
+    }
+
+    /**
+     * Imports a model and registers its meshes and materials.
+     *
+     * @param modelPath the resource path of the 3DS model.
+     * @return the imported nodes, or an empty array if the model cannot be found.
+     */
+    private static Node[] load(String modelPath) {
+        URL modelUrl = ModelCache.class.getResource(modelPath);
+        if (modelUrl == null) {
+            LOG.error("Model not found at path: {}", modelPath);
+            return new Node[0];
+        }
+        ModelImportEvent importEvent = new ModelImportEvent();
+        importEvent.begin();
+        long start = System.nanoTime();
+        TdsModelImporter importer = new TdsModelImporter();
+        importer.read(modelUrl);
+        Node[] nodes = importer.getImport();
+        importer.close();
+        Metrics.ASSET_LOAD.recordSince(start);
+        importEvent.end();
+        if (importEvent.shouldCommit()) {
+            importEvent.modelPath = modelPath;
+            importEvent.nodeCount = nodes.length;
+            importEvent.commit();
+        }
+        Map<Material, Material> shared = new IdentityHashMap<>();
+        for (Node node : nodes) {
+            register(node, shared);
+        }
+        return nodes;
+    }
+
+    /**
+     * Registers the meshes of a template node and replaces its materials with the shared ones.
+     *
+     * @param node the template node.
+     * @param shared the shared material of each material of the model seen so far.
+     */
+    private static void register(Node node, Map<Material, Material> shared) {
+        if (node instanceof MeshView view) {
+            meshes.put(view.getMesh(), Boolean.TRUE);
+            if (view.getMaterial() instanceof PhongMaterial material) {
+                view.setMaterial(shared.computeIfAbsent(material, m -> MaterialRegistry.share(material)));
+            }
+        } else if (node instanceof Group group) {
+            for (Node child : group.getChildren()) {
+                register(child, shared);
+            }
+        }
+    }
+
+    /**
+     * Copies a template node, sharing its mesh and material.
+     *
+     * @param node the template node.
+     * @return the copy.
+     */
+    private static Node copy(Node node) {
+        Node copy;
+        if (node instanceof MeshView view) {
+            MeshView meshView = new MeshView(view.getMesh());
+            meshView.setMaterial(view.getMaterial());
+            meshView.setDrawMode(view.getDrawMode());
+            meshView.setCullFace(view.getCullFace());
+            copy = meshView;
+        } else if (node instanceof Group group) {
+            List<Node> children = new ArrayList<>(group.getChildren().size());
+            for (Node child : group.getChildren()) {
+                children.add(copy(child));
+            }
+            copy = new Group(children);
+        } else {
+            LOG.warn("Cannot share {} of an imported model", node.getClass().getSimpleName());
+            copy = new Group();
+        }
+        copy.setId(node.getId());
+        for (Transform transform : node.getTransforms()) {
+            copy.getTransforms().add(transform.clone());
+        }
+        copy.setTranslateX(node.getTranslateX());
+        copy.setTranslateY(node.getTranslateY());
+        copy.setTranslateZ(node.getTranslateZ());
+        copy.setRotationAxis(node.getRotationAxis());
+        copy.setRotate(node.getRotate());
+        copy.setScaleX(node.getScaleX());
+        copy.setScaleY(node.getScaleY());
+        copy.setScaleZ(node.getScaleZ());
+        return copy;
+    }
+
+    /**
+     * Returns the number of distinct meshes of the imported models.
+     *
+     * @return the number of meshes.
+     */
+    public static long meshCount() {
+        return meshes.size();
+    }
+}
@@ -0,0 +1,201 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hides the objects of a {@link SceneGrid} that large spheres, such as planets, hide from the camera. Each occluder
+ * casts a cone from the eye, and whatever lies inside the cone and behind the silhouette of the sphere cannot be
+ * seen. The test is analytic and batched per cell: the bounding sphere of each occupied cell is tested first, a cell
+ * inside a cone is hidden as a whole, and only the objects of cells that straddle the edge of a cone are tested one
+ * by one. An object is only hidden if a single occluder hides all of it. Hidden objects cost neither rendering nor
+ * picking; they are shown again as soon as they come into view.
+ */
+public class OcclusionCuller {
+    private static final int VISIBLE = 0;
+    private static final int PARTLY_OCCLUDED = 1;
+    private static final int OCCLUDED = 2;
+
+    private final SceneGrid grid;
+    private final List<Occluder> occluders = new ArrayList<>();
+    private Set<Node> hiddenNodes = new HashSet<>();
+    private Set<Node> stillHidden = new HashSet<>();
+    private int occludedCells;
+    private int occludedObjects;
+
+    /**
+     * Constructs an OcclusionCuller.
+     *
+     * @param grid the scene grid whose cells and objects are culled.
+     */
+    public OcclusionCuller(SceneGrid grid) {
+        this.grid = grid;
+        Metrics.gauge("cull.occluded.cells", () -> occludedCells);
+        Metrics.gauge("cull.occluded.objects", () -> occludedObjects);
+    }
+
+    /**
+     * Registers a sphere that hides what is behind it.
+     *
+     * @param node the node of the sphere, centered on its translate in universe coordinates.
+     * @param radius the radius of the sphere.
+     */
+    public void addOccluder(Node node, double radius) {
+        occluders.add(new Occluder(node, radius));
+    }
+
+    /**
+     * Returns the number of cells hidden by the last update.
+     *
+     * @return the number of cells.
+     */
+    public int getOccludedCells() {
+        return occludedCells;
+    }
+
+    /**
+     * Returns the number of objects hidden by the last update, including those in hidden cells.
+     *
+     * @return the number of objects.
+     */
+    public int getOccludedObjects() {
+        return occludedObjects;
+    }
+
+    /**
+     * Hides the cells and objects occluded from an eye position and shows those no longer occluded. Called once per
+     * frame, after the occluders and the camera have moved.
+     *
+     * @param eyeX the X coordinate of the eye in universe coordinates.
+     * @param eyeY the Y coordinate of the eye in universe coordinates.
+     * @param eyeZ the Z coordinate of the eye in universe coordinates.
+     */
+    public void update(double eyeX, double eyeY, double eyeZ) {
+        long start = System.nanoTime();
+        boolean anyCone = false;
+        for (Occluder occluder : occluders) {
+            anyCone |= occluder.castFrom(eyeX, eyeY, eyeZ);
+        }
+        occludedCells = 0;
+        occludedObjects = 0;
+        double cellRadius = grid.getCellSize() * Math.sqrt(3) / 2;
+        for (SceneGrid.Cell cell : grid.getCells()) {
+            int state = anyCone ? classify(cell.getCenterX(), cell.getCenterY(), cell.getCenterZ(), cellRadius,
+                    eyeX, eyeY, eyeZ) : VISIBLE;
+            setHidden(cell.getGroup(), state == OCCLUDED);
+            if (state == OCCLUDED) {
+                occludedCells++;
+                occludedObjects += cell.getCount();
+            } else if (state == PARTLY_OCCLUDED) {
+                for (Node node : cell.getGroup().getChildren()) {
+                    Bounds bounds = node.getBoundsInParent();
+                    double radius = Math.sqrt(bounds.getWidth() * bounds.getWidth()
+                            + bounds.getHeight() * bounds.getHeight() + bounds.getDepth() * bounds.getDepth()) / 2;
+                    if (classify(bounds.getCenterX(), bounds.getCenterY(), bounds.getCenterZ(), radius,
+                            eyeX, eyeY, eyeZ) == OCCLUDED) {
+                        setHidden(node, true);
+                        stillHidden.add(node);
+                        occludedObjects++;
+                    }
+                }
+            }
+        }
+        // Show the objects hidden by the previous update that are no longer occluded
+        for (Node node : hiddenNodes) {
+            if (!stillHidden.contains(node)) {
+                setHidden(node, false);
+            }
+        }
+        Set<Node> previous = hiddenNodes;
+        hiddenNodes = stillHidden;
+        stillHidden = previous;
+        stillHidden.clear();
+        Metrics.CULLING.recordSince(start);
+    }
+
+    /**
+     * Tests a bounding sphere against the cones of all occluders.
+     *
+     * @return whether the sphere is visible, partly occluded or fully occluded by a single occluder.
+     */
+    private int classify(double x, double y, double z, double radius, double eyeX, double eyeY, double eyeZ) {
+        double dx = x - eyeX;
+        double dy = y - eyeY;
+        double dz = z - eyeZ;
+        double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (distance <= radius) {
+            return VISIBLE;
+        }
+        // The angle the sphere spans around its center, seen from the eye
+        double spread = Math.asin(radius / distance);
+        int state = VISIBLE;
+        for (Occluder occluder : occluders) {
+            if (!occluder.casting) {
+                continue;
+            }
+            double cos = (dx * occluder.axisX + dy * occluder.axisY + dz * occluder.axisZ) / distance;
+            double angle = Math.acos(Math.max(-1, Math.min(1, cos)));
+            if (angle - spread >= occluder.halfAngle || distance + radius <= occluder.silhouetteDistance) {
+                continue;
+            }
+            if (angle + spread <= occluder.halfAngle && distance - radius >= occluder.silhouetteDistance) {
+                return OCCLUDED;
+            }
+            state = PARTLY_OCCLUDED;
+        }
+        return state;
+    }
+
+    private static void setHidden(Node node, boolean hidden) {
+        if (node.isVisible() == hidden) {
+            node.setVisible(!hidden);
+        }
+    }
+
+    /**
+     * A sphere and the cone it casts from the current eye position.
+     */
+    private static final class Occluder {
+        private final Node node;
+        private final double radius;
+        private boolean casting;
+        private double axisX;
+        private double axisY;
+        private double axisZ;
+        private double halfAngle;
+        private double silhouetteDistance;
+
+        private Occluder(Node node, double radius) {
+            this.node = node;
+            this.radius = radius;
+        }
+
+        /**
+         * Computes the cone from an eye position. Everything inside the cone that is farther from the eye than the
+         * silhouette of the sphere is behind it.
+         *
+         * @return false if the eye is inside the sphere, so that it casts no cone.
+         */
+        private boolean castFrom(double eyeX, double eyeY, double eyeZ) {
+            double dx = node.getTranslateX() - eyeX;
+            double dy = node.getTranslateY() - eyeY;
+            double dz = node.getTranslateZ() - eyeZ;
+            double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            casting = distance > radius;
+            if (casting) {
+                axisX = dx / distance;
+                axisY = dy / distance;
+                axisZ = dz / distance;
+                halfAngle = Math.asin(radius / distance);
+                silhouetteDistance = Math.sqrt(distance * distance - radius * radius);
+            }
+            return casting;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.kihachu.spaceiteration1.graphics;
+
+/**
+ * The mesh arrays of one patch of a cube sphere, built off the FX thread. A patch is a square of one cube face,
+ * subdivided into a grid of {@code segments} by {@code segments} quads whose vertices are pushed out onto the sphere.
+ * Vertices are relative to the patch center, so they keep their float precision however large the planet is.
+ * A skirt hangs from the four edges towards the planet center, which hides the cracks between neighbouring patches
+ * of different levels. Texture coordinates use the same mapping as {@link javafx.scene.shape.Sphere}, so textures
+ * made for a sphere fit.
+ */
+final class PatchGeometry {
+    /*
+     * The outward normal and the two in-plane axes of each cube face.
+     */
+    private static final double[][] FACES = {
+            {1, 0, 0, 0, 0, -1, 0, 1, 0},
+            {-1, 0, 0, 0, 0, 1, 0, 1, 0},
+            {0, 1, 0, 1, 0, 0, 0, 0, -1},
+            {0, -1, 0, 1, 0, 0, 0, 0, 1},
+            {0, 0, 1, 1, 0, 0, 0, 1, 0},
+            {0, 0, -1, -1, 0, 0, 0, 1, 0},
+    };
+
+    /**
+     * The depth of the skirt as a fraction of the patch size.
+     */
+    private static final double SKIRT_DEPTH = 0.05;
+
+    final double centerX;
+    final double centerY;
+    final double centerZ;
+    final float[] points;
+    final float[] normals;
+    final float[] texCoords;
+    final int[] faces;
+
+    private PatchGeometry(double centerX, double centerY, double centerZ,
+                          float[] points, float[] normals, float[] texCoords, int[] faces) {
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.centerZ = centerZ;
+        this.points = points;
+        this.normals = normals;
+        this.texCoords = texCoords;
+        this.faces = faces;
+    }
+
+    /**
+     * Returns the number of triangles of a patch, including its skirt.
+     *
+     * @param segments the number of quads along each edge.
+     * @return the number of triangles.
+     */
+    static int triangles(int segments) {
+        return 2 * segments * segments + 8 * segments;
+    }
+
+    /**
+     * Computes the direction from the planet center through a point of a cube face.
+     *
+     * @param face the cube face, 0 to 5.
+     * @param u the coordinate along the first axis of the face, in [-1, 1].
+     * @param v the coordinate along the second axis of the face, in [-1, 1].
+     * @param out the array receiving the unit direction.
+     */
+    static void direction(int face, double u, double v, double[] out) {
+        double[] f = FACES[face];
+        double x = f[0] + u * f[3] + v * f[6];
+        double y = f[1] + u * f[4] + v * f[7];
+        double z = f[2] + u * f[5] + v * f[8];
+        double length = Math.sqrt(x * x + y * y + z * z);
+        out[0] = x / length;
+        out[1] = y / length;
+        out[2] = z / length;
+    }
+
+    /**
+     * Builds the geometry of a patch.
+     *
+     * @param face the cube face, 0 to 5.
+     * @param u0 the lowest coordinate of the patch along the first axis of the face.
+     * @param v0 the lowest coordinate of the patch along the second axis of the face.
+     * @param size the edge length of the patch in face coordinates.
+     * @param radius the radius of the planet.
+     * @param segments the number of quads along each edge.
+     * @return the geometry.
+     */
+    static PatchGeometry build(int face, double u0, double v0, double size, double radius, int segments) {
+        int side = segments + 1;
+        int surfaceVertices = side * side;
+        int skirtVertices = 4 * side;
+        int vertexCount = surfaceVertices + skirtVertices;
+        double[] dir = new double[3];
+        direction(face, u0 + size / 2, v0 + size / 2, dir);
+        double cx = dir[0] * radius;
+        double cy = dir[1] * radius;
+        double cz = dir[2] * radius;
+
+        float[] points = new float[vertexCount * 3];
+        float[] normals = new float[vertexCount * 3];
+        float[] texCoords = new float[vertexCount * 2];
+        double step = size / segments;
+        for (int j = 0; j < side; j++) {
+            for (int i = 0; i < side; i++) {
+                direction(face, u0 + i * step, v0 + j * step, dir);
+                vertex(j * side + i, dir, radius, cx, cy, cz, points, normals, texCoords);
+            }
+        }
+        double skirtRadius = radius * (1 - SKIRT_DEPTH * size);
+        int[] edges = edgeVertices(segments);
+        for (int k = 0; k < edges.length; k++) {
+            int surface = edges[k];
+            dir[0] = normals[surface * 3];
+            dir[1] = normals[surface * 3 + 1];
+            dir[2] = normals[surface * 3 + 2];
+            vertex(surfaceVertices + k, dir, skirtRadius, cx, cy, cz, points, normals, texCoords);
+        }
+        fixSeam(texCoords);
+
+        int[] faces = new int[triangles(segments) * 9];
+        int f = 0;
+        for (int j = 0; j < segments; j++) {
+            for (int i = 0; i < segments; i++) {
+                int a = j * side + i;
+                int b = a + 1;
+                int c = a + side;
+                int d = c + 1;
+                // The surface faces away from the planet center
+                f = quad(faces, f, points, a, b, d, c,
+                        points[a * 3] + cx, points[a * 3 + 1] + cy, points[a * 3 + 2] + cz);
+            }
+        }
+        for (int e = 0; e < 4; e++) {
+            for (int k = 0; k < segments; k++) {
+                int top0 = edges[e * side + k];
+                int top1 = edges[e * side + k + 1];
+                int bottom0 = surfaceVertices + e * side + k;
+                int bottom1 = bottom0 + 1;
+                // The skirt faces away from the patch center, towards the neighbouring patch
+                f = quad(faces, f, points, top0, top1, bottom1, bottom0,
+                        points[top0 * 3], points[top0 * 3 + 1], points[top0 * 3 + 2]);
+            }
+        }
+        return new PatchGeometry(cx, cy, cz, points, normals, texCoords, faces);
+    }
+
+    /**
+     * Lists the surface vertices along the four edges, each edge from one corner to the next.
+     */
+    private static int[] edgeVertices(int segments) {
+        int side = segments + 1;
+        int[] edges = new int[4 * side];
+        for (int k = 0; k < side; k++) {
+            edges[k] = k;
+            edges[side + k] = k * side + segments;
+            edges[2 * side + k] = segments * side + segments - k;
+            edges[3 * side + k] = (segments - k) * side;
+        }
+        return edges;
+    }
+
+    private static void vertex(int index, double[] dir, double radius, double cx, double cy, double cz,
+                               float[] points, float[] normals, float[] texCoords) {
+        points[index * 3] = (float) (dir[0] * radius - cx);
+        points[index * 3 + 1] = (float) (dir[1] * radius - cy);
+        points[index * 3 + 2] = (float) (dir[2] * radius - cz);
+        normals[index * 3] = (float) dir[0];
+        normals[index * 3 + 1] = (float) dir[1];
+        normals[index * 3 + 2] = (float) dir[2];
+        double angle = Math.atan2(dir[0], dir[2]);
+        if (angle < 0) {
+            angle += 2 * Math.PI;
+        }
+        texCoords[index * 2] = (float) (1 - angle / (2 * Math.PI));
+        texCoords[index * 2 + 1] = (float) (0.5 + 0.5 * dir[1]);
+    }
+
+    /**
+     * Shifts the texture coordinates of a patch that straddles the seam of the texture onto one side of it.
+     */
+    private static void fixSeam(float[] texCoords) {
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (int i = 0; i < texCoords.length; i += 2) {
+            min = Math.min(min, texCoords[i]);
+            max = Math.max(max, texCoords[i]);
+        }
+        if (max - min > 0.5f) {
+            for (int i = 0; i < texCoords.length; i += 2) {
+                if (texCoords[i] < 0.5f) {
+                    texCoords[i] += 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the two triangles of a quad, wound so that their front faces point along a reference direction.
+     * JavaFX draws the side of a triangle abc towards which (b - a) x (c - a) points.
+     */
+    private static int quad(int[] faces, int f, float[] points, int a, int b, int c, int d,
+                            double rx, double ry, double rz) {
+        if (facesAlong(points, a, b, c, rx, ry, rz)) {
+            f = triangle(faces, f, a, b, c);
+            return triangle(faces, f, a, c, d);
+        }
+        f = triangle(faces, f, a, c, b);
+        return triangle(faces, f, a, d, c);
+    }
+
+    private static boolean facesAlong(float[] points, int a, int b, int c, double rx, double ry, double rz) {
+        double abx = points[b * 3] - points[a * 3];
+        double aby = points[b * 3 + 1] - points[a * 3 + 1];
+        double abz = points[b * 3 + 2] - points[a * 3 + 2];
+        double acx = points[c * 3] - points[a * 3];
+        double acy = points[c * 3 + 1] - points[a * 3 + 1];
+        double acz = points[c * 3 + 2] - points[a * 3 + 2];
+        double nx = aby * acz - abz * acy;
+        double ny = abz * acx - abx * acz;
+        double nz = abx * acy - aby * acx;
+        return nx * rx + ny * ry + nz * rz >= 0;
+    }
+
+    private static int triangle(int[] faces, int f, int a, int b, int c) {
+        faces[f] = a;
+        faces[f + 1] = a;
+        faces[f + 2] = a;
+        faces[f + 3] = b;
+        faces[f + 4] = b;
+        faces[f + 5] = b;
+        faces[f + 6] = c;
+        faces[f + 7] = c;
+        faces[f + 8] = c;
+        return f + 9;
+    }
+}
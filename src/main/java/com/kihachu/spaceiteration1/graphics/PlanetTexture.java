@@ -0,0 +1,192 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import com.kihachu.spaceiteration1.Constants;
+import com.kihachu.spaceiteration1.logging.Log;
+import com.kihachu.spaceiteration1.logging.Logger;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The texture of a planet, streamed from a {@link TilePyramid} instead of loaded as one image. The whole planet is
+ * covered by a base image made of the coarsest level. Each patch of a {@link CubeSpherePlanet} can request a page: an
+ * image of just the part of the texture under the patch, taken from the finest level at which that part fits in one
+ * tile. So texture detail follows mesh detail, and only the tiles under nearby patches are read. Pyramids are kept in
+ * the directory named by {@value Constants#TEXTURE_DIR_PROPERTY}, and built from the texture resource at first use.
+ * Tiles are read and pages composed on background threads, through a {@link TileCache} shared by all planets.
+ */
+public class PlanetTexture {
+    private static final Logger LOG = Log.logger("texture");
+    private static final TileCache CACHE = new TileCache(Constants.TEXTURE_CACHE_TILES);
+    private static final ExecutorService STREAMERS = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "texture-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final CompletableFuture<TilePyramid> pyramid;
+    private final CompletableFuture<Image> base;
+
+    private PlanetTexture(CompletableFuture<TilePyramid> pyramid) {
+        this.pyramid = pyramid;
+        this.base = pyramid.thenApplyAsync(p -> compose(p, 0, 0, 0, 1, 1).image(), STREAMERS);
+    }
+
+    /**
+     * Opens the texture of a planet, building its pyramid in the background if it does not exist yet.
+     *
+     * @param name the name of the pyramid directory, such as {@code earth}.
+     * @param source the source image the pyramid is built from, or null if there is none.
+     * @return the texture, or null if there is neither a pyramid nor a source image.
+     */
+    public static PlanetTexture open(String name, URL source) {
+        Path directory = Path.of(System.getProperty(Constants.TEXTURE_DIR_PROPERTY, Constants.DEFAULT_TEXTURE_DIR))
+                .resolve(name);
+        boolean built = Files.exists(directory.resolve(TilePyramid.INDEX_FILE));
+        if (!built && source == null) {
+            return null;
+        }
+        CompletableFuture<TilePyramid> pyramid = CompletableFuture.supplyAsync(() -> {
+            try {
+                if (built) {
+                    return TilePyramid.open(directory);
+                }
+                long start = System.nanoTime();
+                TilePyramid result = TilePyramid.build(source, directory);
+                LOG.info("Built {} texture levels in {} in {} ms", result.getLevels(), directory,
+                        (System.nanoTime() - start) / 1_000_000);
+                return result;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, STREAMERS);
+        pyramid.whenComplete((result, error) -> {
+            if (error != null) {
+                LOG.warn("Could not open texture {}: {}", directory, error.getMessage());
+            }
+        });
+        return new PlanetTexture(pyramid);
+    }
+
+    /**
+     * Returns the image covering the whole planet at the coarsest level.
+     *
+     * @return the base image, or null while it is not ready or if the texture could not be opened.
+     */
+    public Image getBaseImage() {
+        return base.isDone() && !base.isCompletedExceptionally() ? base.join() : null;
+    }
+
+    /**
+     * Requests the page of a patch.
+     *
+     * @param texCoords the texture coordinates of the patch, as pairs of u and v. The u coordinates may exceed 1
+     *                  where the patch straddles the seam of the texture.
+     * @return a future that completes with the page, or with null if the patch is so large that the base image
+     *         serves it as well.
+     */
+    public CompletableFuture<Page> requestPage(float[] texCoords) {
+        float minU = Float.MAX_VALUE;
+        float minV = Float.MAX_VALUE;
+        float maxU = -Float.MAX_VALUE;
+        float maxV = -Float.MAX_VALUE;
+        for (int i = 0; i < texCoords.length; i += 2) {
+            minU = Math.min(minU, texCoords[i]);
+            maxU = Math.max(maxU, texCoords[i]);
+            minV = Math.min(minV, texCoords[i + 1]);
+            maxV = Math.max(maxV, texCoords[i + 1]);
+        }
+        double u0 = minU;
+        double v0 = minV;
+        double u1 = maxU;
+        double v1 = maxV;
+        return pyramid.thenApplyAsync(p -> {
+            int level = pageLevel(p, u1 - u0, v1 - v0);
+            return level > 0 ? compose(p, level, u0, v0, u1, v1) : null;
+        }, STREAMERS);
+    }
+
+    /**
+     * Picks the finest level at which a part of the texture fits in one tile, leaving room for rounding to pixels.
+     *
+     * @return the level, or -1 if the part does not fit at any level.
+     */
+    private static int pageLevel(TilePyramid pyramid, double width, double height) {
+        int tileSize = pyramid.getTileSize();
+        for (int level = pyramid.getLevels() - 1; level >= 0; level--) {
+            if (width * pyramid.getColumns(level) * tileSize <= tileSize - 2
+                    && height * pyramid.getRows(level) * tileSize <= tileSize - 2) {
+                return level;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies a part of one level, rounded out to whole pixels, from its tiles into a new image. Columns wrap around.
+     */
+    private static Page compose(TilePyramid pyramid, int level, double u0, double v0, double u1, double v1) {
+        int tileSize = pyramid.getTileSize();
+        int columns = pyramid.getColumns(level);
+        int width = columns * tileSize;
+        int height = pyramid.getRows(level) * tileSize;
+        int x0 = (int) Math.floor(u0 * width);
+        int x1 = Math.max(x0 + 1, (int) Math.ceil(u1 * width));
+        int y0 = Math.max(0, (int) Math.floor(v0 * height));
+        int y1 = Math.min(height, Math.max(y0 + 1, (int) Math.ceil(v1 * height)));
+        WritableImage image = new WritableImage(x1 - x0, y1 - y0);
+        PixelWriter writer = image.getPixelWriter();
+        try {
+            for (int row = y0 / tileSize; row <= (y1 - 1) / tileSize; row++) {
+                int top = Math.max(y0, row * tileSize);
+                int bottom = Math.min(y1, (row + 1) * tileSize);
+                for (int column = Math.floorDiv(x0, tileSize); column <= Math.floorDiv(x1 - 1, tileSize); column++) {
+                    int left = Math.max(x0, column * tileSize);
+                    int right = Math.min(x1, (column + 1) * tileSize);
+                    Image tile = CACHE.get(pyramid, level, Math.floorMod(column, columns), row);
+                    writer.setPixels(left - x0, top - y0, right - left, bottom - top, tile.getPixelReader(),
+                            left - column * tileSize, top - row * tileSize);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Page(image, (double) x0 / width, (double) y0 / height,
+                (double) (x1 - x0) / width, (double) (y1 - y0) / height);
+    }
+
+    /**
+     * An image of a rectangle of the texture.
+     *
+     * @param image the image.
+     * @param u0 the lowest u coordinate of the rectangle.
+     * @param v0 the lowest v coordinate of the rectangle.
+     * @param width the width of the rectangle in texture coordinates.
+     * @param height the height of the rectangle in texture coordinates.
+     */
+    public record Page(Image image, double u0, double v0, double width, double height) {
+        /**
+         * Maps texture coordinates of the whole texture to coordinates of this page.
+         *
+         * @param texCoords the texture coordinates, as pairs of u and v.
+         * @return the texture coordinates in the page.
+         */
+        public float[] remap(float[] texCoords) {
+            float[] result = new float[texCoords.length];
+            for (int i = 0; i < texCoords.length; i += 2) {
+                result[i] = (float) ((texCoords[i] - u0) / width);
+                result[i + 1] = (float) ((texCoords[i + 1] - v0) / height);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import com.kihachu.spaceiteration1.logging.Log;
+import com.kihachu.spaceiteration1.logging.Logger;
+import com.kihachu.spaceiteration1.metrics.Counter;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+
+/**
+ * Chooses a {@link QualityLevel} from frame-time feedback to hold a target frame rate. Frame times are averaged over
+ * windows of {@value #WINDOW_FRAMES} frames. The quality drops one level after a window averaging more than
+ * {@value #DOWNGRADE_RATIO} times the target frame time. Since pulses are capped at the display rate, spare time
+ * cannot be seen directly. So the quality is raised one level on probation after enough consecutive windows
+ * that hold the target. If the higher level misses the target before it has lasted that long, the number of
+ * windows required before the next attempt doubles, up to {@value #MAX_UPGRADE_WINDOWS}. No decision is taken for
+ * {@value #COOLDOWN_WINDOWS} windows after a change, while the scene settles. The gap between the thresholds, the
+ * cooldown and the backoff keep the level from oscillating. A fixed level disables the feedback entirely. The level,
+ * the averaged frame time and the number of changes are exported as metrics.
+ */
+public class QualityGovernor {
+    /**
+     * The number of frames averaged for each decision.
+     */
+    public static final int WINDOW_FRAMES = 60;
+
+    /**
+     * The ratio of the average to the target frame time above which the quality is lowered.
+     */
+    public static final double DOWNGRADE_RATIO = 1.2;
+
+    /**
+     * The ratio of the average to the target frame time up to which a window counts as holding the target.
+     */
+    public static final double UPGRADE_RATIO = 1.05;
+
+    /**
+     * The initial number of consecutive windows holding the target needed to raise the quality.
+     */
+    public static final int UPGRADE_WINDOWS = 5;
+
+    /**
+     * The largest number of consecutive windows holding the target needed to raise the quality.
+     */
+    public static final int MAX_UPGRADE_WINDOWS = 80;
+
+    /**
+     * The number of windows ignored after a change of level.
+     */
+    public static final int COOLDOWN_WINDOWS = 2;
+
+    private static final Logger LOG = Log.logger("quality");
+    private static final Counter CHANGES = Metrics.counter("quality.changes");
+    /*
+     * Frames longer than this, such as after a stall or a debugger pause, are clamped so one of them does not
+     * decide a whole window.
+     */
+    private static final double MAX_FRAME_RATIO = 4;
+
+    private final long targetNanos;
+    private final boolean fixed;
+    private QualityLevel level;
+    private long lastFrame;
+    private long windowNanos;
+    private int windowFrames;
+    private long averageNanos;
+    private int goodWindows;
+    private int upgradeWindows = UPGRADE_WINDOWS;
+    private int windowsSinceUpgrade = Integer.MAX_VALUE;
+    private int cooldown;
+
+    /**
+     * Constructs a QualityGovernor.
+     *
+     * @param targetFps the frame rate to hold.
+     * @param fixedLevel the level to keep regardless of the frame times, or null to adapt the level,
+     *                   starting at the highest.
+     */
+    public QualityGovernor(double targetFps, QualityLevel fixedLevel) {
+        this.targetNanos = Math.round(1e9 / targetFps);
+        this.fixed = fixedLevel != null;
+        this.level = fixed ? fixedLevel : QualityLevel.HIGH;
+        Metrics.gauge("quality.level", () -> level.ordinal());
+        Metrics.gauge("quality.frame.micros", () -> averageNanos / 1000);
+    }
+
+    /**
+     * Records a frame and returns the quality level for the next one.
+     *
+     * @param now the time of the pulse in nanoseconds.
+     * @return the quality level to render at.
+     */
+    public QualityLevel onFrame(long now) {
+        long frameNanos = lastFrame == 0 ? targetNanos : now - lastFrame;
+        lastFrame = now;
+        windowNanos += Math.min(frameNanos, (long) (targetNanos * MAX_FRAME_RATIO));
+        if (++windowFrames < WINDOW_FRAMES) {
+            return level;
+        }
+        averageNanos = windowNanos / windowFrames;
+        windowNanos = 0;
+        windowFrames = 0;
+        if (fixed) {
+            return level;
+        }
+        if (windowsSinceUpgrade < Integer.MAX_VALUE) {
+            windowsSinceUpgrade++;
+        }
+        if (cooldown > 0) {
+            cooldown--;
+            return level;
+        }
+        if (averageNanos > targetNanos * DOWNGRADE_RATIO) {
+            goodWindows = 0;
+            if (windowsSinceUpgrade <= upgradeWindows) {
+                // The last upgrade did not hold, so wait longer before the next one
+                upgradeWindows = Math.min(upgradeWindows * 2, MAX_UPGRADE_WINDOWS);
+            }
+            windowsSinceUpgrade = Integer.MAX_VALUE;
+            change(level.lower());
+        } else if (averageNanos <= targetNanos * UPGRADE_RATIO) {
+            if (++goodWindows >= upgradeWindows && level != QualityLevel.HIGH) {
+                goodWindows = 0;
+                windowsSinceUpgrade = 0;
+                change(level.higher());
+            }
+        } else {
+            goodWindows = 0;
+        }
+        return level;
+    }
+
+    private void change(QualityLevel next) {
+        if (next == level) {
+            return;
+        }
+        LOG.info("Quality {} -> {} at {} us per frame", level, next, averageNanos / 1000);
+        level = next;
+        cooldown = COOLDOWN_WINDOWS;
+        CHANGES.increment();
+    }
+
+    /**
+     * Returns the current quality level.
+     *
+     * @return the quality level.
+     */
+    public QualityLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Checks whether the level is fixed rather than adapted to the frame times.
+     *
+     * @return true if the level is fixed.
+     */
+    public boolean isFixed() {
+        return fixed;
+    }
+
+    /**
+     * Returns the frame time averaged over the last complete window.
+     *
+     * @return the average frame time in nanoseconds, or 0 before the first window.
+     */
+    public long getAverageFrameNanos() {
+        return averageNanos;
+    }
+}
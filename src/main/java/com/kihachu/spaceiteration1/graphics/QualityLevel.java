@@ -0,0 +1,89 @@
+package com.kihachu.spaceiteration1.graphics;
+
+/**
+ * The rendering quality levels the {@link QualityGovernor} chooses between, from cheapest to best. Each level
+ * scales the number of asteroid nodes, limits the distance at which asteroids are shown, and sets how often asteroid
+ * spins and the HUD are pushed to the scene.
+ */
+public enum QualityLevel {
+    /**
+     * A fifth of the asteroid nodes within a quarter of the view distance, updated less often.
+     */
+    LOW(0.2, 0.25, 4, 10),
+
+    /**
+     * Half of the asteroid nodes within half of the view distance.
+     */
+    MEDIUM(0.5, 0.5, 2, 20),
+
+    /**
+     * All asteroid nodes within the full view distance, updated on every frame.
+     */
+    HIGH(1, 1, 1, 0);
+
+    private final double nodeFraction;
+    private final double distanceFraction;
+    private final int spinInterval;
+    private final double hudRate;
+
+    QualityLevel(double nodeFraction, double distanceFraction, int spinInterval, double hudRate) {
+        this.nodeFraction = nodeFraction;
+        this.distanceFraction = distanceFraction;
+        this.spinInterval = spinInterval;
+        this.hudRate = hudRate;
+    }
+
+    /**
+     * Returns the fraction of the configured maximum number of asteroid nodes to create.
+     *
+     * @return the node fraction, in (0, 1].
+     */
+    public double getNodeFraction() {
+        return nodeFraction;
+    }
+
+    /**
+     * Returns the fraction of the full view distance within which asteroids are shown.
+     *
+     * @return the distance fraction, in (0, 1].
+     */
+    public double getDistanceFraction() {
+        return distanceFraction;
+    }
+
+    /**
+     * Returns the number of frames between updates of the asteroid spins.
+     *
+     * @return the spin update interval in frames.
+     */
+    public int getSpinInterval() {
+        return spinInterval;
+    }
+
+    /**
+     * Returns the maximum number of HUD updates per second.
+     *
+     * @return the HUD refresh rate, or 0 to update on every frame.
+     */
+    public double getHudRate() {
+        return hudRate;
+    }
+
+    /**
+     * Returns the next cheaper level.
+     *
+     * @return the lower level, or this level if it is the lowest.
+     */
+    public QualityLevel lower() {
+        return this == LOW ? this : values()[ordinal() - 1];
+    }
+
+    /**
+     * Returns the next better level.
+     *
+     * @return the higher level, or this level if it is the highest.
+     */
+    public QualityLevel higher() {
+        return this == HIGH ? this : values()[ordinal() + 1];
+    }
+}
@@ -0,0 +1,249 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import javafx.scene.Group;
+import javafx.scene.Node;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Organizes world objects into a spatial hierarchy of groups instead of one flat group: the root holds one group per
+ * occupied sector, each sector holds one group per occupied cell, and each cell holds the objects inside it. Adding
+ * or removing an object only touches the children of its cell, and a bounds change only propagates through one cell
+ * and one sector, so the cost no longer grows with the size of the world. Whole cells can be hidden or detached as a
+ * unit through {@link #getCells()}. Groups of cells and sectors are created when the first object enters them and
+ * detached when the last one leaves. All changes go through a {@link SceneMutationQueue}, so the grid must only be
+ * used from one thread, while the scene itself is updated when the queue is drained.
+ */
+public class SceneGrid {
+    /**
+     * The number of cells along each axis of a sector.
+     */
+    public static final int SECTOR_CELLS = 4;
+
+    private static final int BITS = 21;
+    private static final long MASK = (1L << BITS) - 1;
+
+    private final Group root = new Group();
+    private final SceneMutationQueue mutations;
+    private final double cellSize;
+    private final Map<Long, Cell> cells = new HashMap<>();
+    private final Map<Long, Sector> sectors = new HashMap<>();
+
+    /**
+     * Constructs a SceneGrid with the specified cell size.
+     *
+     * @param mutations the queue through which the groups and objects are attached and detached.
+     * @param cellSize the edge length of a cell in universe units.
+     */
+    public SceneGrid(SceneMutationQueue mutations, double cellSize) {
+        this.mutations = mutations;
+        this.cellSize = cellSize;
+        Metrics.gauge("scene.cells", cells::size);
+        Metrics.gauge("scene.sectors", sectors::size);
+    }
+
+    /**
+     * Returns the root group of the grid, which is added to the 3D scene.
+     *
+     * @return the root group.
+     */
+    public Group getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the edge length of a cell.
+     *
+     * @return the cell size in universe units.
+     */
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Returns the occupied cells.
+     *
+     * @return an unmodifiable view of the cells.
+     */
+    public Collection<Cell> getCells() {
+        return Collections.unmodifiableCollection(cells.values());
+    }
+
+    /**
+     * Adds an object to the cell containing the specified position.
+     *
+     * @param node the object to add.
+     * @param x the X coordinate of the object.
+     * @param y the Y coordinate of the object.
+     * @param z the Z coordinate of the object.
+     */
+    public void add(Node node, double x, double y, double z) {
+        int ix = index(x);
+        int iy = index(y);
+        int iz = index(z);
+        Cell cell = cells.get(key(ix, iy, iz));
+        if (cell == null) {
+            cell = createCell(ix, iy, iz);
+        }
+        cell.count++;
+        mutations.add(cell.group, node);
+    }
+
+    /**
+     * Removes an object from the cell containing the specified position, which must be the position it was added at.
+     *
+     * @param node the object to remove.
+     * @param x the X coordinate of the object.
+     * @param y the Y coordinate of the object.
+     * @param z the Z coordinate of the object.
+     */
+    public void remove(Node node, double x, double y, double z) {
+        Cell cell = cells.get(key(index(x), index(y), index(z)));
+        if (cell == null) {
+            return;
+        }
+        mutations.remove(cell.group, node);
+        if (--cell.count == 0) {
+            cells.remove(cell.key);
+            mutations.remove(cell.sector.group, cell.group);
+            if (--cell.sector.count == 0) {
+                sectors.remove(cell.sector.key);
+                mutations.remove(root, cell.sector.group);
+            }
+        }
+    }
+
+    private Cell createCell(int ix, int iy, int iz) {
+        int sx = Math.floorDiv(ix, SECTOR_CELLS);
+        int sy = Math.floorDiv(iy, SECTOR_CELLS);
+        int sz = Math.floorDiv(iz, SECTOR_CELLS);
+        Sector sector = sectors.get(key(sx, sy, sz));
+        if (sector == null) {
+            sector = new Sector(key(sx, sy, sz));
+            sectors.put(sector.key, sector);
+            mutations.add(root, sector.group);
+        }
+        sector.count++;
+        Cell cell = new Cell(key(ix, iy, iz), sector, ix * cellSize, iy * cellSize, iz * cellSize, cellSize);
+        cells.put(cell.key, cell);
+        mutations.add(sector.group, cell.group);
+        return cell;
+    }
+
+    private int index(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(int ix, int iy, int iz) {
+        return (ix & MASK) << (2 * BITS) | (iy & MASK) << BITS | (iz & MASK);
+    }
+
+    /**
+     * A group of cells, attached to the root of the grid.
+     */
+    private static final class Sector {
+        private final long key;
+        private final Group group = new Group();
+        private int count;
+
+        private Sector(long key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * An axis-aligned cube of the grid and the group holding the objects inside it.
+     */
+    public static final class Cell {
+        private final long key;
+        private final Sector sector;
+        private final Group group = new Group();
+        private final double minX;
+        private final double minY;
+        private final double minZ;
+        private final double size;
+        private int count;
+
+        private Cell(long key, Sector sector, double minX, double minY, double minZ, double size) {
+            this.key = key;
+            this.sector = sector;
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.size = size;
+        }
+
+        /**
+         * Returns the group holding the objects of the cell. Hiding it hides all of them.
+         *
+         * @return the cell group.
+         */
+        public Group getGroup() {
+            return group;
+        }
+
+        /**
+         * Returns the number of objects in the cell.
+         *
+         * @return the number of objects.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the squared distance from a point to the nearest point of the cell.
+         *
+         * @param x the X coordinate of the point.
+         * @param y the Y coordinate of the point.
+         * @param z the Z coordinate of the point.
+         * @return the squared distance, 0 if the point is inside the cell.
+         */
+        public double distanceSquared(double x, double y, double z) {
+            double dx = Math.max(0, Math.max(minX - x, x - (minX + size)));
+            double dy = Math.max(0, Math.max(minY - y, y - (minY + size)));
+            double dz = Math.max(0, Math.max(minZ - z, z - (minZ + size)));
+            return dx * dx + dy * dy + dz * dz;
+        }
+
+        /**
+         * Returns the X coordinate of the center of the cell.
+         *
+         * @return the X coordinate.
+         */
+        public double getCenterX() {
+            return minX + size / 2;
+        }
+
+        /**
+         * Returns the Y coordinate of the center of the cell.
+         *
+         * @return the Y coordinate.
+         */
+        public double getCenterY() {
+            return minY + size / 2;
+        }
+
+        /**
+         * Returns the Z coordinate of the center of the cell.
+         *
+         * @return the Z coordinate.
+         */
+        public double getCenterZ() {
+            return minZ + size / 2;
+        }
+
+        /**
+         * Returns the edge length of the cell.
+         *
+         * @return the cell size.
+         */
+        public double getSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import com.kihachu.spaceiteration1.metrics.Counter;
+import com.kihachu.spaceiteration1.metrics.LatencyHistogram;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import javafx.scene.Group;
+import javafx.scene.Node;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A queue of scene graph additions and removals, so the scene can be changed from any thread without one
+ * {@code Platform.runLater} per node. Producers post mutations without locking. The FX thread drains the queue
+ * once per pulse within a time budget. A drain coalesces the mutations per node, so only the last one counts and
+ * an add followed by a remove cancels out. It then applies them with one {@code removeAll} and one {@code addAll}
+ * per parent, so each children list is updated once. Mutations left over when the budget runs out wait for the
+ * next pulse. Producers can check {@link #isSaturated()} to back off while the queue is longer than its soft
+ * capacity.
+ */
+public class SceneMutationQueue {
+    private static final Counter POSTED = Metrics.counter("scene.mutations.posted");
+    private static final Counter APPLIED = Metrics.counter("scene.mutations.applied");
+    private static final Counter COALESCED = Metrics.counter("scene.mutations.coalesced");
+    private static final Counter DEFERRED = Metrics.counter("scene.mutations.deferred");
+    private static final LatencyHistogram DRAIN = Metrics.histogram("scene.drain");
+    private static final int CLOCK_INTERVAL = 256;
+
+    private final ConcurrentLinkedQueue<Mutation> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final int capacity;
+
+    /*
+     * Scratch state of a drain, only touched on the FX thread.
+     */
+    private final Map<Node, Mutation> latest = new LinkedHashMap<>();
+    private final Map<Group, Set<Node>> removals = new HashMap<>();
+    private final Map<Group, List<Node>> additions = new HashMap<>();
+
+    /**
+     * Constructs a SceneMutationQueue with the specified soft capacity.
+     *
+     * @param capacity the number of pending mutations above which the queue reports itself saturated.
+     */
+    public SceneMutationQueue(int capacity) {
+        this.capacity = capacity;
+        Metrics.gauge("scene.mutations.pending", this::getPending);
+    }
+
+    /**
+     * Posts the addition of a node to a group. May be called from any thread.
+     *
+     * @param parent the group to add the node to.
+     * @param node the node to add.
+     */
+    public void add(Group parent, Node node) {
+        post(new Mutation(parent, node, true));
+    }
+
+    /**
+     * Posts the removal of a node from a group. May be called from any thread.
+     * Nothing happens if the node is no longer a child of the group when the removal is applied.
+     *
+     * @param parent the group to remove the node from.
+     * @param node the node to remove.
+     */
+    public void remove(Group parent, Node node) {
+        post(new Mutation(parent, node, false));
+    }
+
+    private void post(Mutation mutation) {
+        queue.offer(mutation);
+        pending.incrementAndGet();
+        POSTED.increment();
+    }
+
+    /**
+     * Returns the number of mutations posted but not yet drained.
+     *
+     * @return the number of pending mutations.
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Checks whether more mutations are pending than the queue should hold.
+     * Producers that can defer work should wait until the queue has drained.
+     *
+     * @return true if the number of pending mutations exceeds the soft capacity.
+     */
+    public boolean isSaturated() {
+        return pending.get() > capacity;
+    }
+
+    /**
+     * Applies pending mutations to the scene graph until the queue is empty or the budget is spent.
+     * Must be called on the FX thread.
+     *
+     * @param budgetNanos the time in nanoseconds the drain may take.
+     * @return the number of mutations applied after coalescing.
+     */
+    public int drain(long budgetNanos) {
+        if (queue.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        int polled = 0;
+        Mutation mutation;
+        while ((mutation = queue.poll()) != null) {
+            polled++;
+            Mutation previous = latest.put(mutation.node(), mutation);
+            if (previous != null && previous.add() && !mutation.add()
+                    && mutation.node().getParent() != mutation.parent()) {
+                // Added and removed again before the add was applied
+                latest.remove(mutation.node());
+            }
+            if (polled % CLOCK_INTERVAL == 0 && System.nanoTime() - start >= budgetNanos) {
+                break;
+            }
+        }
+        pending.addAndGet(-polled);
+        if (!queue.isEmpty()) {
+            DEFERRED.increment();
+        }
+        int applied = apply();
+        COALESCED.add(polled - applied);
+        APPLIED.add(applied);
+        DRAIN.recordSince(start);
+        return applied;
+    }
+
+    private int apply() {
+        int applied = 0;
+        for (Mutation mutation : latest.values()) {
+            Node node = mutation.node();
+            if (mutation.add() && node.getParent() != mutation.parent()) {
+                additions.computeIfAbsent(mutation.parent(), parent -> new ArrayList<>()).add(node);
+                applied++;
+            } else if (!mutation.add() && node.getParent() == mutation.parent()) {
+                removals.computeIfAbsent(mutation.parent(), parent -> new HashSet<>()).add(node);
+                applied++;
+            }
+        }
+        latest.clear();
+        removals.forEach((parent, nodes) -> parent.getChildren().removeAll(nodes));
+        removals.clear();
+        additions.forEach((parent, nodes) -> parent.getChildren().addAll(nodes));
+        additions.clear();
+        return applied;
+    }
+
+    private record Mutation(Group parent, Node node, boolean add) {
+    }
+}
@@ -0,0 +1,86 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import com.kihachu.spaceiteration1.metrics.Counter;
+import com.kihachu.spaceiteration1.metrics.LatencyHistogram;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import javafx.scene.image.Image;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the most recently used tiles of {@link TilePyramid}s in memory, up to a fixed number of tiles shared by all
+ * pyramids. Tiles that are not cached are read from disk by the calling thread; the least recently used tile is
+ * evicted when the cache is full. Safe to use from several threads.
+ */
+public class TileCache {
+    private static final Counter HITS = Metrics.counter("texture.tiles.hits");
+    private static final Counter LOADED = Metrics.counter("texture.tiles.loaded");
+    private static final Counter EVICTED = Metrics.counter("texture.tiles.evicted");
+    private static final LatencyHistogram LOAD = Metrics.histogram("texture.tile.load");
+
+    private final int capacity;
+    private final Map<Key, Image> tiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Constructs a TileCache.
+     *
+     * @param capacity the maximum number of tiles kept in memory.
+     */
+    public TileCache(int capacity) {
+        this.capacity = capacity;
+        Metrics.gauge("texture.tiles.cached", this::size);
+    }
+
+    /**
+     * Returns a tile, reading it from disk if it is not cached.
+     *
+     * @param pyramid the pyramid of the tile.
+     * @param level the level of the tile.
+     * @param column the column of the tile.
+     * @param row the row of the tile.
+     * @return the tile.
+     * @throws IOException if the tile cannot be read.
+     */
+    public Image get(TilePyramid pyramid, int level, int column, int row) throws IOException {
+        Key key = new Key(pyramid, level, column, row);
+        synchronized (tiles) {
+            Image tile = tiles.get(key);
+            if (tile != null) {
+                HITS.increment();
+                return tile;
+            }
+        }
+        // Read outside the lock so that other threads can use cached tiles meanwhile
+        long start = System.nanoTime();
+        Image tile = pyramid.loadTile(level, column, row);
+        LOAD.recordSince(start);
+        LOADED.increment();
+        synchronized (tiles) {
+            tiles.put(key, tile);
+            Iterator<Image> eldest = tiles.values().iterator();
+            while (tiles.size() > capacity) {
+                eldest.next();
+                eldest.remove();
+                EVICTED.increment();
+            }
+        }
+        return tile;
+    }
+
+    /**
+     * Returns the number of cached tiles.
+     *
+     * @return the number of tiles.
+     */
+    public int size() {
+        synchronized (tiles) {
+            return tiles.size();
+        }
+    }
+
+    private record Key(TilePyramid pyramid, int level, int column, int row) {
+    }
+}
@@ -0,0 +1,218 @@
+package com.kihachu.spaceiteration1.graphics;
+
+import javafx.scene.image.Image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Properties;
+
+/**
+ * A texture split into square tiles at several resolutions, stored in a directory. Level 0 covers the whole
+ * equirectangular texture with 2 by 1 tiles, and each further level doubles the resolution, so level {@code n} has
+ * {@code 2^(n+1)} columns and {@code 2^n} rows. The finest level has at least the resolution of the source image.
+ * Tiles are PNG files named {@code <level>/<column>_<row>.png}, and {@value #INDEX_FILE} describes the pyramid.
+ * Pyramids are built from a source image one band of rows at a time, so even huge images never have to fit in memory.
+ */
+public final class TilePyramid {
+    /**
+     * The edge length of a tile in pixels.
+     */
+    public static final int TILE_SIZE = 256;
+
+    /**
+     * The file describing a pyramid, written once all of its tiles are.
+     */
+    public static final String INDEX_FILE = "pyramid.properties";
+
+    private final Path directory;
+    private final int tileSize;
+    private final int levels;
+
+    private TilePyramid(Path directory, int tileSize, int levels) {
+        this.directory = directory;
+        this.tileSize = tileSize;
+        this.levels = levels;
+    }
+
+    /**
+     * Opens a pyramid that has been built before.
+     *
+     * @param directory the directory of the pyramid.
+     * @return the pyramid.
+     * @throws NoSuchFileException if the directory holds no complete pyramid.
+     * @throws IOException if the index cannot be read.
+     */
+    public static TilePyramid open(Path directory) throws IOException {
+        Properties index = new Properties();
+        try (Reader reader = Files.newBufferedReader(directory.resolve(INDEX_FILE))) {
+            index.load(reader);
+        }
+        try {
+            return new TilePyramid(directory, Integer.parseInt(index.getProperty("tileSize")),
+                    Integer.parseInt(index.getProperty("levels")));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid pyramid index in " + directory, e);
+        }
+    }
+
+    /**
+     * Builds a pyramid from a source image, replacing any previous pyramid in the directory.
+     *
+     * @param source the source image, an equirectangular map of the planet.
+     * @param directory the directory of the pyramid.
+     * @return the pyramid.
+     * @throws IOException if the source cannot be read or the tiles cannot be written.
+     */
+    public static TilePyramid build(URL source, Path directory) throws IOException {
+        Files.deleteIfExists(directory.resolve(INDEX_FILE));
+        try (InputStream stream = source.openStream();
+             ImageInputStream input = ImageIO.createImageInputStream(stream)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + source);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input);
+                int height = reader.getHeight(0);
+                int levels = 1;
+                while (TILE_SIZE << (levels - 1) < height) {
+                    levels++;
+                }
+                for (int level = 0; level < levels; level++) {
+                    buildLevel(reader, directory, level);
+                }
+                Properties index = new Properties();
+                index.setProperty("tileSize", Integer.toString(TILE_SIZE));
+                index.setProperty("levels", Integer.toString(levels));
+                index.setProperty("source", source.toExternalForm());
+                try (OutputStream out = Files.newOutputStream(directory.resolve(INDEX_FILE))) {
+                    index.store(out, "Tile pyramid");
+                }
+                return new TilePyramid(directory, TILE_SIZE, levels);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Writes the tiles of one level, reading the source one row of tiles at a time. Coarse levels read the source
+     * subsampled, so each band only holds about as many pixels as the tiles it becomes.
+     */
+    private static void buildLevel(ImageReader reader, Path directory, int level) throws IOException {
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        int rows = 1 << level;
+        int columns = 2 * rows;
+        int subsampling = Math.max(1, height / (TILE_SIZE * rows));
+        Path levelDirectory = Files.createDirectories(directory.resolve(Integer.toString(level)));
+        for (int row = 0; row < rows; row++) {
+            int top = (int) ((long) row * height / rows);
+            int bottom = (int) (((long) row + 1) * height / rows);
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(new Rectangle(0, top, width, Math.max(1, bottom - top)));
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            BufferedImage band = reader.read(0, param);
+
+            BufferedImage strip = new BufferedImage(columns * TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = strip.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(band, 0, 0, strip.getWidth(), strip.getHeight(), null);
+            graphics.dispose();
+            for (int column = 0; column < columns; column++) {
+                BufferedImage tile = strip.getSubimage(column * TILE_SIZE, 0, TILE_SIZE, TILE_SIZE);
+                ImageIO.write(tile, "png", levelDirectory.resolve(column + "_" + row + ".png").toFile());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of levels.
+     *
+     * @return the number of levels.
+     */
+    public int getLevels() {
+        return levels;
+    }
+
+    /**
+     * Returns the edge length of a tile.
+     *
+     * @return the tile size in pixels.
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Returns the number of columns of tiles of a level.
+     *
+     * @param level the level.
+     * @return the number of columns.
+     */
+    public int getColumns(int level) {
+        return 2 << level;
+    }
+
+    /**
+     * Returns the number of rows of tiles of a level.
+     *
+     * @param level the level.
+     * @return the number of rows.
+     */
+    public int getRows(int level) {
+        return 1 << level;
+    }
+
+    /**
+     * Reads one tile from disk. Blocks until the tile is decoded, so it is called on background threads.
+     *
+     * @param level the level.
+     * @param column the column of the tile.
+     * @param row the row of the tile.
+     * @return the tile.
+     * @throws IOException if the tile cannot be read.
+     */
+    public Image loadTile(int level, int column, int row) throws IOException {
+        Path file = directory.resolve(level + "/" + column + "_" + row + ".png");
+        try (InputStream in = Files.newInputStream(file)) {
+            Image image = new Image(in);
+            if (image.isError()) {
+                throw new IOException("Could not decode tile " + file, image.getException());
+            }
+            return image;
+        }
+    }
+
+    /**
+     * Builds a pyramid ahead of time, for textures too large to ship as resources.
+     *
+     * @param args the source image file and the directory of the pyramid.
+     * @throws IOException if the pyramid cannot be built.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: TilePyramid <source image> <pyramid directory>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        TilePyramid pyramid = build(Path.of(args[0]).toUri().toURL(), Path.of(args[1]));
+        System.out.printf("Built %d levels in %d ms%n", pyramid.getLevels(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,93 @@
+package com.kihachu.spaceiteration1.hud;
+
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The heads-up display: a 2D layer drawn over the 3D view, in screen coordinates.
+ * State changes are collected in {@link HudText} fields during a pulse and pushed to the Text nodes by a single
+ * {@link #flush} call per pulse, optionally limited to a refresh rate that can be lowered at run time below the
+ * configured one. The layer is mouse transparent,
+ * so clicks reach the 3D view below it.
+ */
+public class Hud {
+    private final Pane root = new Pane();
+    private final List<HudText> texts = new ArrayList<>();
+    private final double maxRefreshRate;
+    private long refreshNanos;
+    private long lastFlush;
+
+    /**
+     * Constructs a Hud.
+     *
+     * @param refreshRate the maximum number of updates per second, or 0 to update on every pulse.
+     */
+    public Hud(double refreshRate) {
+        this.maxRefreshRate = refreshRate;
+        setRefreshRate(0);
+        root.setMouseTransparent(true);
+        root.setPickOnBounds(false);
+    }
+
+    /**
+     * Sets the refresh rate, which never exceeds the rate the HUD was constructed with.
+     *
+     * @param refreshRate the maximum number of updates per second, or 0 for the configured rate.
+     */
+    public void setRefreshRate(double refreshRate) {
+        double rate = refreshRate <= 0 ? maxRefreshRate
+                : maxRefreshRate <= 0 ? refreshRate : Math.min(refreshRate, maxRefreshRate);
+        this.refreshNanos = rate > 0 ? Math.round(1e9 / rate) : 0;
+    }
+
+    /**
+     * Adds a text field.
+     *
+     * @param x the X coordinate of the text on screen.
+     * @param y the Y coordinate of the baseline of the first line on screen.
+     * @param fontSize the font size.
+     * @param color the text color.
+     * @return the text field.
+     */
+    public HudText addText(double x, double y, double fontSize, Color color) {
+        Text node = new Text();
+        node.setFont(new Font(fontSize));
+        node.setFill(color);
+        node.setLayoutX(x);
+        node.setLayoutY(y);
+        root.getChildren().add(node);
+        HudText text = new HudText(node);
+        texts.add(text);
+        return text;
+    }
+
+    /**
+     * Pushes the pending changes of all fields to their nodes, unless the previous flush was too recent.
+     * Called once per pulse after the simulation has been stepped.
+     *
+     * @param now the time of the pulse in nanoseconds.
+     */
+    public void flush(long now) {
+        if (refreshNanos > 0 && now - lastFlush < refreshNanos) {
+            return;
+        }
+        lastFlush = now;
+        for (HudText text : texts) {
+            text.flush();
+        }
+    }
+
+    /**
+     * Returns the root of the HUD layer.
+     *
+     * @return the root node.
+     */
+    public Pane getRoot() {
+        return root;
+    }
+}
@@ -0,0 +1,81 @@
+package com.kihachu.spaceiteration1.hud;
+
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import javafx.scene.text.Text;
+
+/**
+ * A text field of the {@link Hud}. Writers format the new content into a reusable {@link StringBuilder}
+ * as often as they like; the Text node is updated at most once per flush, and only if the content has changed.
+ */
+public class HudText {
+    private final Text node;
+    private final StringBuilder builder = new StringBuilder(64);
+    private String shown = "";
+    private boolean dirty;
+
+    /**
+     * Constructs a HudText for the specified node.
+     *
+     * @param node the text node.
+     */
+    HudText(Text node) {
+        this.node = node;
+    }
+
+    /**
+     * Starts a new content for the field. The returned builder is cleared and must be filled before the next flush.
+     *
+     * @return the builder to write the new content into.
+     */
+    public StringBuilder begin() {
+        builder.setLength(0);
+        dirty = true;
+        return builder;
+    }
+
+    /**
+     * Replaces the content of the field.
+     *
+     * @param content the new content.
+     */
+    public void set(CharSequence content) {
+        begin().append(content);
+    }
+
+    /**
+     * Pushes the pending content to the Text node if it differs from the content shown.
+     *
+     * @return true if the node was updated.
+     */
+    boolean flush() {
+        if (!dirty) {
+            return false;
+        }
+        dirty = false;
+        if (shown.contentEquals(builder)) {
+            return false;
+        }
+        shown = builder.toString();
+        node.setText(shown);
+        Metrics.HUD_UPDATES.increment();
+        return true;
+    }
+
+    /**
+     * Shows or hides the field.
+     *
+     * @param visible whether the field is visible.
+     */
+    public void setVisible(boolean visible) {
+        node.setVisible(visible);
+    }
+
+    /**
+     * Returns whether the field is visible.
+     *
+     * @return true if the field is visible.
+     */
+    public boolean isVisible() {
+        return node.isVisible();
+    }
+}
@@ -0,0 +1,31 @@
+package com.kihachu.spaceiteration1.logging;
+
+/**
+ * Log levels, from the most to the least verbose.
+ */
+public enum Level {
+    TRACE,
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF;
+
+    /**
+     * Parses a level name, ignoring case.
+     *
+     * @param name the level name.
+     * @param fallback the level to return if the name is null or unknown.
+     * @return the level.
+     */
+    public static Level parse(String name, Level fallback) {
+        if (name != null) {
+            for (Level level : values()) {
+                if (level.name().equalsIgnoreCase(name.trim())) {
+                    return level;
+                }
+            }
+        }
+        return fallback;
+    }
+}
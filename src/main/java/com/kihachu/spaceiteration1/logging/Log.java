@@ -0,0 +1,167 @@
+package com.kihachu.spaceiteration1.logging;
+
+import com.kihachu.spaceiteration1.metrics.Counter;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Global registry of {@link Logger}s and the background thread that writes their messages.
+ *
+ * <p>Configured with system properties: {@value #LEVEL_PROPERTY} sets the default level (INFO),
+ * {@value #LEVEL_PROPERTY}{@code .<category>} the level of one category, {@value #RATE_PROPERTY} the maximum number
+ * of messages per second and category (20), and {@value #FILE_PROPERTY} a file to append to instead of the console.
+ */
+public final class Log {
+    /**
+     * System property setting the default log level.
+     */
+    public static final String LEVEL_PROPERTY = "spaceiteration.log.level";
+
+    /**
+     * System property setting the maximum number of messages per second and category. Zero disables the limit.
+     */
+    public static final String RATE_PROPERTY = "spaceiteration.log.rate";
+
+    /**
+     * System property naming a file that the log is appended to instead of the console.
+     */
+    public static final String FILE_PROPERTY = "spaceiteration.log.file";
+
+    private static final int CAPACITY = 4096;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static final Map<String, Logger> loggers = new ConcurrentHashMap<>();
+    private static final LogRing ring = new LogRing(CAPACITY);
+    private static final Counter dropped = Metrics.counter("log.dropped");
+    private static final Level defaultLevel = Level.parse(System.getProperty(LEVEL_PROPERTY), Level.INFO);
+    private static final int rateLimit = Integer.getInteger(RATE_PROPERTY, 20);
+    private static final Thread writerThread;
+    private static final StringBuilder line = new StringBuilder(256);
+    private static volatile boolean shuttingDown;
+
+    static {
+        writerThread = new Thread(Log::runWriter, "log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::shutdown, "log-shutdown"));
+    }
+
+    private Log() {
+    }
+
+    /**
+     * Returns the logger of the specified category, creating it if necessary.
+     *
+     * @param category the category, such as {@code mining}.
+     * @return the logger.
+     */
+    public static Logger logger(String category) {
+        return loggers.computeIfAbsent(category, name ->
+                new Logger(name, Level.parse(System.getProperty(LEVEL_PROPERTY + "." + name), defaultLevel), rateLimit));
+    }
+
+    static void append(Logger logger, Level level, String message, Object arg0, Object arg1, Object arg2, int argCount,
+                       Throwable error, long suppressed) {
+        if (!ring.offer(logger, level, message, arg0, arg1, arg2, argCount, error, suppressed)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Writes all queued messages and stops the writer. Called by a shutdown hook.
+     */
+    public static void shutdown() {
+        shuttingDown = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void runWriter() {
+        try (PrintWriter out = new PrintWriter(openOutput(), false)) {
+            while (true) {
+                boolean wrote = false;
+                for (LogRing.Slot slot = ring.peek(); slot != null; slot = ring.peek()) {
+                    format(slot);
+                    Throwable error = slot.error;
+                    ring.release(slot);
+                    out.append(line).append(System.lineSeparator());
+                    if (error != null) {
+                        error.printStackTrace(out);
+                    }
+                    wrote = true;
+                }
+                if (wrote) {
+                    out.flush();
+                } else if (shuttingDown) {
+                    return;
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }
+    }
+
+    private static Writer openOutput() {
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file != null) {
+            try {
+                return Files.newBufferedWriter(Path.of(file), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                System.err.println("Could not open log file " + file + ": " + e.getMessage());
+            }
+        }
+        return new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Formats a record into {@link #line}, substituting the {@code {}} placeholders of the message with its arguments.
+     *
+     * @param slot the record.
+     */
+    private static void format(LogRing.Slot slot) {
+        line.setLength(0);
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(slot.timeMillis), line);
+        line.append(' ').append(slot.level.name());
+        for (int i = slot.level.name().length(); i < 5; i++) {
+            line.append(' ');
+        }
+        line.append(" [").append(slot.logger.getCategory()).append("] ");
+        String message = slot.message;
+        int argIndex = 0;
+        int from = 0;
+        int placeholder;
+        while (argIndex < slot.argCount && (placeholder = message.indexOf("{}", from)) >= 0) {
+            line.append(message, from, placeholder);
+            line.append(argIndex == 0 ? slot.arg0 : argIndex == 1 ? slot.arg1 : slot.arg2);
+            argIndex++;
+            from = placeholder + 2;
+        }
+        line.append(message, from, message.length());
+        if (slot.suppressed > 0) {
+            line.append(" (").append(slot.suppressed).append(" more messages suppressed)");
+        }
+        line.append(" {").append(slot.thread).append('}');
+    }
+}
@@ -0,0 +1,126 @@
+package com.kihachu.spaceiteration1.logging;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free ring buffer of log records with many producers and a single consumer.
+ *
+ * <p>Every slot is preallocated and carries a sequence number. A producer claims a position with a CAS on the tail,
+ * fills the slot and publishes it by advancing the slot's sequence; the consumer releases the slot again after
+ * reading it. Producers never block: if the ring is full, the record is dropped and counted.
+ */
+class LogRing {
+    private static final VarHandle SEQUENCE;
+
+    static {
+        try {
+            SEQUENCE = MethodHandles.lookup().findVarHandle(Slot.class, "sequence", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    /**
+     * Constructs a LogRing.
+     *
+     * @param capacity the number of slots, rounded up to a power of two.
+     */
+    LogRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            slots[i].sequence = i;
+        }
+    }
+
+    /**
+     * Appends a record. Safe to call from any thread.
+     *
+     * @return true if the record was appended, false if the ring was full.
+     */
+    boolean offer(Logger logger, Level level, String message, Object arg0, Object arg1, Object arg2, int argCount,
+                  Throwable error, long suppressed) {
+        long position;
+        Slot slot;
+        while (true) {
+            position = tail.get();
+            slot = slots[(int) position & mask];
+            long sequence = (long) SEQUENCE.getAcquire(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (sequence < position) {
+                return false;
+            }
+        }
+        slot.timeMillis = System.currentTimeMillis();
+        slot.thread = Thread.currentThread().getName();
+        slot.logger = logger;
+        slot.level = level;
+        slot.message = message;
+        slot.arg0 = arg0;
+        slot.arg1 = arg1;
+        slot.arg2 = arg2;
+        slot.argCount = argCount;
+        slot.error = error;
+        slot.suppressed = suppressed;
+        SEQUENCE.setRelease(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * Returns the next published record, or null if there is none. Only the consumer thread may call this,
+     * and it must call {@link #release} once it is done with the slot.
+     *
+     * @return the slot holding the next record, or null.
+     */
+    Slot peek() {
+        Slot slot = slots[(int) head & mask];
+        return (long) SEQUENCE.getAcquire(slot) == head + 1 ? slot : null;
+    }
+
+    /**
+     * Releases the slot returned by the previous {@link #peek} for reuse by producers.
+     *
+     * @param slot the slot.
+     */
+    void release(Slot slot) {
+        slot.thread = null;
+        slot.logger = null;
+        slot.message = null;
+        slot.arg0 = null;
+        slot.arg1 = null;
+        slot.arg2 = null;
+        slot.error = null;
+        SEQUENCE.setRelease(slot, head + slots.length);
+        head++;
+    }
+
+    /**
+     * A preallocated log record.
+     */
+    static final class Slot {
+        long sequence;
+        long timeMillis;
+        String thread;
+        Logger logger;
+        Level level;
+        String message;
+        Object arg0;
+        Object arg1;
+        Object arg2;
+        int argCount;
+        Throwable error;
+        long suppressed;
+    }
+}
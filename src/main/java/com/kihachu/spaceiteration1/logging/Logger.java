@@ -0,0 +1,218 @@
+package com.kihachu.spaceiteration1.logging;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs the messages of one category. Obtained from {@link Log#logger}.
+ *
+ * <p>Messages are templates with {@code {}} placeholders that are only formatted on the background writer thread,
+ * so logging on the FX thread costs a level check, a rate check and a ring buffer append. Arguments must therefore
+ * be immutable, such as strings, boxed numbers or {@code Point3D}s. Each category is limited to a number of messages
+ * per second; the number of suppressed messages is reported with the next message that is let through.
+ */
+public class Logger {
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final String category;
+    private volatile Level level;
+    private final int rateLimit;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger windowCount = new AtomicInteger();
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * Constructs a Logger.
+     *
+     * @param category the category.
+     * @param level the minimum level that is logged.
+     * @param rateLimit the maximum number of messages per second, or 0 for no limit.
+     */
+    Logger(String category, Level level, int rateLimit) {
+        this.category = category;
+        this.level = level;
+        this.rateLimit = rateLimit;
+    }
+
+    /**
+     * Returns the category of this logger.
+     *
+     * @return the category.
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * Sets the minimum level that is logged.
+     *
+     * @param level the level.
+     */
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+
+    /**
+     * Returns whether messages of the specified level are logged.
+     *
+     * @param messageLevel the level of the message.
+     * @return true if the message would be logged.
+     */
+    public boolean isEnabled(Level messageLevel) {
+        return messageLevel.compareTo(level) >= 0 && messageLevel != Level.OFF;
+    }
+
+    /**
+     * Logs a message with up to three arguments and an optional error.
+     *
+     * @param messageLevel the level of the message.
+     * @param message the message template.
+     * @param arg0 the first argument.
+     * @param arg1 the second argument.
+     * @param arg2 the third argument.
+     * @param argCount the number of arguments used.
+     * @param error the error to log with its stack trace, or null.
+     */
+    private void log(Level messageLevel, String message, Object arg0, Object arg1, Object arg2, int argCount, Throwable error) {
+        if (!isEnabled(messageLevel) || !acquire()) {
+            return;
+        }
+        Log.append(this, messageLevel, message, arg0, arg1, arg2, argCount, error, suppressed.sumThenReset());
+    }
+
+    /**
+     * Takes a permit from the current one-second window.
+     *
+     * @return true if the message may be logged.
+     */
+    private boolean acquire() {
+        if (rateLimit <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            windowCount.set(0);
+        }
+        if (windowCount.incrementAndGet() > rateLimit) {
+            suppressed.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Logs a message at level DEBUG.
+     *
+     * @param message the message.
+     */
+    public void debug(String message) {
+        log(Level.DEBUG, message, null, null, null, 0, null);
+    }
+
+    /**
+     * Logs a message at level DEBUG.
+     *
+     * @param message the message template.
+     * @param arg0 the first argument.
+     */
+    public void debug(String message, Object arg0) {
+        log(Level.DEBUG, message, arg0, null, null, 1, null);
+    }
+
+    /**
+     * Logs a message at level DEBUG.
+     *
+     * @param message the message template.
+     * @param arg0 the first argument.
+     * @param arg1 the second argument.
+     */
+    public void debug(String message, Object arg0, Object arg1) {
+        log(Level.DEBUG, message, arg0, arg1, null, 2, null);
+    }
+
+    /**
+     * Logs a message at level INFO.
+     *
+     * @param message the message.
+     */
+    public void info(String message) {
+        log(Level.INFO, message, null, null, null, 0, null);
+    }
+
+    /**
+     * Logs a message at level INFO.
+     *
+     * @param message the message template.
+     * @param arg0 the first argument.
+     */
+    public void info(String message, Object arg0) {
+        log(Level.INFO, message, arg0, null, null, 1, null);
+    }
+
+    /**
+     * Logs a message at level INFO.
+     *
+     * @param message the message template.
+     * @param arg0 the first argument.
+     * @param arg1 the second argument.
+     */
+    public void info(String message, Object arg0, Object arg1) {
+        log(Level.INFO, message, arg0, arg1, null, 2, null);
+    }
+
+    /**
+     * Logs a message at level INFO.
+     *
+     * @param message the message template.
+     * @param arg0 the first argument.
+     * @param arg1 the second argument.
+     * @param arg2 the third argument.
+     */
+    public void info(String message, Object arg0, Object arg1, Object arg2) {
+        log(Level.INFO, message, arg0, arg1, arg2, 3, null);
+    }
+
+    /**
+     * Logs a message at level WARN.
+     *
+     * @param message the message template.
+     * @param arg0 the first argument.
+     */
+    public void warn(String message, Object arg0) {
+        log(Level.WARN, message, arg0, null, null, 1, null);
+    }
+
+    /**
+     * Logs a message at level WARN.
+     *
+     * @param message the message template.
+     * @param arg0 the first argument.
+     * @param arg1 the second argument.
+     */
+    public void warn(String message, Object arg0, Object arg1) {
+        log(Level.WARN, message, arg0, arg1, null, 2, null);
+    }
+
+    /**
+     * Logs a message at level ERROR.
+     *
+     * @param message the message template.
+     * @param arg0 the first argument.
+     */
+    public void error(String message, Object arg0) {
+        log(Level.ERROR, message, arg0, null, null, 1, null);
+    }
+
+    /**
+     * Logs a message and an error with its stack trace at level ERROR.
+     *
+     * @param message the message template.
+     * @param arg0 the first argument.
+     * @param error the error.
+     */
+    public void error(String message, Object arg0, Throwable error) {
+        log(Level.ERROR, message, arg0, null, null, 1, error);
+    }
+}
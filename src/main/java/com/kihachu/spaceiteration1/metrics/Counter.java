@@ -0,0 +1,62 @@
+package com.kihachu.spaceiteration1.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named, lock-free counter that can be updated from any thread.
+ * Backed by a {@link LongAdder}, so concurrent increments do not contend on a single memory location.
+ */
+public class Counter {
+    private final String name;
+    private final LongAdder value = new LongAdder();
+
+    /**
+     * Constructs a Counter with the specified name.
+     *
+     * @param name the name of the counter.
+     */
+    public Counter(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the counter.
+     *
+     * @return the name of the counter.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Increments the counter by one.
+     */
+    public void increment() {
+        value.increment();
+    }
+
+    /**
+     * Decrements the counter by one.
+     */
+    public void decrement() {
+        value.decrement();
+    }
+
+    /**
+     * Adds the specified amount to the counter.
+     *
+     * @param amount the amount to add, may be negative.
+     */
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    /**
+     * Returns the current value of the counter.
+     *
+     * @return the current value.
+     */
+    public long get() {
+        return value.sum();
+    }
+}
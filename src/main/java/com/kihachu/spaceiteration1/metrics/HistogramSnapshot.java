@@ -0,0 +1,99 @@
+package com.kihachu.spaceiteration1.metrics;
+
+/**
+ * An immutable copy of the bucket counts of a {@link LatencyHistogram}.
+ * Two snapshots can be subtracted to get the distribution of a single reporting interval.
+ */
+public class HistogramSnapshot {
+    private final String name;
+    private final long[] counts;
+    private final long totalCount;
+    private final long sum;
+
+    HistogramSnapshot(String name, long[] counts, long totalCount, long sum) {
+        this.name = name;
+        this.counts = counts;
+        this.totalCount = totalCount;
+        this.sum = sum;
+    }
+
+    /**
+     * Returns the name of the histogram this snapshot was taken from.
+     *
+     * @return the histogram name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of recorded values.
+     */
+    public long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the mean of the recorded values in nanoseconds.
+     *
+     * @return the mean, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Returns the value at the specified percentile in nanoseconds.
+     * The result is the upper bound of the bucket containing the percentile.
+     *
+     * @param percentile the percentile in the range 0 to 100.
+     * @return the value at the percentile, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(totalCount * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return LatencyHistogram.bucketUpperBound(i);
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Returns the upper bound of the highest non-empty bucket in nanoseconds.
+     *
+     * @return the maximum recorded value, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] != 0) {
+                return LatencyHistogram.bucketUpperBound(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the distribution of the values recorded between the specified earlier snapshot and this one.
+     *
+     * @param earlier an earlier snapshot of the same histogram, or null.
+     * @return the difference between the snapshots.
+     */
+    public HistogramSnapshot minus(HistogramSnapshot earlier) {
+        if (earlier == null) {
+            return this;
+        }
+        long[] delta = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            delta[i] = counts[i] - earlier.counts[i];
+        }
+        return new HistogramSnapshot(name, delta, totalCount - earlier.totalCount, sum - earlier.sum);
+    }
+}
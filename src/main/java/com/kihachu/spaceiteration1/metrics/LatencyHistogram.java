@@ -0,0 +1,113 @@
+package com.kihachu.spaceiteration1.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with HDR-style log-linear buckets.
+ * Every power of two is split into 16 linear sub-buckets, which keeps the relative error below about 6%
+ * over the whole range of a long while recording stays a couple of arithmetic operations and one atomic increment.
+ */
+public class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Constructs a LatencyHistogram with the specified name.
+     *
+     * @param name the name of the histogram.
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the histogram.
+     *
+     * @return the name of the histogram.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records a single latency value.
+     *
+     * @param nanos the latency in nanoseconds; negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.getAndIncrement(bucketIndex(value));
+        sum.add(value);
+    }
+
+    /**
+     * Records the time elapsed since the specified start time.
+     *
+     * @param startNanos a value previously obtained from {@link System#nanoTime()}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Takes a snapshot of the cumulative bucket counts.
+     * The snapshot is not atomic across buckets, which is acceptable for monitoring purposes.
+     *
+     * @return the snapshot of this histogram.
+     */
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new HistogramSnapshot(name, copy, total, sum.sum());
+    }
+
+    /**
+     * Returns the bucket index of the specified non-negative value.
+     *
+     * @param value the value.
+     * @return the index of the bucket holding the value.
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the lowest value that falls into the specified bucket.
+     *
+     * @param index the bucket index.
+     * @return the lower bound of the bucket.
+     */
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Returns the highest value that falls into the specified bucket.
+     *
+     * @param index the bucket index.
+     * @return the upper bound of the bucket.
+     */
+    static long bucketUpperBound(int index) {
+        return index + 1 < BUCKETS ? bucketLowerBound(index + 1) - 1 : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,141 @@
+package com.kihachu.spaceiteration1.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Global registry of the counters, gauges and latency histograms used to instrument the application.
+ * The standard instruments are exposed as constants so hot paths never have to look them up by name.
+ */
+public final class Metrics {
+    private static final Map<String, Counter> counters = Collections.synchronizedMap(new LinkedHashMap<>());
+    private static final Map<String, LatencyHistogram> histograms = Collections.synchronizedMap(new LinkedHashMap<>());
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Time between two consecutive render pulses.
+     */
+    public static final LatencyHistogram FRAME = histogram("frame");
+
+    /**
+     * Time spent in one simulation tick.
+     */
+    public static final LatencyHistogram SIM_TICK = histogram("sim.tick");
+
+    /**
+     * Time spent resolving a mouse pick.
+     */
+    public static final LatencyHistogram PICKING = histogram("pick");
+
+    /**
+     * Time spent importing a single model file.
+     */
+    public static final LatencyHistogram ASSET_LOAD = histogram("asset.load");
+
+    /**
+     * Time spent in one culling pass.
+     */
+    public static final LatencyHistogram CULLING = histogram("cull");
+
+    /**
+     * Number of mining timers currently running.
+     */
+    public static final Counter MINING_TIMERS = counter("mining.timers");
+
+    /**
+     * Total amount of resources mined.
+     */
+    public static final Counter MINED = counter("mined");
+
+    /**
+     * Number of HUD text nodes updated.
+     */
+    public static final Counter HUD_UPDATES = counter("hud.updates");
+
+    /**
+     * Number of sub-steps the ship was integrated in.
+     */
+    public static final Counter SHIP_SUBSTEPS = counter("ship.substeps");
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the counter with the specified name, creating it if necessary.
+     *
+     * @param name the name of the counter.
+     * @return the counter.
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    /**
+     * Returns the histogram with the specified name, creating it if necessary.
+     *
+     * @param name the name of the histogram.
+     * @return the histogram.
+     */
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /**
+     * Registers a gauge whose value is sampled only when metrics are reported.
+     * Registering a gauge under an existing name replaces the previous one.
+     *
+     * @param name the name of the gauge.
+     * @param supplier the supplier of the gauge value.
+     */
+    public static void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Samples a single gauge.
+     *
+     * @param name the name of the gauge.
+     * @return the gauge value, or 0 if no such gauge is registered.
+     */
+    public static long sampleGauge(String name) {
+        LongSupplier supplier = gauges.get(name);
+        return supplier != null ? supplier.getAsLong() : 0;
+    }
+
+    /**
+     * Returns a copy of the registered counters in registration order.
+     *
+     * @return the registered counters.
+     */
+    public static Counter[] getCounters() {
+        synchronized (counters) {
+            return counters.values().toArray(new Counter[0]);
+        }
+    }
+
+    /**
+     * Returns a copy of the registered histograms in registration order.
+     *
+     * @return the registered histograms.
+     */
+    public static LatencyHistogram[] getHistograms() {
+        synchronized (histograms) {
+            return histograms.values().toArray(new LatencyHistogram[0]);
+        }
+    }
+
+    /**
+     * Samples all registered gauges.
+     *
+     * @return the gauge values keyed by name, sorted by name.
+     */
+    public static Map<String, Long> sampleGauges() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, supplier) -> values.put(name, supplier.getAsLong()));
+        return values;
+    }
+}
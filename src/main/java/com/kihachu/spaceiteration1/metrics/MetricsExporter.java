@@ -0,0 +1,137 @@
+package com.kihachu.spaceiteration1.metrics;
+
+import com.kihachu.spaceiteration1.logging.Log;
+import com.kihachu.spaceiteration1.logging.Logger;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically appends the registered metrics to a local file for offline analysis.
+ * Files ending in {@code .json} are written as JSON lines, anything else as CSV.
+ * Exporting runs on its own daemon thread and never blocks the FX thread.
+ */
+public class MetricsExporter {
+    private static final Logger LOG = Log.logger("metrics");
+
+    private final Path file;
+    private final boolean json;
+    private final MetricsReport report = new MetricsReport();
+    private final StringBuilder builder = new StringBuilder(1024);
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructs a MetricsExporter that writes to the specified file.
+     *
+     * @param file the file to append the metrics to.
+     */
+    public MetricsExporter(Path file) {
+        this.file = file;
+        this.json = file.getFileName().toString().endsWith(".json");
+    }
+
+    /**
+     * Starts exporting at the specified interval.
+     *
+     * @param periodSeconds the export interval in seconds.
+     */
+    public void start(long periodSeconds) {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!json && !Files.exists(file)) {
+            write("time,name,count,mean_ms,p50_ms,p90_ms,p99_ms,max_ms,value\n");
+        }
+        executor.scheduleAtFixedRate(this::export, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops exporting after writing a final record.
+     */
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            export();
+        }
+    }
+
+    /**
+     * Writes one record containing the metrics of the interval since the previous export.
+     */
+    private synchronized void export() {
+        long time = System.currentTimeMillis();
+        HistogramSnapshot[] histograms = report.nextInterval();
+        Map<String, Long> gauges = Metrics.sampleGauges();
+        builder.setLength(0);
+        if (json) {
+            appendJson(time, histograms, gauges);
+        } else {
+            appendCsv(time, histograms, gauges);
+        }
+        write(builder.toString());
+    }
+
+    private void appendCsv(long time, HistogramSnapshot[] histograms, Map<String, Long> gauges) {
+        for (HistogramSnapshot snapshot : histograms) {
+            builder.append(time).append(',').append(snapshot.getName()).append(',').append(snapshot.getCount());
+            appendTimings(builder.append(','), ",", snapshot);
+            builder.append(",\n");
+        }
+        for (Counter counter : Metrics.getCounters()) {
+            builder.append(time).append(',').append(counter.getName()).append(",,,,,,,").append(counter.get()).append('\n');
+        }
+        gauges.forEach((name, value) -> builder.append(time).append(',').append(name).append(",,,,,,,").append(value).append('\n'));
+    }
+
+    private void appendJson(long time, HistogramSnapshot[] histograms, Map<String, Long> gauges) {
+        builder.append("{\"time\":").append(time).append(",\"histograms\":{");
+        for (int i = 0; i < histograms.length; i++) {
+            HistogramSnapshot snapshot = histograms[i];
+            builder.append(i == 0 ? "" : ",").append('"').append(snapshot.getName()).append("\":{\"count\":").append(snapshot.getCount());
+            builder.append(",\"mean_ms\":");
+            MetricsReport.appendMillis(builder, snapshot.getMean()).append(",\"p50_ms\":");
+            MetricsReport.appendMillis(builder, snapshot.getPercentile(50)).append(",\"p90_ms\":");
+            MetricsReport.appendMillis(builder, snapshot.getPercentile(90)).append(",\"p99_ms\":");
+            MetricsReport.appendMillis(builder, snapshot.getPercentile(99)).append(",\"max_ms\":");
+            MetricsReport.appendMillis(builder, snapshot.getMax()).append('}');
+        }
+        builder.append("},\"counters\":{");
+        Counter[] counters = Metrics.getCounters();
+        for (int i = 0; i < counters.length; i++) {
+            builder.append(i == 0 ? "" : ",").append('"').append(counters[i].getName()).append("\":").append(counters[i].get());
+        }
+        builder.append("},\"gauges\":{");
+        String separator = "";
+        for (Map.Entry<String, Long> gauge : gauges.entrySet()) {
+            builder.append(separator).append('"').append(gauge.getKey()).append("\":").append(gauge.getValue());
+            separator = ",";
+        }
+        builder.append("}}\n");
+    }
+
+    private static void appendTimings(StringBuilder builder, String separator, HistogramSnapshot snapshot) {
+        MetricsReport.appendMillis(builder, snapshot.getMean()).append(separator);
+        MetricsReport.appendMillis(builder, snapshot.getPercentile(50)).append(separator);
+        MetricsReport.appendMillis(builder, snapshot.getPercentile(90)).append(separator);
+        MetricsReport.appendMillis(builder, snapshot.getPercentile(99)).append(separator);
+        MetricsReport.appendMillis(builder, snapshot.getMax());
+    }
+
+    private void write(String content) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(content);
+        } catch (IOException e) {
+            LOG.warn("Could not export metrics to {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.kihachu.spaceiteration1.metrics;
+
+import com.kihachu.spaceiteration1.hud.HudText;
+import javafx.animation.AnimationTimer;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+
+import java.util.Map;
+
+/**
+ * HUD overlay that shows frame time, simulation timings, counters and gauges.
+ * It also records the frame time of every pulse, so frame metrics are collected even while the overlay is hidden.
+ */
+public class MetricsOverlay {
+    private static final long REFRESH_NANOS = 500_000_000L;
+
+    private final HudText text;
+    private final Parent sceneRoot;
+    private final MetricsReport report = new MetricsReport();
+    private volatile long nodeCount;
+    private long lastPulse;
+    private long lastRefresh;
+
+    /**
+     * Constructs a MetricsOverlay that writes into the specified HUD field and starts recording frame times.
+     *
+     * @param text the HUD field used to display the metrics.
+     * @param sceneRoot the root of the scene graph, used for the node count gauge. The scene graph is only walked
+     *                  while the overlay is visible, so the gauge holds the last count taken while it was shown.
+     */
+    public MetricsOverlay(HudText text, Parent sceneRoot) {
+        this.text = text;
+        this.sceneRoot = sceneRoot;
+        Metrics.gauge("scene.nodes", () -> nodeCount);
+        startTimer();
+    }
+
+    /**
+     * Toggles the visibility of the overlay.
+     */
+    public void toggle() {
+        text.setVisible(!text.isVisible());
+    }
+
+    private void startTimer() {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (lastPulse != 0) {
+                    Metrics.FRAME.record(now - lastPulse);
+                }
+                lastPulse = now;
+                if (now - lastRefresh >= REFRESH_NANOS) {
+                    lastRefresh = now;
+                    if (text.isVisible()) {
+                        nodeCount = countNodes(sceneRoot);
+                        refresh();
+                    }
+                }
+            }
+        }.start();
+    }
+
+    /**
+     * Rebuilds the overlay text from the metrics recorded since the previous refresh.
+     */
+    private void refresh() {
+        StringBuilder builder = text.begin();
+        for (HistogramSnapshot snapshot : report.nextInterval()) {
+            builder.append(snapshot.getName()).append("  n=").append(snapshot.getCount()).append("  avg ");
+            MetricsReport.appendMillis(builder, snapshot.getMean()).append(" ms  p99 ");
+            MetricsReport.appendMillis(builder, snapshot.getPercentile(99)).append(" ms  max ");
+            MetricsReport.appendMillis(builder, snapshot.getMax()).append(" ms\n");
+        }
+        for (Counter counter : Metrics.getCounters()) {
+            builder.append(counter.getName()).append(' ').append(counter.get()).append('\n');
+        }
+        for (Map.Entry<String, Long> gauge : Metrics.sampleGauges().entrySet()) {
+            builder.append(gauge.getKey()).append(' ').append(gauge.getValue()).append('\n');
+        }
+    }
+
+    /**
+     * Counts the nodes in the subtree rooted at the specified node.
+     *
+     * @param node the root of the subtree.
+     * @return the number of nodes in the subtree.
+     */
+    private static long countNodes(Node node) {
+        long count = 1;
+        if (node instanceof Parent parent) {
+            for (Node child : parent.getChildrenUnmodifiable()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,45 @@
+package com.kihachu.spaceiteration1.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Produces interval reports of the registered metrics.
+ * Each reader keeps its own previous histogram snapshots, so several consumers (the overlay, the exporter)
+ * can report different intervals without resetting the shared histograms.
+ */
+public class MetricsReport {
+    private final Map<String, HistogramSnapshot> previous = new HashMap<>();
+
+    /**
+     * Takes the histogram snapshots for the interval since the previous call.
+     *
+     * @return the interval snapshots of all registered histograms.
+     */
+    public HistogramSnapshot[] nextInterval() {
+        LatencyHistogram[] histograms = Metrics.getHistograms();
+        HistogramSnapshot[] interval = new HistogramSnapshot[histograms.length];
+        for (int i = 0; i < histograms.length; i++) {
+            HistogramSnapshot current = histograms[i].snapshot();
+            interval[i] = current.minus(previous.put(current.getName(), current));
+        }
+        return interval;
+    }
+
+    /**
+     * Formats a nanosecond value as milliseconds with two decimals.
+     *
+     * @param builder the builder to append to.
+     * @param nanos the value in nanoseconds.
+     * @return the builder.
+     */
+    static StringBuilder appendMillis(StringBuilder builder, double nanos) {
+        long hundredths = Math.round(nanos / 10_000.0);
+        builder.append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        return builder.append(fraction);
+    }
+}
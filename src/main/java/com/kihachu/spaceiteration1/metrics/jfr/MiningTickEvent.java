@@ -0,0 +1,30 @@
+package com.kihachu.spaceiteration1.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event covering one mining tick.
+ * Emitted every tick while mining, so only ticks slower than the threshold are committed by default.
+ */
+@Name("com.kihachu.spaceiteration1.MiningTick")
+@Label("Mining Tick")
+@Category({"Space Iteration", "Simulation"})
+@Description("One simulation tick of mining an asteroid")
+@Threshold("1 ms")
+@StackTrace(false)
+public class MiningTickEvent extends Event {
+    @Label("Asteroid")
+    public String asteroid;
+
+    @Label("Mined")
+    public int mined;
+
+    @Label("Resources Left")
+    public int resourcesLeft;
+}
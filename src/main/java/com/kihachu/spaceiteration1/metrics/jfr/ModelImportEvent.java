@@ -0,0 +1,25 @@
+package com.kihachu.spaceiteration1.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event covering the import of a single model file.
+ */
+@Name("com.kihachu.spaceiteration1.ModelImport")
+@Label("Model Import")
+@Category({"Space Iteration", "Loading"})
+@Description("Import of a 3D model file")
+@StackTrace(false)
+public class ModelImportEvent extends Event {
+    @Label("Model Path")
+    public String modelPath;
+
+    @Label("Nodes")
+    @Description("Number of top-level nodes produced by the importer")
+    public int nodeCount;
+}
@@ -0,0 +1,28 @@
+package com.kihachu.spaceiteration1.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event covering one physics step.
+ * Emitted every step, so only steps slower than the threshold are committed by default.
+ */
+@Name("com.kihachu.spaceiteration1.PhysicsStep")
+@Label("Physics Step")
+@Category({"Space Iteration", "Simulation"})
+@Description("One step of the physics engine")
+@Threshold("1 ms")
+@StackTrace(false)
+public class PhysicsStepEvent extends Event {
+    @Label("Bodies")
+    public int bodyCount;
+
+    @Label("Time Step")
+    @Description("Simulated time advanced by the step, in seconds")
+    public double timeStep;
+}
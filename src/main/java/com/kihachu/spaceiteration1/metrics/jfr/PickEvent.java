@@ -0,0 +1,25 @@
+package com.kihachu.spaceiteration1.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event covering the handling of a mouse pick.
+ */
+@Name("com.kihachu.spaceiteration1.Pick")
+@Label("Pick")
+@Category({"Space Iteration", "Input"})
+@Description("Resolution of a mouse click to an asteroid")
+@StackTrace(false)
+public class PickEvent extends Event {
+    @Label("Hit")
+    @Description("Whether an asteroid was picked")
+    public boolean hit;
+
+    @Label("Asteroid")
+    public String asteroid;
+}
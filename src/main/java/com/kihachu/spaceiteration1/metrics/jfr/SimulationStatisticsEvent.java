@@ -0,0 +1,51 @@
+package com.kihachu.spaceiteration1.metrics.jfr;
+
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * Periodic Flight Recorder event carrying the simulation counters, so they can be correlated with GC and JIT activity.
+ */
+@Name("com.kihachu.spaceiteration1.SimulationStatistics")
+@Label("Simulation Statistics")
+@Category({"Space Iteration", "Simulation"})
+@Description("Periodic sample of the simulation counters")
+@Period("1 s")
+@StackTrace(false)
+public class SimulationStatisticsEvent extends Event {
+    @Label("Asteroids")
+    public long asteroidCount;
+
+    @Label("Mining Timers")
+    public long miningTimers;
+
+    @Label("Mined")
+    @Description("Total amount of resources mined so far")
+    public long mined;
+
+    private static boolean registered;
+
+    /**
+     * Registers the periodic emission of this event with the Flight Recorder. Repeated calls have no effect.
+     */
+    public static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        FlightRecorder.addPeriodicEvent(SimulationStatisticsEvent.class, () -> {
+            SimulationStatisticsEvent event = new SimulationStatisticsEvent();
+            event.asteroidCount = Metrics.sampleGauge("asteroids");
+            event.miningTimers = Metrics.MINING_TIMERS.get();
+            event.mined = Metrics.MINED.get();
+            event.commit();
+        });
+    }
+}
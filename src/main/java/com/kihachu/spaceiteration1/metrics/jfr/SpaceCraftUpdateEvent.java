@@ -0,0 +1,24 @@
+package com.kihachu.spaceiteration1.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event covering one spacecraft update.
+ * Emitted every frame, so only updates slower than the threshold are committed by default.
+ */
+@Name("com.kihachu.spaceiteration1.SpaceCraftUpdate")
+@Label("SpaceCraft Update")
+@Category({"Space Iteration", "Simulation"})
+@Description("Position and rotation update of the spacecraft")
+@Threshold("1 ms")
+@StackTrace(false)
+public class SpaceCraftUpdateEvent extends Event {
+    @Label("Velocity")
+    public double velocity;
+}
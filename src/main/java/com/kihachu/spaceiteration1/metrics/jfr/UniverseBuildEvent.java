@@ -0,0 +1,25 @@
+package com.kihachu.spaceiteration1.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event covering the construction of the universe.
+ */
+@Name("com.kihachu.spaceiteration1.UniverseBuild")
+@Label("Universe Build")
+@Category({"Space Iteration", "Loading"})
+@Description("Construction of the universe scene, including model import and asteroid generation")
+@StackTrace(false)
+public class UniverseBuildEvent extends Event {
+    @Label("Asteroids")
+    public int asteroidCount;
+
+    @Label("Nodes")
+    @Description("Number of direct children of the universe group")
+    public int nodeCount;
+}
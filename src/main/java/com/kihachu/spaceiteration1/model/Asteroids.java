@@ -1,112 +1,370 @@
 package com.kihachu.spaceiteration1.model;
 
-import com.interactivemesh.jfx.importer.tds.TdsModelImporter;
-import javafx.animation.Animation;
-import javafx.animation.RotateTransition;
+import com.kihachu.spaceiteration1.economy.ResourceType;
+import com.kihachu.spaceiteration1.graphics.AsteroidMeshCache;
+import com.kihachu.spaceiteration1.graphics.MaterialRegistry;
+import com.kihachu.spaceiteration1.graphics.ModelCache;
+import com.kihachu.spaceiteration1.graphics.SceneGrid;
+import com.kihachu.spaceiteration1.simulation.AsteroidField;
+import javafx.geometry.Point3D;
 import javafx.scene.Group;
 import javafx.scene.Node;
-import javafx.scene.transform.Rotate;
-import javafx.scene.transform.Translate;
-import javafx.util.Duration;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.MeshView;
+import javafx.scene.shape.TriangleMesh;
 
-import java.net.URL;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 /**
  * Represents a collection of asteroids in the universe.
- * Provides functionality for adding and removing asteroids.
+ * The asteroid state lives in an {@link AsteroidField}; this class creates the scene nodes for it
+ * and keeps them in sync with the simulation. Nodes only exist for the asteroids nearest to the ship, at most
+ * {@code maxNodes} of them within {@value #VIEW_DISTANCE}, so the scene stays small however large the field is.
+ * Both limits, and how often spins are applied, can be lowered at run time to trade quality for speed.
+ * The window of nearby asteroids is recomputed whenever the ship has moved a quarter of its radius.
+ * Nodes are placed in the cells of a {@link SceneGrid}, whose changes are applied in batches once per frame.
+ * With an {@link AsteroidMeshCache}, each asteroid gets one of its procedural shapes, colored by its resource type,
+ * instead of the imported model of its model id. Shapes are never waited for: until the shape of its variant is
+ * ready, an asteroid is drawn with its model, and its node is replaced once the shape is ready.
  */
 public class Asteroids {
-    private Group group;
+    /**
+     * The distance beyond which asteroids get no nodes, which matches the far clip of the camera.
+     */
+    public static final double VIEW_DISTANCE = 1_000_000;
+
+    private static final Point3D ROTATION_AXIS = new Point3D(1, 1, 1); // Rotation around axis (1, 1, 1)
+    private static final long REFRESH_INTERVAL_NANOS = 250_000_000;
+    // The colors of procedural asteroids, indexed by resource type: metal, silicate and ice
+    private static final Color[] RESOURCE_COLORS = {
+            Color.rgb(128, 118, 110), Color.rgb(150, 120, 90), Color.rgb(190, 215, 230)
+    };
+
+    private SceneGrid grid;
     private String[] asteroidModels;
+    private final AsteroidMeshCache meshes;
     private Random random;
+    private AsteroidField field;
+    private final int maxNodes;
+    private int nodeLimit;
+    private double viewDistance = VIEW_DISTANCE;
+    private int spinInterval = 1;
+    private long updates;
+    private final Map<Integer, Asteroid> asteroids = new HashMap<>();
+    // Asteroids drawn with their model because their procedural shape was not ready yet
+    private final List<Asteroid> standIns = new ArrayList<>();
+
+    /*
+     * The window of asteroids with nodes: its center and the distance of its farthest asteroid.
+     * Scratch arrays hold a max-heap of the nearest candidates by squared distance during a refresh.
+     */
+    private double windowX = Double.NaN;
+    private double windowY;
+    private double windowZ;
+    private double windowRadius;
+    private long lastRefresh;
+    private final BitSet selected = new BitSet();
+    private final int[] heapIds;
+    private final double[] heapDistances;
+    private int heapSize;
 
     /**
-     * Constructs an Asteroids object with the specified group and asteroid models.
+     * Constructs an Asteroids object with the specified scene grid, asteroid models and asteroid field.
      *
-     * @param group the group to which the asteroids will be added.
-     * @param asteroidModels an array of file paths to the asteroid models.
+     * @param grid the scene grid to which the asteroids will be added.
+     * @param asteroidModels an array of file paths to the asteroid models, indexed by model id.
+     * @param meshes the procedural asteroid shapes, or null to draw the asteroids with their models.
+     * @param field the asteroid field holding the simulation state.
+     * @param maxNodes the maximum number of asteroid nodes in the scene.
      */
-    public Asteroids(Group group, String[] asteroidModels) {
-        this.group = group;
+    public Asteroids(SceneGrid grid, String[] asteroidModels, AsteroidMeshCache meshes, AsteroidField field, int maxNodes) {
+        this.grid = grid;
         this.asteroidModels = asteroidModels;
+        this.meshes = meshes;
+        this.field = field;
         this.random = new Random();
+        this.maxNodes = maxNodes;
+        this.nodeLimit = maxNodes;
+        this.heapIds = new int[maxNodes];
+        this.heapDistances = new double[maxNodes];
     }
 
     /**
-     * Adds a specified number of asteroids to the group with random positions and rotations.
+     * Adds a specified number of asteroids to the field with random positions and rotations.
+     * Their nodes are created on the next update if they are near the ship.
      *
      * @param numberOfAsteroids the number of asteroids to add.
      */
     public void addAsteroids(int numberOfAsteroids) {
-        double spacing = 100000; // Радиус, в котором генерируются астероиды
-        for (int i = 0; i < numberOfAsteroids; i++) {
-            String modelPath = asteroidModels[random.nextInt(asteroidModels.length)];
-            Asteroid asteroid = new Asteroid("Asteroid" + i, modelPath, 10 + random.nextInt(491));
-            double x = (random.nextDouble() - 0.5) * spacing * 2;
-            double y = (random.nextDouble() - 0.5) * spacing * 2;
-            double z = (random.nextDouble() - 0.5) * spacing * 2;
-            asteroid.setPosition(x, y, z);
-            asteroid.setScale(30); // Увеличиваем размер астероида
-            addRotation(asteroid, random);
-            group.getChildren().add(asteroid);
+        field.populate(numberOfAsteroids, asteroidModels.length, random);
+        windowX = Double.NaN;
+    }
+
+    /**
+     * Creates the scene node of an asteroid.
+     *
+     * @param id the asteroid id.
+     */
+    private void createAsteroidNode(int id) {
+        MeshView view = meshes != null ? createProceduralView(id) : null;
+        Asteroid asteroid = view != null
+                ? new Asteroid(new Node[]{view}, field, id)
+                : new Asteroid(asteroidModels[field.getModelId(id)], field, id);
+        if (meshes != null && view == null) {
+            standIns.add(asteroid);
+        }
+        asteroid.setPosition(field.getX(id), field.getY(id), field.getZ(id));
+        asteroid.setScale(30); // Увеличиваем размер астероида
+        asteroid.setRotationAxis(ROTATION_AXIS);
+        asteroids.put(id, asteroid);
+        grid.add(asteroid, field.getX(id), field.getY(id), field.getZ(id));
+    }
+
+    /**
+     * Creates a view of the procedural shape of an asteroid, sharing the mesh of its variant and the material of its
+     * resource type.
+     *
+     * @param id the asteroid id.
+     * @return the view, or null if the shape is not ready yet.
+     */
+    private MeshView createProceduralView(int id) {
+        TriangleMesh mesh = meshes.getMesh(meshes.variantOf(id));
+        if (mesh == null) {
+            return null;
+        }
+        MeshView view = new MeshView(mesh);
+        ResourceType type = ResourceType.forModel(field.getModelId(id));
+        view.setMaterial(MaterialRegistry.color(RESOURCE_COLORS[type.ordinal()]));
+        return view;
+    }
+
+    /**
+     * Replaces the nodes of the asteroids drawn with their model whose procedural shapes have become ready.
+     */
+    private void replaceStandIns() {
+        Iterator<Asteroid> iterator = standIns.iterator();
+        while (iterator.hasNext()) {
+            Asteroid standIn = iterator.next();
+            int id = standIn.getAsteroidId();
+            if (asteroids.get(id) != standIn) {
+                // The node has left the window or its asteroid has been removed
+                iterator.remove();
+            } else if (meshes.getMesh(meshes.variantOf(id)) != null) {
+                iterator.remove();
+                removeNode(standIn);
+                createAsteroidNode(id);
+            }
         }
     }
 
     /**
-     * Adds rotation to a specified asteroid with random speed.
+     * Removes the scene node of an asteroid from its cell.
      *
-     * @param asteroid the asteroid to add rotation to.
-     * @param random the random number generator for determining the rotation speed.
+     * @param asteroid the asteroid node.
      */
-    private void addRotation(Asteroid asteroid, Random random) {
-        double randomSpeed = 1 + (5 - 1) * random.nextDouble(); // Random rotation speed in the range of 1 to 5 degrees per second
-        RotateTransition rotateTransition = new RotateTransition(Duration.seconds(360 / randomSpeed), asteroid);
-        rotateTransition.setByAngle(360);
-        rotateTransition.setCycleCount(Animation.INDEFINITE);
-        rotateTransition.setAxis(new javafx.geometry.Point3D(1, 1, 1)); // Rotation around axis (1, 1, 1)
-        rotateTransition.play();
+    private void removeNode(Asteroid asteroid) {
+        int id = asteroid.getAsteroidId();
+        grid.remove(asteroid, field.getX(id), field.getY(id), field.getZ(id));
     }
 
     /**
-     * Removes a specified asteroid from the group.
+     * Limits the number of asteroid nodes below the maximum the asteroids were constructed with.
+     * The window of nodes is recomputed on the next update.
      *
-     * @param asteroid the asteroid to remove.
+     * @param nodeLimit the maximum number of asteroid nodes, clamped to [0, maxNodes].
      */
-    public void removeAsteroid(Asteroid asteroid) {
-        group.getChildren().remove(asteroid);
+    public void setNodeLimit(int nodeLimit) {
+        this.nodeLimit = Math.max(0, Math.min(nodeLimit, maxNodes));
+        windowX = Double.NaN;
+    }
+
+    /**
+     * Sets the distance beyond which asteroids get no nodes. The window of nodes is recomputed on the next update.
+     *
+     * @param viewDistance the view distance, at most {@value #VIEW_DISTANCE}.
+     */
+    public void setViewDistance(double viewDistance) {
+        this.viewDistance = Math.min(viewDistance, VIEW_DISTANCE);
+        windowX = Double.NaN;
+    }
+
+    /**
+     * Sets how often the spin angles of the simulation are applied to the nodes.
+     *
+     * @param spinInterval the number of updates between spin updates, 1 for every update.
+     */
+    public void setSpinInterval(int spinInterval) {
+        this.spinInterval = Math.max(1, spinInterval);
+    }
+
+    /**
+     * Returns the node of the asteroid with the specified id.
+     *
+     * @param id the asteroid id.
+     * @return the asteroid node, or null if the asteroid has no node.
+     */
+    public Asteroid getAsteroid(int id) {
+        return asteroids.get(id);
+    }
+
+    /**
+     * Returns the number of asteroid nodes in the scene.
+     *
+     * @return the number of nodes.
+     */
+    public int getNodeCount() {
+        return asteroids.size();
+    }
+
+    /**
+     * Synchronizes the asteroid nodes with the simulation: moves the window of nodes along with the ship,
+     * applies the spin angles and removes the nodes of asteroids that have been removed from the field.
+     *
+     * @param shipX the X coordinate of the ship.
+     * @param shipY the Y coordinate of the ship.
+     * @param shipZ the Z coordinate of the ship.
+     */
+    public void update(double shipX, double shipY, double shipZ) {
+        long now = System.nanoTime();
+        if (Double.isNaN(windowX) || (now - lastRefresh >= REFRESH_INTERVAL_NANOS
+                && distanceSquared(windowX, windowY, windowZ, shipX, shipY, shipZ) > windowRadius * windowRadius / 16)) {
+            refreshWindow(shipX, shipY, shipZ);
+            lastRefresh = now;
+        }
+        if (!standIns.isEmpty()) {
+            replaceStandIns();
+        }
+        boolean spin = updates++ % spinInterval == 0;
+        Iterator<Asteroid> iterator = asteroids.values().iterator();
+        while (iterator.hasNext()) {
+            Asteroid asteroid = iterator.next();
+            if (field.isRemoved(asteroid.getAsteroidId())) {
+                iterator.remove();
+                removeNode(asteroid);
+            } else if (spin) {
+                asteroid.setRotate(field.getSpinAngle(asteroid.getAsteroidId()));
+            }
+        }
+    }
+
+    /**
+     * Selects the asteroids nearest to the specified point and replaces the nodes of the previous window with theirs.
+     *
+     * @param x the X coordinate of the window center.
+     * @param y the Y coordinate of the window center.
+     * @param z the Z coordinate of the window center.
+     */
+    private void refreshWindow(double x, double y, double z) {
+        heapSize = 0;
+        field.forEachWithin(x, y, z, viewDistance, id -> offer(id, distanceSquared(field.getX(id), field.getY(id), field.getZ(id), x, y, z)));
+        windowX = x;
+        windowY = y;
+        windowZ = z;
+        windowRadius = heapSize == nodeLimit && nodeLimit > 0 ? Math.sqrt(heapDistances[0]) : viewDistance;
+        for (int i = 0; i < heapSize; i++) {
+            selected.set(heapIds[i]);
+        }
+        Iterator<Asteroid> iterator = asteroids.values().iterator();
+        while (iterator.hasNext()) {
+            Asteroid asteroid = iterator.next();
+            if (!selected.get(asteroid.getAsteroidId())) {
+                iterator.remove();
+                removeNode(asteroid);
+            }
+        }
+        for (int i = 0; i < heapSize; i++) {
+            if (!asteroids.containsKey(heapIds[i])) {
+                createAsteroidNode(heapIds[i]);
+            }
+        }
+        selected.clear();
+    }
+
+    /**
+     * Offers an asteroid to the max-heap of the nearest asteroids, which keeps the farthest candidate at its root.
+     *
+     * @param id the asteroid id.
+     * @param distance the squared distance of the asteroid from the window center.
+     */
+    private void offer(int id, double distance) {
+        int i;
+        if (heapSize < nodeLimit) {
+            i = heapSize++;
+            while (i > 0 && heapDistances[(i - 1) / 2] < distance) {
+                int parent = (i - 1) / 2;
+                heapIds[i] = heapIds[parent];
+                heapDistances[i] = heapDistances[parent];
+                i = parent;
+            }
+        } else {
+            if (nodeLimit == 0 || distance >= heapDistances[0]) {
+                return;
+            }
+            i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && heapDistances[child + 1] > heapDistances[child]) {
+                    child++;
+                }
+                if (heapDistances[child] <= distance) {
+                    break;
+                }
+                heapIds[i] = heapIds[child];
+                heapDistances[i] = heapDistances[child];
+                i = child;
+            }
+        }
+        heapIds[i] = id;
+        heapDistances[i] = distance;
+    }
+
+    private static double distanceSquared(double ax, double ay, double az, double bx, double by, double bz) {
+        double dx = ax - bx;
+        double dy = ay - by;
+        double dz = az - bz;
+        return dx * dx + dy * dy + dz * dz;
     }
 
     /**
      * Represents a single asteroid in the universe.
-     * Provides functionality for setting its position, scale, and mining resources.
+     * Provides functionality for setting its position and scale; the simulation does the mining.
      */
     public static class Asteroid extends Group {
-        private String name;
-        private Translate translate;
-        private int resources;
+        private AsteroidField field;
+        private int id;
 
         /**
-         * Constructs an Asteroid object with the specified name, model path, and initial resources.
+         * Constructs an Asteroid object with the specified model path, backed by an asteroid of the field.
+         * The meshes and materials of the model are shared with the other asteroids of the same model.
          *
-         * @param name the name of the asteroid.
          * @param modelPath the path to the 3D model of the asteroid.
-         * @param resources the initial amount of resources in the asteroid.
+         * @param field the asteroid field holding the simulation state.
+         * @param id the id of the asteroid in the field.
          */
-        public Asteroid(String name, String modelPath, int resources) {
-            this.name = name;
-            this.resources = resources;
-            TdsModelImporter importer = new TdsModelImporter();
-            this.translate = new Translate();
-            URL modelUrl = getClass().getResource(modelPath);
-
-            if (modelUrl != null) {
-                importer.read(modelUrl);
-                Node[] meshViews = importer.getImport();
-                this.getChildren().addAll(meshViews);
-            } else {
-                System.err.println("Model not found at path: " + modelPath);
-            }
+        public Asteroid(String modelPath, AsteroidField field, int id) {
+            this(ModelCache.instantiate(modelPath), field, id);
+        }
+
+        /**
+         * Constructs an Asteroid object from the specified nodes, backed by an asteroid of the field.
+         *
+         * @param nodes the nodes drawing the asteroid.
+         * @param field the asteroid field holding the simulation state.
+         * @param id the id of the asteroid in the field.
+         */
+        public Asteroid(Node[] nodes, AsteroidField field, int id) {
+            this.field = field;
+            this.id = id;
+            this.getChildren().addAll(nodes);
         }
 
         /**
@@ -115,7 +373,16 @@ public class Asteroids {
          * @return the name of the asteroid.
          */
         public String getName() {
-            return name;
+            return "Asteroid" + id;
+        }
+
+        /**
+         * Returns the id of the asteroid in the asteroid field.
+         *
+         * @return the asteroid id.
+         */
+        public int getAsteroidId() {
+            return id;
         }
 
         /**
@@ -124,7 +391,7 @@ public class Asteroids {
          * @return the amount of resources remaining in the asteroid.
          */
         public int getResources() {
-            return resources;
+            return field.getResources(id);
         }
 
         /**
@@ -152,25 +419,12 @@ public class Asteroids {
         }
 
         /**
-         * Mines a specified amount of resources from the asteroid and adds them to the spacecraft's collected resources.
-         * If the asteroid's resources are depleted, it is removed from the group.
+         * Returns the type of resources the asteroid contains.
          *
-         * @param amount the amount of resources to mine.
-         * @param spaceCraft the spacecraft to add the mined resources to.
-         * @return the amount of resources mined.
+         * @return the resource type.
          */
-        public int mineResources(int amount, SpaceCraft spaceCraft) {
-            if (resources > 0) {
-                int mined = Math.min(resources, amount);
-                resources -= mined;
-                spaceCraft.collectedResources += mined;
-                if (resources == 0) {
-                    // Remove asteroid if resources are depleted
-                    ((Group) this.getParent()).getChildren().remove(this);
-                }
-                return mined;
-            }
-            return 0;
+        public ResourceType getResourceType() {
+            return ResourceType.forModel(field.getModelId(id));
         }
     }
 }
@@ -1,22 +1,27 @@
 package com.kihachu.spaceiteration1.model;
 
-import javafx.scene.image.Image;
+import com.kihachu.spaceiteration1.Constants;
+import com.kihachu.spaceiteration1.graphics.CubeSpherePlanet;
+import com.kihachu.spaceiteration1.graphics.PlanetTexture;
+import javafx.scene.Group;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
-import javafx.scene.shape.Sphere;
 
 /**
  * Represents a celestial body in the universe, such as a planet or a star.
  * Provides functionality for setting and getting its position, name, and color.
+ * The surface is a {@link CubeSpherePlanet}, which adds detail where the viewer is close.
  */
-public class CelestialBody extends Sphere {
+public class CelestialBody extends Group {
     private String name;
     private double radius;
     private Color color;
     private String texturePath;
+    private final CubeSpherePlanet surface;
 
     /**
      * Constructs a CelestialBody object with the specified name, radius, color, and texture path.
+     * The body is drawn in its color if the texture cannot be found.
      *
      * @param name the name of the celestial body.
      * @param radius the radius of the celestial body.
@@ -24,16 +29,27 @@ public class CelestialBody extends Sphere {
      * @param texturePath the path to the texture image file.
      */
     public CelestialBody(String name, double radius, Color color, String texturePath) {
-        super(radius);
         this.name = name;
         this.radius = radius;
         this.color = color;
         this.texturePath = texturePath ;
 
-        // Set the material for the sphere
-        PhongMaterial material = new PhongMaterial();
-        material.setDiffuseMap(new Image(TexturedSphere.class.getResource(texturePath).toExternalForm()));
-        this.setMaterial(material);
+        // Set the material for the surface, whose texture is streamed in from a tile pyramid
+        PhongMaterial material = new PhongMaterial(color);
+        PlanetTexture texture = PlanetTexture.open(name.toLowerCase(), TexturedSphere.class.getResource(texturePath));
+        this.surface = new CubeSpherePlanet(radius, material, texture, Constants.PLANET_TRIANGLE_BUDGET);
+        this.getChildren().add(surface.getRoot());
+    }
+
+    /**
+     * Adapts the detail of the surface to a viewer.
+     *
+     * @param viewX the X coordinate of the viewer in universe coordinates.
+     * @param viewY the Y coordinate of the viewer in universe coordinates.
+     * @param viewZ the Z coordinate of the viewer in universe coordinates.
+     */
+    public void updateDetail(double viewX, double viewY, double viewZ) {
+        surface.update(viewX - getTranslateX(), viewY - getTranslateY(), viewZ - getTranslateZ());
     }
 
     /**
@@ -45,6 +61,15 @@ public class CelestialBody extends Sphere {
         return name;
     }
 
+    /**
+     * Returns the radius of the celestial body.
+     *
+     * @return the radius of the celestial body.
+     */
+    public double getRadius() {
+        return radius;
+    }
+
     /**
      * Returns the color of the celestial body.
      *
@@ -0,0 +1,92 @@
+package com.kihachu.spaceiteration1.model;
+
+import com.kihachu.spaceiteration1.metrics.Counter;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import javafx.scene.Group;
+import javafx.scene.transform.Translate;
+
+/**
+ * Keeps the rendered coordinates small around the spacecraft, however far it travels.
+ *
+ * <p>Positions in the simulation and in the node translates stay in absolute universe coordinates, as doubles.
+ * The root of the 3D scene is translated by the negated origin, and JavaFX composes node transforms in double
+ * precision before handing the final matrices to the GPU as floats. Near the origin those matrices only hold small
+ * values, so there is no float jitter. Whenever the spacecraft moves more than {@link #REBASE_DISTANCE} from the
+ * origin, the origin is moved to the spacecraft. Rebasing only changes the one root transform, not the
+ * translates of the nodes below it.
+ */
+public class FloatingOrigin {
+    /**
+     * The distance from the origin at which the origin is moved to the spacecraft. Float coordinates
+     * of this magnitude still resolve below a hundredth of a unit.
+     */
+    public static final double REBASE_DISTANCE = 10000;
+
+    private static final Counter REBASES = Metrics.counter("origin.rebases");
+
+    private final Translate offset = new Translate();
+    private double originX;
+    private double originY;
+    private double originZ;
+
+    /**
+     * Constructs a FloatingOrigin that offsets the specified root group.
+     *
+     * @param root the root of the 3D scene.
+     */
+    public FloatingOrigin(Group root) {
+        root.getTransforms().add(0, offset);
+    }
+
+    /**
+     * Moves the origin to the specified position if it is too far from the current origin.
+     *
+     * @param x the X coordinate of the spacecraft.
+     * @param y the Y coordinate of the spacecraft.
+     * @param z the Z coordinate of the spacecraft.
+     * @return true if the origin was moved.
+     */
+    public boolean update(double x, double y, double z) {
+        double dx = x - originX;
+        double dy = y - originY;
+        double dz = z - originZ;
+        if (dx * dx + dy * dy + dz * dz < REBASE_DISTANCE * REBASE_DISTANCE) {
+            return false;
+        }
+        originX = x;
+        originY = y;
+        originZ = z;
+        offset.setX(-x);
+        offset.setY(-y);
+        offset.setZ(-z);
+        REBASES.increment();
+        return true;
+    }
+
+    /**
+     * Returns the X coordinate of the origin in universe coordinates.
+     *
+     * @return the X coordinate.
+     */
+    public double getOriginX() {
+        return originX;
+    }
+
+    /**
+     * Returns the Y coordinate of the origin in universe coordinates.
+     *
+     * @return the Y coordinate.
+     */
+    public double getOriginY() {
+        return originY;
+    }
+
+    /**
+     * Returns the Z coordinate of the origin in universe coordinates.
+     *
+     * @return the Z coordinate.
+     */
+    public double getOriginZ() {
+        return originZ;
+    }
+}
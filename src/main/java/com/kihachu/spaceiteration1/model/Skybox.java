@@ -42,6 +42,20 @@ public class Skybox extends Group {
         getChildren().addAll(front, back, left, right, top, bottom);
     }
 
+    /**
+     * Centers the skybox on the specified position, so it surrounds the camera wherever the spacecraft is
+     * and always appears infinitely far away.
+     *
+     * @param x the X coordinate.
+     * @param y the Y coordinate.
+     * @param z the Z coordinate.
+     */
+    public void centerOn(double x, double y, double z) {
+        setTranslateX(x);
+        setTranslateY(y);
+        setTranslateZ(z);
+    }
+
     /**
      * Creates a face of the skybox with the specified texture and position.
      *
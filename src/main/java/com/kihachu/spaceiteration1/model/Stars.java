@@ -1,8 +1,8 @@
 package com.kihachu.spaceiteration1.model;
 
+import com.kihachu.spaceiteration1.graphics.MaterialRegistry;
 import javafx.scene.Group;
 import javafx.scene.paint.Color;
-import javafx.scene.paint.PhongMaterial;
 import javafx.scene.shape.Sphere;
 
 import java.util.Random;
@@ -37,7 +37,7 @@ public class Stars {
         Random random = new Random();
         for (int i = 0; i < numberOfStars; i++) {
             Sphere star = new Sphere(2); // Star size
-            star.setMaterial(new PhongMaterial(Color.WHITE)); // Цвет звезды
+            star.setMaterial(MaterialRegistry.color(Color.WHITE)); // Цвет звезды
 
             // Random star location
             double x = (random.nextDouble() - 0.5) * 2000 * 2;
@@ -62,7 +62,7 @@ public class Stars {
         Random random = new Random();
         for (int i = 0; i < numberOfStars; i++) {
             Sphere star = new Sphere(2); // Размер звезды
-            star.setMaterial(new PhongMaterial(Color.WHITE)); // Цвет звезды
+            star.setMaterial(MaterialRegistry.color(Color.WHITE)); // Цвет звезды
 
             // Randomize the position of the star around the camera
             double x = cameraX + (random.nextDouble() - 0.5) * 2000;
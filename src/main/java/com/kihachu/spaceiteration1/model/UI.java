@@ -1,15 +1,28 @@
 package com.kihachu.spaceiteration1.model;
 
-import com.kihachu.spaceiteration1.camera.CameraController;
-import javafx.scene.Group;
+import com.kihachu.spaceiteration1.economy.LedgerView;
+import com.kihachu.spaceiteration1.hud.HudText;
+import com.kihachu.spaceiteration1.metrics.MetricsOverlay;
+import com.kihachu.spaceiteration1.simulation.Simulation;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.paint.Color;
-import javafx.scene.text.Font;
-import javafx.scene.text.Text;
 /**
  * UI class responsible for displaying and updating the user interface elements in the universe.
+ * The elements are fields of the universe's {@link com.kihachu.spaceiteration1.hud.Hud}.
  */
 public class UI {
-    private Text text;
+    /**
+     * The minimum time between two updates of the resources text, in nanoseconds.
+     */
+    private static final long RESOURCES_REFRESH_NANOS = 100_000_000;
+
+    private HudText text;
+    private HudText metricsText;
+    private HudText warpText;
+    private int shownWarp;
+    private LedgerView resourcesView;
+    private MetricsOverlay metricsOverlay;
     private Universe universe;
 
     /**
@@ -18,19 +31,42 @@ public class UI {
      * @param universe the universe instance containing the spacecraft and camera controller.
      */
     public UI (Universe universe){
-        this.text = new Text("Collected resources: " + universe.getSpaceCraft().getCollectedResources() + "kg");
-        text.setFont(new Font(40));
         this.universe = universe;
-        text.setFill(Color.WHITE);
-        text.setLayoutX(300);
-        text.setLayoutY(300);
-        universe.getCameraController().spaceCraftGroup.getChildren().add(text);
+        this.resourcesView = new LedgerView(universe.getSimulation().getLedger(), Simulation.SHIP_ACCOUNT, RESOURCES_REFRESH_NANOS);
+        this.text = universe.getHud().addText(40, 60, 32, Color.WHITE);
+        this.warpText = universe.getHud().addText(40, 25, 20, Color.YELLOW);
+        updateText();
+        initMetricsOverlay();
+    }
+
+    /**
+     * Initializes the metrics overlay below the resources text. It starts hidden; pressing F3 toggles it.
+     */
+    private void initMetricsOverlay() {
+        this.metricsText = universe.getHud().addText(40, 160, 16, Color.LIGHTGREEN);
+        metricsText.setVisible(false);
+        this.metricsOverlay = new MetricsOverlay(metricsText, universe.getUniverseGroup());
+        universe.getUniverseScene().addEventHandler(KeyEvent.KEY_PRESSED, keyEvent -> {
+            if (keyEvent.getCode() == KeyCode.F3) {
+                metricsOverlay.toggle();
+            }
+        });
     }
 
     /**
      * Updates the text element on the screen with the current amount of collected resources.
+     * Called every frame; the ledger is sampled at most every {@value #RESOURCES_REFRESH_NANOS} ns,
+     * and the HUD only touches the text node when the amounts have changed. The time warp factor is shown while it is above 1.
      */
     public void updateText(){
-        this.text.setText("Collected resources: " + this.universe.getSpaceCraft().getCollectedResources() + "kg");
+        if (resourcesView.refresh(System.nanoTime())) {
+            text.set(resourcesView.getText());
+        }
+        int warp = universe.getSimulation().getWarp();
+        if (warp != shownWarp) {
+            shownWarp = warp;
+            warpText.begin().append("Time warp ").append(warp).append('x');
+            warpText.setVisible(warp > 1);
+        }
     }
 }
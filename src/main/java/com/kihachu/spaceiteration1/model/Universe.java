@@ -2,17 +2,100 @@ package com.kihachu.spaceiteration1.model;
 
 import com.kihachu.spaceiteration1.camera.CameraController;
 import com.kihachu.spaceiteration1.camera.Controller;
+import com.kihachu.spaceiteration1.Constants;
+import com.kihachu.spaceiteration1.controller.InputDispatcher;
+import com.kihachu.spaceiteration1.controller.InputEvent;
+import com.kihachu.spaceiteration1.controller.InputReplay;
+import com.kihachu.spaceiteration1.controller.KeyController;
+import com.kihachu.spaceiteration1.graphics.AsteroidMeshCache;
+import com.kihachu.spaceiteration1.graphics.BeamPool;
+import com.kihachu.spaceiteration1.graphics.LightManager;
+import com.kihachu.spaceiteration1.graphics.OcclusionCuller;
+import com.kihachu.spaceiteration1.graphics.QualityGovernor;
+import com.kihachu.spaceiteration1.graphics.QualityLevel;
+import com.kihachu.spaceiteration1.graphics.SceneGrid;
+import com.kihachu.spaceiteration1.graphics.SceneMutationQueue;
+import com.kihachu.spaceiteration1.hud.Hud;
+import com.kihachu.spaceiteration1.logging.Log;
+import com.kihachu.spaceiteration1.logging.Logger;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import com.kihachu.spaceiteration1.metrics.MetricsExporter;
+import com.kihachu.spaceiteration1.metrics.jfr.SimulationStatisticsEvent;
+import com.kihachu.spaceiteration1.metrics.jfr.UniverseBuildEvent;
+import com.kihachu.spaceiteration1.persistence.UniverseStore;
+import com.kihachu.spaceiteration1.simulation.BodyState;
+import com.kihachu.spaceiteration1.simulation.ShipState;
+import com.kihachu.spaceiteration1.simulation.Simulation;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Point3D;
 import javafx.scene.Group;
 import javafx.scene.PerspectiveCamera;
 import javafx.scene.Scene;
+import javafx.scene.SceneAntialiasing;
+import javafx.scene.SubScene;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
+import javafx.stage.WindowEvent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents the entire universe in the application.
  * Manages the initialization and setup of all celestial bodies, asteroids, spacecraft, and the camera controller.
  */
 public class Universe {
+    private static final Logger INPUT_LOG = Log.logger("input");
+    private static final Logger PERSISTENCE_LOG = Log.logger("persistence");
+
+    private static final long TICK_NANOS = Math.round(Simulation.TICK_SECONDS * 1e9);
+    private static final int MAX_TICKS_PER_FRAME = 5;
+
+    /**
+     * The simulation state that the scene graph displays.
+     */
+    private Simulation simulation;
+
+    /**
+     * Routes user input to the simulation and records or replays it.
+     */
+    private InputDispatcher inputDispatcher;
+
+    /**
+     * The file snapshots are loaded from and saved to.
+     */
+    private final Path snapshotFile = Path.of(System.getProperty(Constants.SNAPSHOT_PROPERTY, Constants.DEFAULT_SNAPSHOT_FILE));
+
+    /**
+     * Saves checkpoints and autosave journals of the simulation in the background.
+     */
+    private final UniverseStore universeStore = new UniverseStore(snapshotFile);
+
+    /**
+     * The number of simulation steps between autosaves, or 0 if autosaving is disabled. Steps rather than ticks
+     * are counted so that the autosave period stays in real time under time warp.
+     */
+    private final long autosaveTicks = Math.round(Long.getLong(Constants.AUTOSAVE_PERIOD_PROPERTY, 30) / Simulation.TICK_SECONDS);
+
+    /**
+     * The number of simulation steps since the last autosave.
+     */
+    private long stepsSinceAutosave;
+
+    /**
+     * Whether F5 and autosaves write to the snapshot file. Saving is disabled while input is recorded or replayed,
+     * since those sessions start from a generated universe rather than the one the snapshot holds, and when an
+     * unreadable snapshot cannot be moved aside.
+     */
+    private boolean saving;
+
     /**
      * Manages the asteroids in the universe.
      */
@@ -43,6 +126,66 @@ public class Universe {
      */
     Group universeGroup;
 
+    /**
+     * The 3D view of the universe group, drawn below the HUD.
+     */
+    SubScene worldView;
+
+    /**
+     * The 2D heads-up display drawn over the 3D view.
+     */
+    Hud hud;
+
+    /**
+     * Keeps the rendered coordinates small around the spacecraft.
+     */
+    FloatingOrigin floatingOrigin;
+
+    /**
+     * The background, which follows the spacecraft.
+     */
+    Skybox skybox;
+
+    /**
+     * The reusable laser beams of all ships.
+     */
+    BeamPool beams;
+
+    /**
+     * The queue through which nodes are added to and removed from the scene, drained once per frame.
+     */
+    SceneMutationQueue sceneMutations;
+
+    /**
+     * The spatial hierarchy of groups the asteroid nodes are placed in.
+     */
+    SceneGrid sceneGrid;
+
+    /**
+     * Limits the lights applied to each region of the scene.
+     */
+    LightManager lights;
+
+    /**
+     * Hides the asteroids that the celestial bodies hide from the camera.
+     */
+    OcclusionCuller occlusion;
+
+    /**
+     * Chooses the rendering quality from the frame times.
+     */
+    QualityGovernor qualityGovernor;
+
+    /**
+     * The quality level currently applied to the scene, or null before the first frame.
+     */
+    QualityLevel quality;
+
+    /**
+     * The nodes of the celestial bodies, in the order of {@link Simulation#getBodies()}.
+     */
+    private final List<CelestialBody> celestialBodies = new ArrayList<>();
+
     /**
      * The controller for handling camera movements and interactions.
      */
@@ -63,39 +206,71 @@ public class Universe {
      */
     UI ui;
 
+    /**
+     * Periodically exports metrics to a file, or null if exporting is disabled.
+     */
+    MetricsExporter metricsExporter;
+
     /**
      * Constructs a Universe object and initializes the scene, camera, spacecraft, and other components.
      *
      * @param universeStage the primary stage for the universe.
      */
     public Universe(Stage universeStage) {
+        UniverseBuildEvent buildEvent = new UniverseBuildEvent();
+        buildEvent.begin();
         this.universeStage = universeStage;
+        InputReplay replay = openReplay();
+        // An input journal only names the seed it starts from, so recordings and replays never start from a snapshot
+        this.saving = replay == null && System.getProperty(Constants.INPUT_RECORD_PROPERTY) == null;
+        this.simulation = saving ? loadSnapshot() : null;
+        if (simulation == null) {
+            long seed = replay != null ? replay.getSeed() : Long.getLong(Constants.SEED_PROPERTY, new Random().nextLong());
+            int asteroidCount = replay != null ? replay.getAsteroidCount() : Constants.ASTEROID_COUNT;
+            this.simulation = Simulation.createDefault(asteroidCount, Constants.ASTEROID_MODELS.length, seed);
+        }
+        this.inputDispatcher = new InputDispatcher(simulation);
         PerspectiveCamera camera = new PerspectiveCamera(true);
         this.universeGroup = new Group();
-        this.universeScene = new Scene(universeGroup, WIDTH, HEIGHT, true);
-        this.spaceCraft = new SpaceCraft("SpaceCraft", "/models/HST/hst.3ds", -90, 0, 0);
+        this.floatingOrigin = new FloatingOrigin(universeGroup);
+        this.beams = new BeamPool(Constants.BEAM_POOL_SIZE);
+        universeGroup.getChildren().add(beams.getRoot());
+        this.sceneMutations = new SceneMutationQueue(Constants.SCENE_MUTATION_CAPACITY);
+        this.sceneGrid = new SceneGrid(sceneMutations, Constants.SCENE_CELL_SIZE);
+        universeGroup.getChildren().add(sceneGrid.getRoot());
+        this.lights = new LightManager(sceneGrid, Constants.MAX_LIGHTS_PER_REGION);
+        universeGroup.getChildren().add(lights.getRoot());
+        this.occlusion = new OcclusionCuller(sceneGrid);
+        this.worldView = new SubScene(universeGroup, WIDTH, HEIGHT, true, SceneAntialiasing.DISABLED);
+        worldView.setFill(Color.BLACK);
+        this.hud = new Hud(Double.parseDouble(System.getProperty(Constants.HUD_RATE_PROPERTY, "0")));
+        this.universeScene = new Scene(new Group(worldView, hud.getRoot()), WIDTH, HEIGHT);
+        worldView.widthProperty().bind(universeScene.widthProperty());
+        worldView.heightProperty().bind(universeScene.heightProperty());
+        this.spaceCraft = new SpaceCraft("SpaceCraft", "/models/HST/hst.3ds", simulation.getShip());
         this.cameraController = new CameraController(universeStage, camera, universeGroup, universeScene, getUniverse());
-        this.universeScene.setCamera(camera);
-        this.controller = new Controller(universeScene, spaceCraft);
+        this.worldView.setCamera(camera);
+        lights.addGlobal(cameraController.getHeadlight());
+        this.controller = new Controller(universeScene, spaceCraft, new KeyController(universeStage, inputDispatcher));
         this.ui = new UI(getUniverse());
 
-        String[] asteroidModels = {
-                "/models/asteroid/asteroid1.3ds",
-                "/models/asteroid/asteroid2.3ds",
-                "/models/asteroid/asteroid3.3ds",
-                "/models/asteroid/asteroid4.3ds",
-                "/models/asteroid/asteroid5.3ds",
-                "/models/asteroid/asteroid6.3ds",
-                "/models/asteroid/asteroid7.3ds",
-                "/models/asteroid/asteroid8.3ds"
-        };
-        this.asteroids = new Asteroids(universeGroup, asteroidModels);
-
-        asteroids.addAsteroids(1000);
+        this.asteroids = new Asteroids(sceneGrid, Constants.ASTEROID_MODELS, createAsteroidMeshes(),
+                simulation.getAsteroidField(), Integer.getInteger(Constants.ASTEROID_NODES_PROPERTY, Constants.DEFAULT_ASTEROID_NODES));
+        this.qualityGovernor = createQualityGovernor();
         addSkybox();
         addCelestialBodies();
         addSpaceCraft();
+        startMetricsExport();
+        startInput(replay);
+        startSnapshots();
+        startSimulation();
 
+        buildEvent.end();
+        if (buildEvent.shouldCommit()) {
+            buildEvent.asteroidCount = simulation.getAsteroidField().getActiveCount();
+            buildEvent.nodeCount = universeGroup.getChildren().size();
+            buildEvent.commit();
+        }
     }
 
     /**
@@ -107,6 +282,52 @@ public class Universe {
         return ui;
     }
 
+    /**
+     * Returns the heads-up display.
+     *
+     * @return the HUD.
+     */
+    public Hud getHud() {
+        return hud;
+    }
+
+    /**
+     * Returns the pool of laser beams.
+     *
+     * @return the beam pool.
+     */
+    public BeamPool getBeams() {
+        return beams;
+    }
+
+    /**
+     * Returns the queue through which nodes are added to and removed from the scene.
+     * Nodes may be posted from any thread and are attached on the next frame.
+     *
+     * @return the scene mutation queue.
+     */
+    public SceneMutationQueue getSceneMutations() {
+        return sceneMutations;
+    }
+
+    /**
+     * Returns the spatial hierarchy of groups the asteroid nodes are placed in.
+     *
+     * @return the scene grid.
+     */
+    public SceneGrid getSceneGrid() {
+        return sceneGrid;
+    }
+
+    /**
+     * Returns the manager of the lights in the scene.
+     *
+     * @return the light manager.
+     */
+    public LightManager getLights() {
+        return lights;
+    }
+
     /**
      * Returns the scene representing the universe.
      *
@@ -159,11 +380,29 @@ public class Universe {
      */
     public SpaceCraft getSpaceCraft() { return this.spaceCraft; }
 
+    /**
+     * Returns the dispatcher that routes user input to the simulation.
+     *
+     * @return the input dispatcher.
+     */
+    public InputDispatcher getInputDispatcher() {
+        return this.inputDispatcher;
+    }
+
+    /**
+     * Returns the simulation displayed by this universe.
+     *
+     * @return the simulation.
+     */
+    public Simulation getSimulation() {
+        return this.simulation;
+    }
+
     /**
      * Adds a skybox to the universe group.
      */
     private void addSkybox() {
-        Skybox skybox = new Skybox();
+        this.skybox = new Skybox();
         universeGroup.getChildren().add(skybox);
     }
 
@@ -171,8 +410,32 @@ public class Universe {
      * Adds celestial bodies to the universe group.
      */
     private void addCelestialBodies() {
-        CelestialBody earth = CelestialBody.createCelestialBody("Earth", 10000, Color.BLUE, 0, 0, 200000, "/textures/earth/earth.jpg");
-        universeGroup.getChildren().addAll(earth);
+        for (BodyState body : simulation.getBodies()) {
+            String texture = "/textures/" + body.getName().toLowerCase() + "/" + body.getName().toLowerCase() + ".jpg";
+            Color color = body.getName().equals("Earth") ? Color.BLUE : Color.GRAY;
+            CelestialBody node = CelestialBody.createCelestialBody(body.getName(), body.getRadius(), color,
+                    body.getX(), body.getY(), body.getZ(), texture);
+            celestialBodies.add(node);
+            universeGroup.getChildren().add(node);
+            lights.addRegion(node);
+            occlusion.addOccluder(node, body.getRadius());
+        }
+    }
+
+    /**
+     * Moves the celestial body nodes to the positions of their bodies in the simulation
+     * and adapts the detail of their surfaces to the spacecraft.
+     *
+     * @param ship the state of the spacecraft.
+     */
+    private void updateCelestialBodies(ShipState ship) {
+        List<BodyState> bodies = simulation.getBodies();
+        for (int i = 0; i < celestialBodies.size(); i++) {
+            BodyState body = bodies.get(i);
+            CelestialBody node = celestialBodies.get(i);
+            node.setPosition(body.getX(), body.getY(), body.getZ());
+            node.updateDetail(ship.getX(), ship.getY(), ship.getZ());
+        }
     }
 
     /**
@@ -181,6 +444,239 @@ public class Universe {
     private void addSpaceCraft() {
         cameraController.setSpaceCraft(spaceCraft);
         controller.setSpaceCraft(spaceCraft);
+        lights.addRegion(spaceCraft);
+    }
+
+    /**
+     * Opens the input journal configured with the {@value Constants#INPUT_REPLAY_PROPERTY} system property.
+     *
+     * @return the replay, or null if no replay has been configured or the journal cannot be read.
+     */
+    private InputReplay openReplay() {
+        String file = System.getProperty(Constants.INPUT_REPLAY_PROPERTY);
+        if (file == null) {
+            return null;
+        }
+        try {
+            return new InputReplay(Path.of(file));
+        } catch (IOException e) {
+            INPUT_LOG.warn("Could not open input journal {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Loads the snapshot file and replays its journal if it exists. A snapshot that cannot be read is moved aside,
+     * or saving is disabled if it cannot be moved either, so that the fresh universe never overwrites it.
+     *
+     * @return the restored simulation, or null if there is no snapshot or it cannot be read.
+     */
+    private Simulation loadSnapshot() {
+        if (!Files.exists(snapshotFile)) {
+            return null;
+        }
+        try {
+            Simulation loaded = universeStore.load();
+            PERSISTENCE_LOG.info("Loaded snapshot {} at tick {}", snapshotFile, loaded.getTick());
+            return loaded;
+        } catch (IOException e) {
+            PERSISTENCE_LOG.warn("Could not load snapshot {}: {}", snapshotFile, e.getMessage());
+            try {
+                PERSISTENCE_LOG.warn("Moved unreadable snapshot to {}", universeStore.moveAside());
+            } catch (IOException moveError) {
+                PERSISTENCE_LOG.warn("Could not move snapshot {} aside, saving is disabled: {}", snapshotFile, moveError.getMessage());
+                saving = false;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Installs the F5 handler that saves a full snapshot. The state is captured on the FX thread between ticks
+     * and written to disk in the background. Autosaves are triggered from the render loop.
+     */
+    private void startSnapshots() {
+        if (!saving) {
+            PERSISTENCE_LOG.info("Saving to {} is disabled in this session", snapshotFile);
+        }
+        universeScene.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
+            if (event.getCode() == KeyCode.F5 && saving) {
+                reportSave(universeStore.checkpoint(simulation), "Saved snapshot " + snapshotFile);
+            }
+        });
+        universeStage.addEventHandler(WindowEvent.WINDOW_HIDDEN, event -> universeStore.close());
+    }
+
+    /**
+     * Copies the next chunk of a checkpoint in progress, and appends the changes since the previous save to the
+     * journal if autosaving is enabled and it is due.
+     */
+    private void autosaveIfDue() {
+        if (!saving) {
+            return;
+        }
+        universeStore.advance();
+        if (autosaveTicks > 0 && ++stepsSinceAutosave >= autosaveTicks) {
+            stepsSinceAutosave = 0;
+            reportSave(universeStore.autosave(simulation), "Autosaved to " + snapshotFile);
+        }
+    }
+
+    private void reportSave(CompletableFuture<Long> save, String message) {
+        save.whenComplete((bytes, error) -> {
+            if (error != null) {
+                PERSISTENCE_LOG.warn("Could not save snapshot: {}", error.getMessage());
+            } else {
+                PERSISTENCE_LOG.info("{} ({} bytes)", message, bytes);
+            }
+        });
+    }
+
+    /**
+     * Starts replaying the specified journal, or recording input if a journal file has been configured with the
+     * {@value Constants#INPUT_RECORD_PROPERTY} system property. Replayed camera movements and mining are mirrored
+     * in the view.
+     *
+     * @param replay the journal to replay, or null.
+     */
+    private void startInput(InputReplay replay) {
+        if (replay != null) {
+            inputDispatcher.replay(replay);
+            inputDispatcher.addReplayListener(this::showReplayedInput);
+        } else if (System.getProperty(Constants.INPUT_RECORD_PROPERTY) != null) {
+            String file = System.getProperty(Constants.INPUT_RECORD_PROPERTY);
+            try {
+                inputDispatcher.record(Path.of(file));
+            } catch (IOException e) {
+                INPUT_LOG.warn("Could not record input to {}: {}", file, e.getMessage());
+            }
+        }
+        universeStage.addEventHandler(WindowEvent.WINDOW_HIDDEN, event -> inputDispatcher.close());
+    }
+
+    /**
+     * Mirrors a replayed input event in the view.
+     *
+     * @param event the replayed event.
+     */
+    private void showReplayedInput(InputEvent event) {
+        switch (event.getType()) {
+            case CAMERA -> cameraController.setCameraAngles(event.getX(), event.getY());
+            case ZOOM -> cameraController.zoom(event.getX());
+            case MINE -> {
+                Asteroids.Asteroid asteroid = asteroids.getAsteroid(event.getAsteroidId());
+                if (asteroid != null) {
+                    cameraController.getRaycastingController().startMining(asteroid);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Starts the render loop, which advances the simulation in fixed ticks of {@link Simulation#TICK_SECONDS}
+     * and then synchronizes the scene graph with it. The fixed timestep keeps recorded input reproducible.
+     */
+    private void startSimulation() {
+        new AnimationTimer() {
+            private long lastFrame;
+            private long accumulator;
+
+            @Override
+            public void handle(long now) {
+                applyQuality(qualityGovernor.onFrame(now));
+                accumulator += lastFrame == 0 ? TICK_NANOS : now - lastFrame;
+                lastFrame = now;
+                int ticks = 0;
+                while (accumulator >= TICK_NANOS && ticks < MAX_TICKS_PER_FRAME) {
+                    inputDispatcher.beforeTick();
+                    simulation.tick();
+                    autosaveIfDue();
+                    accumulator -= TICK_NANOS;
+                    ticks++;
+                }
+                if (ticks == MAX_TICKS_PER_FRAME) {
+                    // Drop the backlog instead of spiralling when the simulation cannot keep up
+                    accumulator = 0;
+                }
+                ShipState ship = simulation.getShip();
+                spaceCraft.update();
+                asteroids.update(ship.getX(), ship.getY(), ship.getZ());
+                sceneMutations.drain(Constants.SCENE_MUTATION_BUDGET_NANOS);
+                lights.update();
+                updateCelestialBodies(ship);
+                ui.updateText();
+                cameraController.updateCameraPosition();
+                Point3D eye = cameraController.getEyePosition();
+                occlusion.update(eye.getX(), eye.getY(), eye.getZ());
+                floatingOrigin.update(ship.getX(), ship.getY(), ship.getZ());
+                skybox.centerOn(ship.getX(), ship.getY(), ship.getZ());
+                hud.flush(now);
+            }
+        }.start();
+    }
+
+    /**
+     * Creates the cache of procedural asteroid shapes configured by the {@value Constants#ASTEROID_VARIANTS_PROPERTY}
+     * and {@value Constants#ASTEROID_SHAPES_PROPERTY} system properties, and starts generating them.
+     *
+     * @return the cache, or null if the asteroids use the imported models.
+     */
+    private AsteroidMeshCache createAsteroidMeshes() {
+        int variants = Integer.getInteger(Constants.ASTEROID_VARIANTS_PROPERTY, Constants.DEFAULT_ASTEROID_VARIANTS);
+        if (variants <= 0) {
+            return null;
+        }
+        String directory = System.getProperty(Constants.ASTEROID_SHAPES_PROPERTY);
+        AsteroidMeshCache meshes = new AsteroidMeshCache(variants, Constants.ASTEROID_SUBDIVISIONS,
+                Constants.ASTEROID_SHAPE_RADIUS, Constants.ASTEROID_SHAPE_SEED, directory == null ? null : Path.of(directory));
+        meshes.prefetch();
+        return meshes;
+    }
+
+    /**
+     * Creates the quality governor, with the level fixed by the {@value Constants#QUALITY_PROPERTY} system property
+     * if it is set.
+     *
+     * @return the quality governor.
+     */
+    private QualityGovernor createQualityGovernor() {
+        String fixed = System.getProperty(Constants.QUALITY_PROPERTY);
+        double targetFps = Double.parseDouble(System.getProperty(Constants.TARGET_FPS_PROPERTY,
+                String.valueOf(Constants.DEFAULT_TARGET_FPS)));
+        return new QualityGovernor(targetFps, fixed == null ? null : QualityLevel.valueOf(fixed.toUpperCase()));
+    }
+
+    /**
+     * Applies a quality level to the asteroids and the HUD if it differs from the current one.
+     *
+     * @param level the quality level.
+     */
+    private void applyQuality(QualityLevel level) {
+        if (level == quality) {
+            return;
+        }
+        quality = level;
+        int maxNodes = Integer.getInteger(Constants.ASTEROID_NODES_PROPERTY, Constants.DEFAULT_ASTEROID_NODES);
+        asteroids.setNodeLimit((int) Math.round(maxNodes * level.getNodeFraction()));
+        asteroids.setViewDistance(Asteroids.VIEW_DISTANCE * level.getDistanceFraction());
+        asteroids.setSpinInterval(level.getSpinInterval());
+        hud.setRefreshRate(level.getHudRate());
+    }
+
+    /**
+     * Starts exporting metrics if a metrics file has been configured with the
+     * {@value Constants#METRICS_FILE_PROPERTY} system property.
+     */
+    private void startMetricsExport() {
+        SimulationStatisticsEvent.register();
+        String file = System.getProperty(Constants.METRICS_FILE_PROPERTY);
+        if (file != null) {
+            metricsExporter = new MetricsExporter(Path.of(file));
+            metricsExporter.start(Long.getLong(Constants.METRICS_PERIOD_PROPERTY, 5));
+            universeStage.addEventHandler(WindowEvent.WINDOW_HIDDEN, event -> metricsExporter.stop());
+        }
     }
 
 
@@ -0,0 +1,212 @@
+package com.kihachu.spaceiteration1.persistence;
+
+import com.kihachu.spaceiteration1.simulation.AsteroidField;
+import com.kihachu.spaceiteration1.simulation.Simulation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of the changes made to a simulation since its last snapshot (the checkpoint).
+ *
+ * <p>The file starts with a header naming the seed and tick of the checkpoint it belongs to, so a journal left
+ * behind by a crash during compaction is recognised as stale and ignored. Each record holds the tick, the ship
+ * state and the asteroids that changed, and is prefixed with its length and a CRC32C checksum. Replay stops at the
+ * first torn or corrupt record, and reopening the journal truncates it there. The journal is read into the heap
+ * rather than memory-mapped, since a file cannot be truncated on Windows while a mapping of it exists.
+ */
+class ChangeJournal implements Closeable {
+    static final int MAGIC = 0x53494A43; // "SIJC"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+    static final int RECORD_HEADER_BYTES = 4 + 4;
+    static final int ROW_BYTES = 4 + 4 * 8 + 4 + 4 + 1;
+
+    private final FileChannel channel;
+    private long size;
+
+    private ChangeJournal(FileChannel channel, long size) {
+        this.channel = channel;
+        this.size = size;
+    }
+
+    /**
+     * Returns the journal file that belongs to a snapshot file.
+     *
+     * @param snapshotFile the snapshot file.
+     * @return the journal file.
+     */
+    static Path fileFor(Path snapshotFile) {
+        return snapshotFile.resolveSibling(snapshotFile.getFileName() + ".journal");
+    }
+
+    /**
+     * Creates an empty journal for a new checkpoint, replacing any existing journal.
+     *
+     * @param file the journal file.
+     * @param seed the seed of the checkpointed simulation.
+     * @param checkpointTick the tick of the checkpoint.
+     * @return the journal, open for appending.
+     * @throws IOException if the journal cannot be created.
+     */
+    static ChangeJournal create(Path file, long seed, long checkpointTick) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putLong(seed).putLong(checkpointTick).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(false);
+        return new ChangeJournal(channel, HEADER_BYTES);
+    }
+
+    /**
+     * Applies a journal to a simulation restored from its checkpoint and reopens the journal for appending.
+     * A missing or stale journal is replaced by an empty one.
+     *
+     * @param file the journal file.
+     * @param checkpoint the simulation restored from the checkpoint; its field and ship are updated in place.
+     * @return the open journal and the state at its last valid record.
+     * @throws IOException if the journal cannot be read or created.
+     */
+    static Replayed replay(Path file, Simulation checkpoint) throws IOException {
+        if (!Files.exists(file)) {
+            return new Replayed(create(file, checkpoint.getSeed(), checkpoint.getTick()), checkpoint.getTick(),
+                    checkpoint.getMiningTarget(), 0);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        if (fileSize > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("Journal is too large: " + file);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) fileSize).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            SnapshotReader.readFully(channel, buffer, 0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        buffer.flip();
+        if (fileSize < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getLong() != checkpoint.getSeed() || buffer.getLong() != checkpoint.getTick()) {
+            channel.close();
+            return new Replayed(create(file, checkpoint.getSeed(), checkpoint.getTick()), checkpoint.getTick(),
+                    checkpoint.getMiningTarget(), 0);
+        }
+
+        long tick = checkpoint.getTick();
+        int miningTarget = checkpoint.getMiningTarget();
+        int records = 0;
+        CRC32C crc = new CRC32C();
+        while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 8 + 4 + SnapshotWriter.SHIP_BYTES + 4 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            ByteBuffer payload = buffer.slice(buffer.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                buffer.position(start);
+                break;
+            }
+            tick = payload.getLong();
+            miningTarget = payload.getInt();
+            SnapshotReader.getShip(payload, checkpoint.getShip(), checkpoint.getLedger());
+            AsteroidField field = checkpoint.getAsteroidField();
+            int rows = payload.getInt();
+            for (int i = 0; i < rows; i++) {
+                field.set(payload.getInt(), payload.getDouble(), payload.getDouble(), payload.getDouble(),
+                        payload.getDouble(), payload.getInt(), payload.getInt(), payload.get() != 0);
+            }
+            buffer.position(buffer.position() + length);
+            records++;
+        }
+        // Drop a torn tail so new records are appended after the last valid one
+        long validSize = buffer.position();
+        channel.truncate(validSize);
+        channel.position(validSize);
+        checkpoint.getAsteroidField().clearDirty();
+        return new Replayed(new ChangeJournal(channel, validSize), tick, miningTarget, records);
+    }
+
+    /**
+     * Encodes a record with the current tick, mining target and ship state and the specified asteroids.
+     *
+     * @param simulation the simulation.
+     * @param ids the ids of the changed asteroids.
+     * @return the encoded record, ready to be appended.
+     */
+    static ByteBuffer encode(Simulation simulation, int[] ids) {
+        int length = 8 + 4 + SnapshotWriter.SHIP_BYTES + 4 + ids.length * ROW_BYTES;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + length).order(ByteOrder.LITTLE_ENDIAN);
+        record.position(RECORD_HEADER_BYTES);
+        record.putLong(simulation.getTick()).putInt(simulation.getMiningTarget());
+        SnapshotWriter.putShip(record, simulation.getShip(), simulation.getLedger());
+        AsteroidField field = simulation.getAsteroidField();
+        record.putInt(ids.length);
+        for (int id : ids) {
+            record.putInt(id).putDouble(field.getX(id)).putDouble(field.getY(id)).putDouble(field.getZ(id))
+                    .putDouble(field.getSpinSpeed(id)).putInt(field.getModelId(id)).putInt(field.getResources(id))
+                    .put(field.isRemoved(id) ? (byte) 1 : (byte) 0);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), RECORD_HEADER_BYTES, length);
+        record.putInt(0, length).putInt(4, (int) crc.getValue());
+        return record.flip();
+    }
+
+    /**
+     * Appends an encoded record and forces it to disk.
+     *
+     * @param record the record.
+     * @return the number of bytes appended.
+     * @throws IOException if the record cannot be written.
+     */
+    long append(ByteBuffer record) throws IOException {
+        int bytes = record.remaining();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        channel.force(false);
+        size += bytes;
+        return bytes;
+    }
+
+    /**
+     * Returns the size of the journal file.
+     *
+     * @return the size in bytes.
+     */
+    long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * The result of replaying a journal.
+     *
+     * @param journal the journal, open for appending.
+     * @param tick the tick of the last applied record, or of the checkpoint if there was none.
+     * @param miningTarget the mining target at that tick.
+     * @param records the number of applied records.
+     */
+    record Replayed(ChangeJournal journal, long tick, int miningTarget, int records) {
+    }
+}
@@ -0,0 +1,140 @@
+package com.kihachu.spaceiteration1.persistence;
+
+import com.kihachu.spaceiteration1.economy.ResourceLedger;
+import com.kihachu.spaceiteration1.economy.ResourceType;
+import com.kihachu.spaceiteration1.simulation.AsteroidField;
+import com.kihachu.spaceiteration1.simulation.AsteroidStore;
+import com.kihachu.spaceiteration1.simulation.ShipState;
+import com.kihachu.spaceiteration1.simulation.Simulation;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Loads universe snapshots written by {@link SnapshotWriter}.
+ * Each column is read in large chunks through a reusable buffer and copied into its array with bulk transfers.
+ * The file is read with positional reads rather than memory-mapped, since a mapping would keep the file locked on
+ * Windows, where a later save could then not replace it.
+ */
+public class SnapshotReader {
+    private SnapshotReader() {
+    }
+
+    /**
+     * Loads a snapshot.
+     *
+     * @param file the snapshot file.
+     * @return the restored simulation.
+     * @throws IOException if the file cannot be read or is not a valid snapshot.
+     */
+    public static Simulation load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < SnapshotWriter.HEADER_BYTES + SnapshotWriter.SHIP_BYTES) {
+                throw new IOException("Snapshot is truncated: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(SnapshotWriter.HEADER_BYTES + SnapshotWriter.SHIP_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, buffer, 0);
+            buffer.flip();
+            if (buffer.getInt() != SnapshotWriter.MAGIC) {
+                throw new IOException("Not a snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != SnapshotWriter.VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            long seed = buffer.getLong();
+            long tick = buffer.getLong();
+            int count = buffer.getInt();
+            int miningTarget = buffer.getInt();
+            long expected = SnapshotWriter.HEADER_BYTES + SnapshotWriter.SHIP_BYTES + (long) count * SnapshotWriter.ROW_BYTES;
+            if (count < 0 || size != expected) {
+                throw new IOException("Snapshot size does not match its asteroid count: " + file);
+            }
+
+            ShipState ship = new ShipState(0, 0, 0);
+            ResourceLedger ledger = new ResourceLedger();
+            getShip(buffer, ship, ledger);
+
+            AsteroidStore store = AsteroidStore.allocate(Math.max(count, 16));
+            ByteBuffer chunk = ByteBuffer.allocateDirect(SnapshotWriter.BUFFER_BYTES);
+            long position = SnapshotWriter.HEADER_BYTES + SnapshotWriter.SHIP_BYTES;
+            for (AsteroidStore.Column column : AsteroidStore.Column.values()) {
+                readColumn(channel, position, chunk, store.column(column), column, count);
+                position += (long) column.getBytes() * count;
+            }
+            AsteroidField field = new AsteroidField(store, count);
+            Simulation simulation = Simulation.restore(field, ship, ledger, seed, tick);
+            if (miningTarget >= 0 && miningTarget < count) {
+                simulation.startMining(miningTarget);
+            }
+            return simulation;
+        }
+    }
+
+    /**
+     * Reads a column from a snapshot file into an asteroid store column.
+     *
+     * @param channel the snapshot file.
+     * @param position the position of the column in the file.
+     * @param chunk the buffer the column is read through.
+     * @param column the store column to fill.
+     * @param type the column.
+     * @param count the number of elements.
+     * @throws IOException if the column cannot be read.
+     */
+    private static void readColumn(FileChannel channel, long position, ByteBuffer chunk, MemorySegment column,
+                                   AsteroidStore.Column type, int count) throws IOException {
+        int elementBytes = type.getBytes();
+        long offset = 0;
+        while (offset < count) {
+            int length = (int) Math.min(count - offset, chunk.capacity() / elementBytes);
+            chunk.clear().limit(length * elementBytes);
+            readFully(channel, chunk, position + offset * elementBytes);
+            MemorySegment.copy(MemorySegment.ofBuffer(chunk.flip()), SnapshotWriter.fileLayout(type), 0,
+                    column, SnapshotWriter.memoryLayout(type), offset * elementBytes, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Fills the remaining space of a buffer from a file, starting at the specified position.
+     *
+     * @param channel the file.
+     * @param buffer the buffer to fill.
+     * @param position the position in the file to read from.
+     * @throws IOException if the file cannot be read or ends first.
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file at " + position);
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Decodes a ship state and resource balances written by {@link SnapshotWriter#putShip}.
+     *
+     * @param buffer the buffer to read from.
+     * @param ship the ship state to update.
+     * @param ledger the ledger to restore the ship's balances in.
+     */
+    static void getShip(ByteBuffer buffer, ShipState ship, ResourceLedger ledger) {
+        ship.setPosition(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        ship.setRotation(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        ship.setVelocities(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        for (int i = 0; i < ResourceType.count(); i++) {
+            ledger.restore(Simulation.SHIP_ACCOUNT, ResourceType.fromOrdinal(i), buffer.getLong());
+        }
+    }
+}
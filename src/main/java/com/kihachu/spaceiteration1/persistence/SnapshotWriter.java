@@ -0,0 +1,198 @@
+package com.kihachu.spaceiteration1.persistence;
+
+import com.kihachu.spaceiteration1.economy.ResourceLedger;
+import com.kihachu.spaceiteration1.economy.ResourceType;
+import com.kihachu.spaceiteration1.simulation.AsteroidField;
+import com.kihachu.spaceiteration1.simulation.AsteroidStore;
+import com.kihachu.spaceiteration1.simulation.ShipState;
+import com.kihachu.spaceiteration1.simulation.Simulation;
+
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes universe snapshots in a compact columnar binary format.
+ *
+ * <p>Layout, little-endian: a header (magic, version, seed, tick, asteroid count, mining target), the ship state
+ * and its resource balances, then one contiguous column per asteroid attribute: X, Y, Z, spin speed and spin angle as doubles,
+ * model id and resources as ints, and the removal flags as bytes.
+ *
+ * <p>{@link UniverseStore} encodes the header on the simulation thread and writes the columns on its background
+ * thread. The file is written next to the target and then moved over it, so a crash during a save never leaves a
+ * truncated snapshot behind.
+ */
+class SnapshotWriter {
+    static final int MAGIC = 0x53495331; // "SIS1"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 4;
+    static final int SHIP_BYTES = 10 * 8 + ResourceType.count() * 8;
+    static final int ROW_BYTES = 5 * 8 + 2 * 4 + 1;
+
+    static final int BUFFER_BYTES = 1 << 20;
+
+    private SnapshotWriter() {
+    }
+
+    /**
+     * Encodes the snapshot header and the ship state.
+     *
+     * @param simulation the simulation being saved.
+     * @param count the number of asteroid ids being saved.
+     * @return the encoded header, ready to be written.
+     */
+    static ByteBuffer header(Simulation simulation, int count) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + SHIP_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putLong(simulation.getSeed()).putLong(simulation.getTick()).putInt(count)
+                .putInt(simulation.getMiningTarget());
+        putShip(header, simulation.getShip(), simulation.getLedger());
+        return header.flip();
+    }
+
+    /**
+     * Encodes the ship state and the ship's resource balances in {@link #SHIP_BYTES} bytes.
+     *
+     * @param buffer the buffer to write to.
+     * @param ship the ship state.
+     * @param ledger the resource ledger.
+     */
+    static void putShip(ByteBuffer buffer, ShipState ship, ResourceLedger ledger) {
+        buffer.putDouble(ship.getX()).putDouble(ship.getY()).putDouble(ship.getZ());
+        buffer.putDouble(ship.getRotateX()).putDouble(ship.getRotateY()).putDouble(ship.getRotateZ());
+        buffer.putDouble(ship.getVelocity());
+        buffer.putDouble(ship.getRotationVelocityX()).putDouble(ship.getRotationVelocityY()).putDouble(ship.getRotationVelocityZ());
+        for (int i = 0; i < ResourceType.count(); i++) {
+            buffer.putLong(ledger.balance(Simulation.SHIP_ACCOUNT, ResourceType.fromOrdinal(i)));
+        }
+    }
+
+    /**
+     * Writes a snapshot file.
+     *
+     * @param file the snapshot file.
+     * @param header the encoded header.
+     * @param field the asteroids, which must not be modified while they are written.
+     * @return the number of bytes written.
+     * @throws IOException if the file cannot be written.
+     */
+    static long write(Path file, ByteBuffer header, AsteroidField field) throws IOException {
+        return write(file, header, (writer, column) -> writer.putColumn(field.getStore().column(column), column, field.size()));
+    }
+
+    /**
+     * Writes a snapshot file from a finished capture, whose chunks are concatenated column by column.
+     *
+     * @param file the snapshot file.
+     * @param header the encoded header.
+     * @param capture the captured asteroids.
+     * @return the number of bytes written.
+     * @throws IOException if the file cannot be written.
+     */
+    static long write(Path file, ByteBuffer header, AsteroidField.Capture capture) throws IOException {
+        return write(file, header, (writer, column) -> {
+            for (int i = 0; i < capture.getChunkCount(); i++) {
+                writer.putColumn(capture.getChunk(i).column(column), column, capture.getChunkSize(i));
+            }
+        });
+    }
+
+    private static long write(Path file, ByteBuffer header, ColumnSource columns) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long written;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ColumnWriter writer = new ColumnWriter(channel);
+            writer.put(header);
+            for (AsteroidStore.Column column : AsteroidStore.Column.values()) {
+                columns.write(writer, column);
+            }
+            writer.flush();
+            written = channel.position();
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return written;
+    }
+
+    /**
+     * Returns the layout of a column element in a snapshot file: little-endian and packed.
+     *
+     * @param column the column.
+     * @return the file layout.
+     */
+    static ValueLayout fileLayout(AsteroidStore.Column column) {
+        return column.getLayout().withByteAlignment(1).withOrder(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Returns the layout of a column element in an asteroid store, without an alignment constraint so that
+     * heap and native columns can be copied alike.
+     *
+     * @param column the column.
+     * @return the memory layout.
+     */
+    static ValueLayout memoryLayout(AsteroidStore.Column column) {
+        return column.getLayout().withByteAlignment(1);
+    }
+
+    /**
+     * Writes all elements of one column of the saved asteroids.
+     */
+    private interface ColumnSource {
+        void write(ColumnWriter writer, AsteroidStore.Column column) throws IOException;
+    }
+
+    /**
+     * Streams columns to a channel through a reusable direct buffer.
+     */
+    static class ColumnWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        ColumnWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void put(ByteBuffer source) throws IOException {
+            flush();
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+
+        void putColumn(MemorySegment column, AsteroidStore.Column type, int count) throws IOException {
+            int elementBytes = type.getBytes();
+            long offset = 0;
+            while (offset < count) {
+                int length = (int) Math.min(count - offset, buffer.remaining() / elementBytes);
+                if (length == 0) {
+                    flush();
+                    continue;
+                }
+                MemorySegment.copy(column, memoryLayout(type), offset * elementBytes,
+                        MemorySegment.ofBuffer(buffer), fileLayout(type), 0, length);
+                buffer.position(buffer.position() + length * elementBytes);
+                offset += length;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.kihachu.spaceiteration1.persistence;
+
+import com.kihachu.spaceiteration1.logging.Log;
+import com.kihachu.spaceiteration1.logging.Logger;
+import com.kihachu.spaceiteration1.metrics.LatencyHistogram;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import com.kihachu.spaceiteration1.simulation.AsteroidField;
+import com.kihachu.spaceiteration1.simulation.Simulation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persists a simulation as a full snapshot (the checkpoint) plus a journal of the changes made since.
+ *
+ * <p>An autosave appends only the ship and the asteroids that changed since the previous save, so its cost grows
+ * with activity rather than with the size of the universe. Once the journal outgrows a fraction of the checkpoint
+ * it is compacted by writing a new checkpoint and starting an empty journal. Loading restores the checkpoint and
+ * replays the journal.
+ *
+ * <p>{@link #autosave}, {@link #checkpoint} and {@link #advance} must be called on the thread that ticks the
+ * simulation. They capture the state there and do all I/O, in order, on a single background thread. A checkpoint
+ * copies the asteroids {@value #CAPTURE_ROWS} at a time, one chunk per {@link #advance} call, so that saving a
+ * large universe does not stall a frame; {@link #flush} copies the rest at once, for example before exiting.
+ *
+ * <p>A store only replaces a checkpoint it has loaded or written itself, unless it was created to overwrite its
+ * file. So a session that started from a fresh universe never clobbers a save it could not read.
+ */
+public class UniverseStore {
+    private static final Logger LOG = Log.logger("persistence");
+
+    /**
+     * The journal is compacted once it is larger than the checkpoint divided by this ratio.
+     */
+    private static final int COMPACTION_RATIO = 4;
+    private static final long MIN_COMPACTION_BYTES = 64 * 1024;
+
+    /**
+     * The number of asteroids a checkpoint copies per tick, about 3 MB.
+     */
+    static final int CAPTURE_ROWS = 64 * 1024;
+
+    private static final LatencyHistogram CAPTURE = Metrics.histogram("save.capture");
+
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final boolean overwrite;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "universe-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only accessed on the executor. Null while there is no checkpoint that later changes can be appended to.
+    private ChangeJournal journal;
+
+    // Written on the executor once a save succeeds, read on the simulation thread
+    private volatile boolean checkpointed;
+    private volatile long journalBytes;
+    private volatile long checkpointBytes;
+    private volatile int checkpoints;
+    private volatile int appends;
+
+    // Only accessed on the simulation thread
+    private boolean owned;
+    private CompletableFuture<Long> pendingCheckpoint;
+    private Simulation capturing;
+    private AsteroidField.Capture capture;
+
+    /**
+     * Constructs a UniverseStore that keeps its checkpoint in the specified file and its journal next to it.
+     *
+     * @param snapshotFile the checkpoint file.
+     */
+    public UniverseStore(Path snapshotFile) {
+        this(snapshotFile, false);
+    }
+
+    /**
+     * Constructs a UniverseStore that keeps its checkpoint in the specified file and its journal next to it.
+     *
+     * @param snapshotFile the checkpoint file.
+     * @param overwrite whether the first checkpoint may replace an existing file that this store has not loaded,
+     *                  as when the user explicitly names the file to save to.
+     */
+    public UniverseStore(Path snapshotFile, boolean overwrite) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = ChangeJournal.fileFor(snapshotFile);
+        this.overwrite = overwrite;
+    }
+
+    /**
+     * Loads the checkpoint and replays the journal. Later autosaves append to the same journal.
+     *
+     * @return the restored simulation.
+     * @throws IOException if the checkpoint cannot be read.
+     */
+    public Simulation load() throws IOException {
+        Simulation checkpoint = SnapshotReader.load(snapshotFile);
+        ChangeJournal.Replayed replayed = ChangeJournal.replay(journalFile, checkpoint);
+        Simulation simulation = replayed.records() == 0 ? checkpoint
+                : Simulation.restore(checkpoint.getAsteroidField(), checkpoint.getShip(), checkpoint.getLedger(),
+                        checkpoint.getSeed(), replayed.tick());
+        AsteroidField field = simulation.getAsteroidField();
+        if (replayed.tick() != checkpoint.getTick()) {
+            // Spin angles are not journaled; advance them over the replayed interval instead
+            field.advanceSpins((replayed.tick() - checkpoint.getTick()) * Simulation.TICK_SECONDS);
+        }
+        if (replayed.miningTarget() >= 0 && replayed.miningTarget() < field.size()) {
+            simulation.startMining(replayed.miningTarget());
+        }
+        field.clearDirty();
+        setJournal(replayed.journal());
+        owned = true;
+        checkpointBytes = SnapshotWriter.HEADER_BYTES + SnapshotWriter.SHIP_BYTES + (long) field.size() * SnapshotWriter.ROW_BYTES;
+        journalBytes = replayed.journal().size();
+        checkpointed = true;
+        return simulation;
+    }
+
+    /**
+     * Saves the changes made since the previous save. Writes a checkpoint instead if there is none yet for this
+     * simulation, if the previous checkpoint failed, or if the journal has grown too large.
+     *
+     * @param simulation the simulation to save.
+     * @return a future that completes with the number of bytes written.
+     */
+    public CompletableFuture<Long> autosave(Simulation simulation) {
+        if (capture != null) {
+            // The checkpoint being captured will include the changes
+            return pendingCheckpoint;
+        }
+        boolean checkpointing = pendingCheckpoint != null && !pendingCheckpoint.isDone();
+        if (!checkpointing
+                && (!checkpointed || journalBytes > Math.max(MIN_COMPACTION_BYTES, checkpointBytes / COMPACTION_RATIO))) {
+            return checkpoint(simulation);
+        }
+        ByteBuffer record = ChangeJournal.encode(simulation, simulation.getAsteroidField().drainDirty());
+        return submit(() -> {
+            if (journal == null) {
+                // The checkpoint this record builds on failed; the next autosave writes a full checkpoint again
+                throw new IOException("No checkpoint to append to");
+            }
+            long bytes = journal.append(record);
+            journalBytes = journal.size();
+            appends++;
+            return bytes;
+        });
+    }
+
+    /**
+     * Starts a checkpoint: a full snapshot and an empty journal. The asteroids are copied over the following
+     * {@link #advance} calls and written once they are all copied. If the snapshot cannot be written, the previous
+     * journal is closed so that no later change is appended to it, and the next autosave tries a checkpoint again.
+     *
+     * @param simulation the simulation to save.
+     * @return a future that completes with the number of bytes written, or fails without writing if the snapshot
+     *         file exists but was neither loaded nor written by this store.
+     */
+    public CompletableFuture<Long> checkpoint(Simulation simulation) {
+        if (capture != null) {
+            return pendingCheckpoint;
+        }
+        if (!owned && !overwrite && Files.exists(snapshotFile)) {
+            return CompletableFuture.failedFuture(new IOException("Refusing to overwrite " + snapshotFile
+                    + ", which was not loaded in this session"));
+        }
+        owned = true;
+        capturing = simulation;
+        // Forgets the tracked changes: until this checkpoint succeeds nothing is appended, and a retry copies every row
+        capture = simulation.getAsteroidField().startCapture(CAPTURE_ROWS);
+        pendingCheckpoint = new CompletableFuture<>();
+        advance();
+        return pendingCheckpoint;
+    }
+
+    /**
+     * Copies the next chunk of asteroids of a checkpoint in progress, and writes the checkpoint once every asteroid
+     * is copied. Does nothing if no checkpoint is in progress. Must be called after every simulation tick.
+     */
+    public void advance() {
+        if (capture != null) {
+            long start = System.nanoTime();
+            if (capture.step()) {
+                writeCheckpoint();
+            }
+            CAPTURE.recordSince(start);
+        }
+    }
+
+    /**
+     * Copies the rest of a checkpoint in progress at once and writes it, for example before exiting.
+     */
+    public void flush() {
+        if (capture != null) {
+            writeCheckpoint();
+        }
+    }
+
+    private void writeCheckpoint() {
+        AsteroidField.Capture field = capture;
+        field.finish();
+        capture = null;
+        ByteBuffer header = SnapshotWriter.header(capturing, field.size());
+        long seed = capturing.getSeed();
+        long tick = capturing.getTick();
+        capturing = null;
+        CompletableFuture<Long> result = pendingCheckpoint;
+        submit(() -> {
+            long bytes;
+            try (field) {
+                bytes = SnapshotWriter.write(snapshotFile, header, field);
+                setJournal(ChangeJournal.create(journalFile, seed, tick));
+            } catch (IOException e) {
+                checkpointed = false;
+                try {
+                    setJournal(null);
+                } catch (IOException closing) {
+                    e.addSuppressed(closing);
+                }
+                throw e;
+            }
+            checkpointBytes = bytes;
+            journalBytes = journal.size();
+            checkpoints++;
+            checkpointed = true;
+            return bytes + journal.size();
+        }).whenComplete((bytes, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(bytes);
+            }
+        });
+    }
+
+    /**
+     * Moves a checkpoint that cannot be loaded and its journal aside, so that later saves cannot overwrite them
+     * and they can still be recovered by hand. Must not be called once this store has loaded or saved.
+     *
+     * @return the file the checkpoint was moved to.
+     * @throws IOException if the checkpoint cannot be moved.
+     */
+    public Path moveAside() throws IOException {
+        String suffix = ".unreadable-" + System.currentTimeMillis();
+        Path moved = snapshotFile.resolveSibling(snapshotFile.getFileName() + suffix);
+        Files.move(snapshotFile, moved);
+        if (Files.exists(journalFile)) {
+            Files.move(journalFile, journalFile.resolveSibling(journalFile.getFileName() + suffix));
+        }
+        return moved;
+    }
+
+    private void setJournal(ChangeJournal newJournal) throws IOException {
+        ChangeJournal oldJournal = journal;
+        journal = newJournal;
+        if (oldJournal != null) {
+            oldJournal.close();
+        }
+    }
+
+    private CompletableFuture<Long> submit(IoTask task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not save to " + snapshotFile, e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Returns the number of checkpoints written, including compactions.
+     *
+     * @return the number of checkpoints.
+     */
+    public int getCheckpointCount() {
+        return checkpoints;
+    }
+
+    /**
+     * Returns the number of records appended to the journal.
+     *
+     * @return the number of journal records.
+     */
+    public int getAppendCount() {
+        return appends;
+    }
+
+    /**
+     * Writes a checkpoint in progress, waits for the pending saves and closes the journal.
+     */
+    public void close() {
+        flush();
+        try {
+            submit(() -> {
+                setJournal(null);
+                return 0L;
+            }).join();
+        } catch (CompletionException e) {
+            LOG.warn("Could not close journal: {}", e.getCause().getMessage());
+        }
+        executor.shutdown();
+    }
+
+    private interface IoTask {
+        long run() throws IOException;
+    }
+}
@@ -1,4 +1,183 @@
 package com.kihachu.spaceiteration1.physics;
 
+/**
+ * A Keplerian orbit around a parent body, described by its six orbital elements.
+ *
+ * <p>The reference plane is the X-Z plane of the scene, with angles measured from the X axis towards the Z axis.
+ * Since the Y axis of the scene points down, positive inclinations lift the orbit towards negative Y.
+ * Positions are evaluated analytically for any time by solving Kepler's equation, so there is no integration error
+ * that accumulates over time, and the cost per body does not depend on the time step.
+ */
 public class Orbit {
+    /**
+     * The number of Newton iterations used to solve Kepler's equation. Converges to double precision
+     * for all eccentricities used here (below 0.9).
+     */
+    public static final int KEPLER_ITERATIONS = 6;
+
+    private final double semiMajorAxis;
+    private final double eccentricity;
+    private final double meanMotion;
+    private final double meanAnomalyAtEpoch;
+
+    // Unit vectors towards the periapsis (P) and 90 degrees ahead of it in the orbital plane (Q), in scene axes
+    private final double px;
+    private final double py;
+    private final double pz;
+    private final double qx;
+    private final double qy;
+    private final double qz;
+
+    /**
+     * Constructs an Orbit.
+     *
+     * @param semiMajorAxis the semi-major axis.
+     * @param eccentricity the eccentricity, in the range [0, 1).
+     * @param inclination the inclination of the orbital plane to the reference plane, in degrees.
+     * @param ascendingNode the longitude of the ascending node, in degrees.
+     * @param argumentOfPeriapsis the argument of periapsis, in degrees.
+     * @param meanAnomalyAtEpoch the mean anomaly at time 0, in degrees.
+     * @param period the orbital period in seconds.
+     */
+    public Orbit(double semiMajorAxis, double eccentricity, double inclination, double ascendingNode,
+                 double argumentOfPeriapsis, double meanAnomalyAtEpoch, double period) {
+        if (eccentricity < 0 || eccentricity >= 1) {
+            throw new IllegalArgumentException("Eccentricity must be in [0, 1): " + eccentricity);
+        }
+        this.semiMajorAxis = semiMajorAxis;
+        this.eccentricity = eccentricity;
+        this.meanMotion = 2 * Math.PI / period;
+        this.meanAnomalyAtEpoch = Math.toRadians(meanAnomalyAtEpoch);
+
+        double cosNode = Math.cos(Math.toRadians(ascendingNode));
+        double sinNode = Math.sin(Math.toRadians(ascendingNode));
+        double cosInclination = Math.cos(Math.toRadians(inclination));
+        double sinInclination = Math.sin(Math.toRadians(inclination));
+        double cosPeriapsis = Math.cos(Math.toRadians(argumentOfPeriapsis));
+        double sinPeriapsis = Math.sin(Math.toRadians(argumentOfPeriapsis));
+
+        // Standard perifocal-to-reference rotation; the reference normal maps to -Y in the scene
+        this.px = cosNode * cosPeriapsis - sinNode * sinPeriapsis * cosInclination;
+        this.pz = sinNode * cosPeriapsis + cosNode * sinPeriapsis * cosInclination;
+        this.py = -sinPeriapsis * sinInclination;
+        this.qx = -cosNode * sinPeriapsis - sinNode * cosPeriapsis * cosInclination;
+        this.qz = -sinNode * sinPeriapsis + cosNode * cosPeriapsis * cosInclination;
+        this.qy = -cosPeriapsis * sinInclination;
+    }
+
+    /**
+     * Creates a circular orbit in the reference plane.
+     *
+     * @param radius the radius of the orbit.
+     * @param period the orbital period in seconds.
+     * @param phase the angle at time 0, in degrees.
+     * @return the orbit.
+     */
+    public static Orbit circular(double radius, double period, double phase) {
+        return new Orbit(radius, 0, 0, 0, 0, phase, period);
+    }
+
+    /**
+     * Solves Kepler's equation {@code M = E - e sin E} for the eccentric anomaly with Newton's method,
+     * starting from Danby's initial guess {@code M + 0.85 e sign(M)}.
+     *
+     * @param meanAnomaly the mean anomaly in radians.
+     * @param eccentricity the eccentricity.
+     * @return the eccentric anomaly in radians.
+     */
+    public static double solveKepler(double meanAnomaly, double eccentricity) {
+        double e = meanAnomaly + Math.copySign(0.85 * eccentricity, meanAnomaly);
+        for (int i = 0; i < KEPLER_ITERATIONS; i++) {
+            e -= (e - eccentricity * Math.sin(e) - meanAnomaly) / (1 - eccentricity * Math.cos(e));
+        }
+        return e;
+    }
+
+    /**
+     * Wraps an angle into the range [-pi, pi).
+     *
+     * @param angle the angle in radians.
+     * @return the wrapped angle.
+     */
+    public static double wrapAngle(double angle) {
+        return angle - 2 * Math.PI * Math.floor((angle + Math.PI) / (2 * Math.PI));
+    }
+
+    /**
+     * Computes the position relative to the parent body at the specified time.
+     *
+     * @param time the time in seconds.
+     * @param out receives the X, Y and Z coordinates.
+     */
+    public void position(double time, double[] out) {
+        double meanAnomaly = wrapAngle(meanAnomalyAtEpoch + meanMotion * time);
+        double eccentricAnomaly = solveKepler(meanAnomaly, eccentricity);
+        double u = semiMajorAxis * (Math.cos(eccentricAnomaly) - eccentricity);
+        double v = semiMajorAxis * Math.sqrt(1 - eccentricity * eccentricity) * Math.sin(eccentricAnomaly);
+        out[0] = px * u + qx * v;
+        out[1] = py * u + qy * v;
+        out[2] = pz * u + qz * v;
+    }
+
+    /**
+     * Returns the semi-major axis.
+     *
+     * @return the semi-major axis.
+     */
+    public double getSemiMajorAxis() {
+        return semiMajorAxis;
+    }
+
+    /**
+     * Returns the eccentricity.
+     *
+     * @return the eccentricity.
+     */
+    public double getEccentricity() {
+        return eccentricity;
+    }
+
+    /**
+     * Returns the mean motion.
+     *
+     * @return the mean motion in radians per second.
+     */
+    public double getMeanMotion() {
+        return meanMotion;
+    }
+
+    /**
+     * Returns the mean anomaly at time 0.
+     *
+     * @return the mean anomaly in radians.
+     */
+    public double getMeanAnomalyAtEpoch() {
+        return meanAnomalyAtEpoch;
+    }
+
+    // Orientation vectors, copied by OrbitEngine into its arrays
+
+    double getPx() {
+        return px;
+    }
+
+    double getPy() {
+        return py;
+    }
+
+    double getPz() {
+        return pz;
+    }
+
+    double getQx() {
+        return qx;
+    }
+
+    double getQy() {
+        return qy;
+    }
+
+    double getQz() {
+        return qz;
+    }
 }
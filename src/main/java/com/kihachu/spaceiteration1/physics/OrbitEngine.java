@@ -1,4 +1,203 @@
 package com.kihachu.spaceiteration1.physics;
 
+import com.kihachu.spaceiteration1.metrics.jfr.PhysicsStepEvent;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates the positions of a hierarchy of orbiting bodies, such as planets and their moons, for any time.
+ *
+ * <p>The orbital elements are stored as parallel arrays. {@link #evaluate} first computes every body's position
+ * relative to its parent in one branch-free loop over the arrays, with a fixed number of Newton iterations per body,
+ * and then adds the parent positions in a second pass. Parents are always added before their children, so the
+ * second pass resolves any depth of nesting in index order. Root bodies have a degenerate orbit with zero axes
+ * plus a fixed offset, so they need no special case in the first loop.
+ */
 public class OrbitEngine {
+    private int count;
+    private int[] parent = new int[8];
+
+    // Orbital elements and precomputed orientation, per body
+    private double[] semiMajorAxis = new double[8];
+    private double[] semiMinorAxis = new double[8];
+    private double[] eccentricity = new double[8];
+    private double[] meanMotion = new double[8];
+    private double[] meanAnomalyAtEpoch = new double[8];
+    private double[] px = new double[8];
+    private double[] py = new double[8];
+    private double[] pz = new double[8];
+    private double[] qx = new double[8];
+    private double[] qy = new double[8];
+    private double[] qz = new double[8];
+
+    // Fixed offsets of root bodies, zero for orbiting bodies
+    private double[] offsetX = new double[8];
+    private double[] offsetY = new double[8];
+    private double[] offsetZ = new double[8];
+
+    // Evaluated absolute positions
+    private double[] x = new double[8];
+    private double[] y = new double[8];
+    private double[] z = new double[8];
+
+    // The time of the previous evaluation, for the time step reported to Flight Recorder
+    private double evaluatedTime;
+
+    /**
+     * Adds a body that stays at a fixed position, such as a star or the root of a system.
+     *
+     * @param fixedX the X coordinate.
+     * @param fixedY the Y coordinate.
+     * @param fixedZ the Z coordinate.
+     * @return the index of the body.
+     */
+    public int addRoot(double fixedX, double fixedY, double fixedZ) {
+        int index = allocate(-1);
+        offsetX[index] = fixedX;
+        offsetY[index] = fixedY;
+        offsetZ[index] = fixedZ;
+        x[index] = fixedX;
+        y[index] = fixedY;
+        z[index] = fixedZ;
+        return index;
+    }
+
+    /**
+     * Adds a body orbiting another body.
+     *
+     * @param orbit the orbit relative to the parent.
+     * @param parentIndex the index of the parent body.
+     * @return the index of the body.
+     */
+    public int addOrbiting(Orbit orbit, int parentIndex) {
+        if (parentIndex < 0 || parentIndex >= count) {
+            throw new IllegalArgumentException("Unknown parent body: " + parentIndex);
+        }
+        int index = allocate(parentIndex);
+        semiMajorAxis[index] = orbit.getSemiMajorAxis();
+        eccentricity[index] = orbit.getEccentricity();
+        semiMinorAxis[index] = orbit.getSemiMajorAxis() * Math.sqrt(1 - orbit.getEccentricity() * orbit.getEccentricity());
+        meanMotion[index] = orbit.getMeanMotion();
+        meanAnomalyAtEpoch[index] = orbit.getMeanAnomalyAtEpoch();
+        px[index] = orbit.getPx();
+        py[index] = orbit.getPy();
+        pz[index] = orbit.getPz();
+        qx[index] = orbit.getQx();
+        qy[index] = orbit.getQy();
+        qz[index] = orbit.getQz();
+        return index;
+    }
+
+    private int allocate(int parentIndex) {
+        if (count == parent.length) {
+            int capacity = count * 2;
+            parent = Arrays.copyOf(parent, capacity);
+            semiMajorAxis = Arrays.copyOf(semiMajorAxis, capacity);
+            semiMinorAxis = Arrays.copyOf(semiMinorAxis, capacity);
+            eccentricity = Arrays.copyOf(eccentricity, capacity);
+            meanMotion = Arrays.copyOf(meanMotion, capacity);
+            meanAnomalyAtEpoch = Arrays.copyOf(meanAnomalyAtEpoch, capacity);
+            px = Arrays.copyOf(px, capacity);
+            py = Arrays.copyOf(py, capacity);
+            pz = Arrays.copyOf(pz, capacity);
+            qx = Arrays.copyOf(qx, capacity);
+            qy = Arrays.copyOf(qy, capacity);
+            qz = Arrays.copyOf(qz, capacity);
+            offsetX = Arrays.copyOf(offsetX, capacity);
+            offsetY = Arrays.copyOf(offsetY, capacity);
+            offsetZ = Arrays.copyOf(offsetZ, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            z = Arrays.copyOf(z, capacity);
+        }
+        parent[count] = parentIndex;
+        return count++;
+    }
+
+    /**
+     * Computes the positions of all bodies at the specified time.
+     *
+     * @param time the time in seconds.
+     */
+    public void evaluate(double time) {
+        PhysicsStepEvent event = new PhysicsStepEvent();
+        event.begin();
+        for (int i = 0; i < count; i++) {
+            double meanAnomaly = Orbit.wrapAngle(meanAnomalyAtEpoch[i] + meanMotion[i] * time);
+            double e = eccentricity[i];
+            double anomaly = meanAnomaly + Math.copySign(0.85 * e, meanAnomaly);
+            for (int k = 0; k < Orbit.KEPLER_ITERATIONS; k++) {
+                anomaly -= (anomaly - e * Math.sin(anomaly) - meanAnomaly) / (1 - e * Math.cos(anomaly));
+            }
+            double u = semiMajorAxis[i] * (Math.cos(anomaly) - e);
+            double v = semiMinorAxis[i] * Math.sin(anomaly);
+            x[i] = offsetX[i] + px[i] * u + qx[i] * v;
+            y[i] = offsetY[i] + py[i] * u + qy[i] * v;
+            z[i] = offsetZ[i] + pz[i] * u + qz[i] * v;
+        }
+        for (int i = 0; i < count; i++) {
+            int p = parent[i];
+            if (p >= 0) {
+                x[i] += x[p];
+                y[i] += y[p];
+                z[i] += z[p];
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.bodyCount = count;
+            event.timeStep = time - evaluatedTime;
+            event.commit();
+        }
+        evaluatedTime = time;
+    }
+
+    /**
+     * Returns the number of bodies.
+     *
+     * @return the number of bodies.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the index of the parent of a body.
+     *
+     * @param index the body index.
+     * @return the parent index, or -1 for a root body.
+     */
+    public int getParent(int index) {
+        return parent[index];
+    }
+
+    /**
+     * Returns the X coordinate of a body as of the last evaluation.
+     *
+     * @param index the body index.
+     * @return the X coordinate.
+     */
+    public double getX(int index) {
+        return x[index];
+    }
+
+    /**
+     * Returns the Y coordinate of a body as of the last evaluation.
+     *
+     * @param index the body index.
+     * @return the Y coordinate.
+     */
+    public double getY(int index) {
+        return y[index];
+    }
+
+    /**
+     * Returns the Z coordinate of a body as of the last evaluation.
+     *
+     * @param index the body index.
+     * @return the Z coordinate.
+     */
+    public double getZ(int index) {
+        return z[index];
+    }
 }
@@ -0,0 +1,185 @@
+package com.kihachu.spaceiteration1.simd;
+
+import com.kihachu.spaceiteration1.logging.Log;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+
+import java.lang.foreign.MemorySegment;
+import java.util.function.IntConsumer;
+
+/**
+ * Bulk per-tick operations over structure-of-arrays asteroid columns, in heap array and memory segment flavours.
+ * When the {@code jdk.incubator.vector} module is present, for example through
+ * {@code --add-modules jdk.incubator.vector}, the operations run on the Vector API; otherwise, or when the
+ * {@value #SCALAR_PROPERTY} system property is {@code true}, they run one element at a time. Both paths produce
+ * identical results, so a simulation stays deterministic whichever path a machine takes.
+ */
+public final class Kernels {
+    /**
+     * The system property that forces the scalar kernels even when the Vector API is available.
+     */
+    public static final String SCALAR_PROPERTY = "spaceiteration.simd.scalar";
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final int LANES = detectLanes();
+
+    static {
+        Metrics.gauge("simd.lanes", () -> LANES);
+    }
+
+    private Kernels() {
+    }
+
+    private static int detectLanes() {
+        if (Boolean.getBoolean(SCALAR_PROPERTY) || !isVectorAvailable()) {
+            Log.logger("simd").info("Using scalar kernels");
+            return 1;
+        }
+        int lanes = VectorKernels.SPECIES.length();
+        Log.logger("simd").info("Using {}-lane vector kernels", lanes);
+        return lanes;
+    }
+
+    static boolean isVectorAvailable() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+
+    /**
+     * Checks whether the operations run on the Vector API.
+     *
+     * @return true if the vector kernels are used.
+     */
+    public static boolean isVectorized() {
+        return LANES > 1;
+    }
+
+    /**
+     * Gets the number of doubles processed per vector operation.
+     *
+     * @return the number of lanes, or 1 if the scalar kernels are used.
+     */
+    public static int getLanes() {
+        return LANES;
+    }
+
+    /**
+     * Advances spin angles by their speeds, wrapping them into [0, 360).
+     *
+     * @param angles the spin angles in degrees, updated in place.
+     * @param speeds the spin speeds in degrees per second.
+     * @param count the number of elements to advance.
+     * @param dt the elapsed time in seconds.
+     */
+    public static void advanceSpins(double[] angles, double[] speeds, int count, double dt) {
+        if (LANES > 1) {
+            VectorKernels.advanceSpins(angles, speeds, count, dt);
+        } else {
+            ScalarKernels.advanceSpins(angles, speeds, 0, count, dt);
+        }
+    }
+
+    /**
+     * Advances spin angles by their speeds, wrapping them into [0, 360).
+     *
+     * @param angles the native-order spin angles in degrees, updated in place.
+     * @param speeds the native-order spin speeds in degrees per second.
+     * @param count the number of elements to advance.
+     * @param dt the elapsed time in seconds.
+     */
+    public static void advanceSpins(MemorySegment angles, MemorySegment speeds, int count, double dt) {
+        if (LANES > 1) {
+            VectorKernels.advanceSpins(angles, speeds, count, dt);
+        } else {
+            ScalarKernels.advanceSpins(angles, speeds, 0, count, dt);
+        }
+    }
+
+    /**
+     * Finds the element closest to a point, skipping removed elements. Ties go to the lowest index.
+     *
+     * @param x the x coordinates.
+     * @param y the y coordinates.
+     * @param z the z coordinates.
+     * @param removed the removed flags, non-zero for removed elements.
+     * @param count the number of elements to search.
+     * @param px the x coordinate of the point.
+     * @param py the y coordinate of the point.
+     * @param pz the z coordinate of the point.
+     * @return the index of the nearest element, or -1 if there is none.
+     */
+    public static int findNearest(double[] x, double[] y, double[] z, byte[] removed, int count,
+                                  double px, double py, double pz) {
+        return LANES > 1
+                ? VectorKernels.findNearest(x, y, z, removed, count, px, py, pz)
+                : ScalarKernels.findNearest(x, y, z, removed, count, px, py, pz);
+    }
+
+    /**
+     * Finds the element closest to a point, skipping removed elements. Ties go to the lowest index.
+     *
+     * @param x the native-order x coordinates.
+     * @param y the native-order y coordinates.
+     * @param z the native-order z coordinates.
+     * @param removed the removed flags, non-zero for removed elements.
+     * @param count the number of elements to search.
+     * @param px the x coordinate of the point.
+     * @param py the y coordinate of the point.
+     * @param pz the z coordinate of the point.
+     * @return the index of the nearest element, or -1 if there is none.
+     */
+    public static int findNearest(MemorySegment x, MemorySegment y, MemorySegment z, MemorySegment removed, int count,
+                                  double px, double py, double pz) {
+        return LANES > 1
+                ? VectorKernels.findNearest(x, y, z, removed, count, px, py, pz)
+                : ScalarKernels.findNearest(x, y, z, removed, count, px, py, pz);
+    }
+
+    /**
+     * Passes the index of every element within a radius of a point to a consumer, in ascending order,
+     * skipping removed elements.
+     *
+     * @param x the x coordinates.
+     * @param y the y coordinates.
+     * @param z the z coordinates.
+     * @param removed the removed flags, non-zero for removed elements.
+     * @param count the number of elements to search.
+     * @param px the x coordinate of the point.
+     * @param py the y coordinate of the point.
+     * @param pz the z coordinate of the point.
+     * @param radius the radius around the point.
+     * @param consumer the consumer of the indices.
+     */
+    public static void forEachWithin(double[] x, double[] y, double[] z, byte[] removed, int count,
+                                     double px, double py, double pz, double radius, IntConsumer consumer) {
+        double radiusSquared = radius * radius;
+        if (LANES > 1) {
+            VectorKernels.forEachWithin(x, y, z, removed, count, px, py, pz, radiusSquared, consumer);
+        } else {
+            ScalarKernels.forEachWithin(x, y, z, removed, 0, count, px, py, pz, radiusSquared, consumer);
+        }
+    }
+
+    /**
+     * Passes the index of every element within a radius of a point to a consumer, in ascending order,
+     * skipping removed elements.
+     *
+     * @param x the native-order x coordinates.
+     * @param y the native-order y coordinates.
+     * @param z the native-order z coordinates.
+     * @param removed the removed flags, non-zero for removed elements.
+     * @param count the number of elements to search.
+     * @param px the x coordinate of the point.
+     * @param py the y coordinate of the point.
+     * @param pz the z coordinate of the point.
+     * @param radius the radius around the point.
+     * @param consumer the consumer of the indices.
+     */
+    public static void forEachWithin(MemorySegment x, MemorySegment y, MemorySegment z, MemorySegment removed, int count,
+                                     double px, double py, double pz, double radius, IntConsumer consumer) {
+        double radiusSquared = radius * radius;
+        if (LANES > 1) {
+            VectorKernels.forEachWithin(x, y, z, removed, count, px, py, pz, radiusSquared, consumer);
+        } else {
+            ScalarKernels.forEachWithin(x, y, z, removed, 0, count, px, py, pz, radiusSquared, consumer);
+        }
+    }
+}
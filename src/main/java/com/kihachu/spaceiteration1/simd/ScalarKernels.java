@@ -0,0 +1,94 @@
+package com.kihachu.spaceiteration1.simd;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.function.IntConsumer;
+
+/**
+ * The scalar versions of the {@link Kernels}, one element per iteration. They define the results the vector
+ * versions must reproduce, and run wherever the Vector API is unavailable.
+ */
+final class ScalarKernels {
+    private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE;
+    private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+
+    private ScalarKernels() {
+    }
+
+    static void advanceSpins(double[] angles, double[] speeds, int from, int to, double dt) {
+        for (int i = from; i < to; i++) {
+            double angle = angles[i] + speeds[i] * dt;
+            angles[i] = angle >= 360 ? angle % 360 : angle;
+        }
+    }
+
+    static void advanceSpins(MemorySegment angles, MemorySegment speeds, int from, int to, double dt) {
+        for (int i = from; i < to; i++) {
+            double angle = angles.getAtIndex(DOUBLE, i) + speeds.getAtIndex(DOUBLE, i) * dt;
+            angles.setAtIndex(DOUBLE, i, angle >= 360 ? angle % 360 : angle);
+        }
+    }
+
+    static int findNearest(double[] x, double[] y, double[] z, byte[] removed, int count, double px, double py, double pz) {
+        int nearest = -1;
+        double nearestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            if (removed[i] != 0) {
+                continue;
+            }
+            double dx = x[i] - px;
+            double dy = y[i] - py;
+            double dz = z[i] - pz;
+            double distance = dx * dx + dy * dy + dz * dz;
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    static int findNearest(MemorySegment x, MemorySegment y, MemorySegment z, MemorySegment removed, int count,
+                           double px, double py, double pz) {
+        int nearest = -1;
+        double nearestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            if (removed.get(BYTE, i) != 0) {
+                continue;
+            }
+            double dx = x.getAtIndex(DOUBLE, i) - px;
+            double dy = y.getAtIndex(DOUBLE, i) - py;
+            double dz = z.getAtIndex(DOUBLE, i) - pz;
+            double distance = dx * dx + dy * dy + dz * dz;
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    static void forEachWithin(double[] x, double[] y, double[] z, byte[] removed, int from, int to,
+                              double px, double py, double pz, double radiusSquared, IntConsumer consumer) {
+        for (int i = from; i < to; i++) {
+            double dx = x[i] - px;
+            double dy = y[i] - py;
+            double dz = z[i] - pz;
+            if (dx * dx + dy * dy + dz * dz <= radiusSquared && removed[i] == 0) {
+                consumer.accept(i);
+            }
+        }
+    }
+
+    static void forEachWithin(MemorySegment x, MemorySegment y, MemorySegment z, MemorySegment removed, int from, int to,
+                              double px, double py, double pz, double radiusSquared, IntConsumer consumer) {
+        for (int i = from; i < to; i++) {
+            double dx = x.getAtIndex(DOUBLE, i) - px;
+            double dy = y.getAtIndex(DOUBLE, i) - py;
+            double dz = z.getAtIndex(DOUBLE, i) - pz;
+            if (dx * dx + dy * dy + dz * dz <= radiusSquared && removed.get(BYTE, i) == 0) {
+                consumer.accept(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.kihachu.spaceiteration1.simd;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.util.function.IntConsumer;
+
+/**
+ * The Vector API versions of the {@link Kernels}, processing as many elements per iteration as the preferred
+ * vector shape of the CPU holds. Every lane performs the same IEEE operations in the same order as
+ * {@link ScalarKernels}, without fused multiply-adds, so the results are identical. Lanes that need
+ * per-element decisions, such as a new nearest asteroid or an asteroid within range, are finished in scalar code;
+ * they are rare compared to the lanes that are rejected as a whole. Only loaded when the
+ * {@code jdk.incubator.vector} module is present.
+ */
+final class VectorKernels {
+    static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+    private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE;
+    private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+
+    private VectorKernels() {
+    }
+
+    static void advanceSpins(double[] angles, double[] speeds, int count, double dt) {
+        int upper = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < upper; i += LANES) {
+            DoubleVector angle = DoubleVector.fromArray(SPECIES, angles, i)
+                    .add(DoubleVector.fromArray(SPECIES, speeds, i).mul(dt));
+            VectorMask<Double> wrap = angle.compare(VectorOperators.GE, 360);
+            if (wrap.anyTrue()) {
+                if (angle.compare(VectorOperators.GE, 720).anyTrue()) {
+                    // Only angles below 720 wrap with one exact subtraction; leave the rest to the remainder
+                    ScalarKernels.advanceSpins(angles, speeds, i, i + LANES, dt);
+                    continue;
+                }
+                angle = angle.lanewise(VectorOperators.SUB, 360, wrap);
+            }
+            angle.intoArray(angles, i);
+        }
+        ScalarKernels.advanceSpins(angles, speeds, i, count, dt);
+    }
+
+    static void advanceSpins(MemorySegment angles, MemorySegment speeds, int count, double dt) {
+        int upper = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < upper; i += LANES) {
+            long offset = (long) i * Double.BYTES;
+            DoubleVector angle = DoubleVector.fromMemorySegment(SPECIES, angles, offset, ORDER)
+                    .add(DoubleVector.fromMemorySegment(SPECIES, speeds, offset, ORDER).mul(dt));
+            VectorMask<Double> wrap = angle.compare(VectorOperators.GE, 360);
+            if (wrap.anyTrue()) {
+                if (angle.compare(VectorOperators.GE, 720).anyTrue()) {
+                    ScalarKernels.advanceSpins(angles, speeds, i, i + LANES, dt);
+                    continue;
+                }
+                angle = angle.lanewise(VectorOperators.SUB, 360, wrap);
+            }
+            angle.intoMemorySegment(angles, offset, ORDER);
+        }
+        ScalarKernels.advanceSpins(angles, speeds, i, count, dt);
+    }
+
+    static int findNearest(double[] x, double[] y, double[] z, byte[] removed, int count, double px, double py, double pz) {
+        double[] lanes = new double[LANES];
+        int nearest = -1;
+        double nearestDistance = Double.MAX_VALUE;
+        int upper = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < upper; i += LANES) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, x, i).sub(px);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, y, i).sub(py);
+            DoubleVector dz = DoubleVector.fromArray(SPECIES, z, i).sub(pz);
+            DoubleVector distance = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+            if (distance.compare(VectorOperators.LT, nearestDistance).anyTrue()) {
+                distance.intoArray(lanes, 0);
+                for (int lane = 0; lane < LANES; lane++) {
+                    if (lanes[lane] < nearestDistance && removed[i + lane] == 0) {
+                        nearestDistance = lanes[lane];
+                        nearest = i + lane;
+                    }
+                }
+            }
+        }
+        for (; i < count; i++) {
+            if (removed[i] != 0) {
+                continue;
+            }
+            double dx = x[i] - px;
+            double dy = y[i] - py;
+            double dz = z[i] - pz;
+            double distance = dx * dx + dy * dy + dz * dz;
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    static int findNearest(MemorySegment x, MemorySegment y, MemorySegment z, MemorySegment removed, int count,
+                           double px, double py, double pz) {
+        double[] lanes = new double[LANES];
+        int nearest = -1;
+        double nearestDistance = Double.MAX_VALUE;
+        int upper = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < upper; i += LANES) {
+            long offset = (long) i * Double.BYTES;
+            DoubleVector dx = DoubleVector.fromMemorySegment(SPECIES, x, offset, ORDER).sub(px);
+            DoubleVector dy = DoubleVector.fromMemorySegment(SPECIES, y, offset, ORDER).sub(py);
+            DoubleVector dz = DoubleVector.fromMemorySegment(SPECIES, z, offset, ORDER).sub(pz);
+            DoubleVector distance = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz));
+            if (distance.compare(VectorOperators.LT, nearestDistance).anyTrue()) {
+                distance.intoArray(lanes, 0);
+                for (int lane = 0; lane < LANES; lane++) {
+                    if (lanes[lane] < nearestDistance && removed.get(BYTE, i + lane) == 0) {
+                        nearestDistance = lanes[lane];
+                        nearest = i + lane;
+                    }
+                }
+            }
+        }
+        for (; i < count; i++) {
+            if (removed.get(BYTE, i) != 0) {
+                continue;
+            }
+            double dx = x.getAtIndex(DOUBLE, i) - px;
+            double dy = y.getAtIndex(DOUBLE, i) - py;
+            double dz = z.getAtIndex(DOUBLE, i) - pz;
+            double distance = dx * dx + dy * dy + dz * dz;
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    static void forEachWithin(double[] x, double[] y, double[] z, byte[] removed, int count,
+                              double px, double py, double pz, double radiusSquared, IntConsumer consumer) {
+        int upper = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < upper; i += LANES) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, x, i).sub(px);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, y, i).sub(py);
+            DoubleVector dz = DoubleVector.fromArray(SPECIES, z, i).sub(pz);
+            VectorMask<Double> within = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz)).compare(VectorOperators.LE, radiusSquared);
+            if (within.anyTrue()) {
+                for (int lane = within.firstTrue(); lane < LANES; lane++) {
+                    if (within.laneIsSet(lane) && removed[i + lane] == 0) {
+                        consumer.accept(i + lane);
+                    }
+                }
+            }
+        }
+        ScalarKernels.forEachWithin(x, y, z, removed, i, count, px, py, pz, radiusSquared, consumer);
+    }
+
+    static void forEachWithin(MemorySegment x, MemorySegment y, MemorySegment z, MemorySegment removed, int count,
+                              double px, double py, double pz, double radiusSquared, IntConsumer consumer) {
+        int upper = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < upper; i += LANES) {
+            long offset = (long) i * Double.BYTES;
+            DoubleVector dx = DoubleVector.fromMemorySegment(SPECIES, x, offset, ORDER).sub(px);
+            DoubleVector dy = DoubleVector.fromMemorySegment(SPECIES, y, offset, ORDER).sub(py);
+            DoubleVector dz = DoubleVector.fromMemorySegment(SPECIES, z, offset, ORDER).sub(pz);
+            VectorMask<Double> within = dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz)).compare(VectorOperators.LE, radiusSquared);
+            if (within.anyTrue()) {
+                for (int lane = within.firstTrue(); lane < LANES; lane++) {
+                    if (within.laneIsSet(lane) && removed.get(BYTE, i + lane) == 0) {
+                        consumer.accept(i + lane);
+                    }
+                }
+            }
+        }
+        ScalarKernels.forEachWithin(x, y, z, removed, i, count, px, py, pz, radiusSquared, consumer);
+    }
+}
@@ -0,0 +1,496 @@
+package com.kihachu.spaceiteration1.simulation;
+
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ * Simulation state of all asteroids, stored in columns indexed by asteroid id.
+ * Holds no scene graph nodes, so the field can be generated and stepped without JavaFX rendering.
+ * The columns live in an {@link AsteroidStore}, on the heap by default or off-heap for very large fields.
+ */
+public class AsteroidField implements AutoCloseable {
+    /**
+     * Half the edge length of the cube in which asteroids are generated.
+     */
+    public static final double SPACING = 100000;
+
+    private final AsteroidStore store;
+    private int count;
+    private int activeCount;
+
+    /*
+     * Ids whose resources or removal flag changed, or that were added, since the last drainDirty().
+     * Spin angles are not tracked; they are derived from the spin speed and the elapsed time.
+     */
+    private final BitSet dirty = new BitSet();
+    private int[] dirtyIds = new int[16];
+    private int dirtyCount;
+
+    // The capture in progress, whose copied rows are kept in step with this field
+    private Capture capture;
+
+    /**
+     * Constructs an empty AsteroidField with the specified initial capacity, stored on or off the heap
+     * depending on the {@value AsteroidStore#OFF_HEAP_PROPERTY} system property.
+     *
+     * @param capacity the initial capacity.
+     */
+    public AsteroidField(int capacity) {
+        this(AsteroidStore.allocate(Math.max(capacity, 16)), 0);
+    }
+
+    /**
+     * Creates an AsteroidField from a filled store. The store is used directly, not copied.
+     *
+     * @param store the store holding the asteroids.
+     * @param count the number of asteroid ids in the store.
+     */
+    public AsteroidField(AsteroidStore store, int count) {
+        this.store = store;
+        this.count = count;
+        for (int i = 0; i < count; i++) {
+            if (!store.isRemoved(i)) {
+                activeCount++;
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of this field trimmed to its size, for example to save it on another thread.
+     * The copy is stored the same way as this field and should be closed once it is no longer needed.
+     *
+     * @return the copy.
+     */
+    public AsteroidField copy() {
+        return new AsteroidField(store.copy(count), count);
+    }
+
+    /**
+     * Starts copying this field in chunks, so that a large field can be copied over several ticks instead of in one
+     * pause. While the capture is in progress the spin angles of the rows it has copied are advanced along with this
+     * field, and the rows that change after they were copied are copied again when it finishes, so the finished
+     * capture holds the field as it is at that moment. The capture relies on the tracked changes: it forgets them
+     * when it starts and when it finishes.
+     *
+     * @param chunkRows the number of rows each step copies.
+     * @return the capture, which has not copied any rows yet.
+     * @throws IllegalStateException if another capture is in progress.
+     */
+    public Capture startCapture(int chunkRows) {
+        if (capture != null) {
+            throw new IllegalStateException("A capture of this field is already in progress");
+        }
+        clearDirty();
+        capture = new Capture(chunkRows);
+        return capture;
+    }
+
+    /**
+     * Generates the specified number of asteroids with random models, resources, positions and spin speeds.
+     *
+     * @param numberOfAsteroids the number of asteroids to generate.
+     * @param modelCount the number of available asteroid models.
+     * @param random the random number generator.
+     * @return the id of the first generated asteroid.
+     */
+    public int populate(int numberOfAsteroids, int modelCount, Random random) {
+        int first = count;
+        store.ensureCapacity(count + numberOfAsteroids);
+        for (int i = 0; i < numberOfAsteroids; i++) {
+            int model = random.nextInt(modelCount);
+            int amount = 10 + random.nextInt(491);
+            double px = (random.nextDouble() - 0.5) * SPACING * 2;
+            double py = (random.nextDouble() - 0.5) * SPACING * 2;
+            double pz = (random.nextDouble() - 0.5) * SPACING * 2;
+            double speed = 1 + (5 - 1) * random.nextDouble(); // Random rotation speed in the range of 1 to 5 degrees per second
+            add(px, py, pz, speed, model, amount);
+        }
+        return first;
+    }
+
+    /**
+     * Adds a single asteroid.
+     *
+     * @param px the X coordinate.
+     * @param py the Y coordinate.
+     * @param pz the Z coordinate.
+     * @param speed the spin speed in degrees per second.
+     * @param model the id of the asteroid model.
+     * @param amount the initial amount of resources.
+     * @return the id of the new asteroid.
+     */
+    public int add(double px, double py, double pz, double speed, int model, int amount) {
+        store.ensureCapacity(count + 1);
+        int id = count++;
+        store.set(id, px, py, pz, speed, 0, model, amount, false);
+        activeCount++;
+        markDirty(id);
+        return id;
+    }
+
+    /**
+     * Overwrites an asteroid, adding ids up to it if necessary. Used to apply journaled changes.
+     *
+     * @param id the asteroid id.
+     * @param px the X coordinate.
+     * @param py the Y coordinate.
+     * @param pz the Z coordinate.
+     * @param speed the spin speed in degrees per second.
+     * @param model the id of the asteroid model.
+     * @param amount the remaining resources.
+     * @param isRemoved whether the asteroid has been removed.
+     */
+    public void set(int id, double px, double py, double pz, double speed, int model, int amount, boolean isRemoved) {
+        while (count <= id) {
+            add(0, 0, 0, 0, 0, 0);
+            remove(count - 1);
+        }
+        if (store.isRemoved(id) != isRemoved) {
+            activeCount += isRemoved ? -1 : 1;
+        }
+        store.set(id, px, py, pz, speed, store.getSpinAngle(id), model, amount, isRemoved);
+        markDirty(id);
+    }
+
+    /**
+     * Mines the specified amount of resources from an asteroid.
+     * An asteroid whose resources are depleted is removed from the field.
+     *
+     * @param id the asteroid id.
+     * @param amount the amount of resources to mine.
+     * @return the amount of resources mined.
+     */
+    public int mine(int id, int amount) {
+        int left = store.getResources(id);
+        if (store.isRemoved(id) || left <= 0) {
+            return 0;
+        }
+        int mined = Math.min(left, amount);
+        store.setResources(id, left - mined);
+        markDirty(id);
+        if (left == mined) {
+            remove(id);
+        }
+        return mined;
+    }
+
+    /**
+     * Removes an asteroid from the field. Its id stays reserved.
+     *
+     * @param id the asteroid id.
+     * @return true if the asteroid was active before the call.
+     */
+    public boolean remove(int id) {
+        if (store.isRemoved(id)) {
+            return false;
+        }
+        store.setRemoved(id, true);
+        activeCount--;
+        markDirty(id);
+        return true;
+    }
+
+    private void markDirty(int id) {
+        if (!dirty.get(id)) {
+            dirty.set(id);
+            if (dirtyCount == dirtyIds.length) {
+                dirtyIds = Arrays.copyOf(dirtyIds, dirtyCount * 2);
+            }
+            dirtyIds[dirtyCount++] = id;
+        }
+    }
+
+    /**
+     * Returns the ids of the asteroids that changed since the previous call, and starts tracking changes anew.
+     *
+     * @return the changed ids, in the order they first changed.
+     */
+    public int[] drainDirty() {
+        int[] ids = Arrays.copyOf(dirtyIds, dirtyCount);
+        clearDirty();
+        return ids;
+    }
+
+    /**
+     * Forgets all tracked changes, for example after the whole field has been saved.
+     */
+    public void clearDirty() {
+        for (int i = 0; i < dirtyCount; i++) {
+            dirty.clear(dirtyIds[i]);
+        }
+        dirtyCount = 0;
+        if (dirtyIds.length > 1024) {
+            dirtyIds = new int[16];
+        }
+    }
+
+    /**
+     * Advances the spin angle of every asteroid.
+     *
+     * @param dt the elapsed time in seconds.
+     */
+    public void advanceSpins(double dt) {
+        store.advanceSpins(count, dt);
+        if (capture != null) {
+            capture.advanceSpins(dt);
+        }
+    }
+
+    /**
+     * Returns the id of the active asteroid closest to the specified point.
+     *
+     * @param px the X coordinate.
+     * @param py the Y coordinate.
+     * @param pz the Z coordinate.
+     * @return the id of the closest asteroid, or -1 if there is none.
+     */
+    public int findNearest(double px, double py, double pz) {
+        return store.findNearest(count, px, py, pz);
+    }
+
+    /**
+     * Calls the consumer with the id of every active asteroid within a distance of the specified point.
+     *
+     * @param px the X coordinate.
+     * @param py the Y coordinate.
+     * @param pz the Z coordinate.
+     * @param radius the distance.
+     * @param consumer the consumer of the asteroid ids.
+     */
+    public void forEachWithin(double px, double py, double pz, double radius, IntConsumer consumer) {
+        store.forEachWithin(count, px, py, pz, radius, consumer);
+    }
+
+    /**
+     * Returns the number of asteroid ids, including removed asteroids.
+     *
+     * @return the number of asteroid ids.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the number of asteroids that have not been removed.
+     *
+     * @return the number of active asteroids.
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    /**
+     * Returns the X coordinate of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @return the X coordinate.
+     */
+    public double getX(int id) {
+        return store.getX(id);
+    }
+
+    /**
+     * Returns the Y coordinate of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @return the Y coordinate.
+     */
+    public double getY(int id) {
+        return store.getY(id);
+    }
+
+    /**
+     * Returns the Z coordinate of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @return the Z coordinate.
+     */
+    public double getZ(int id) {
+        return store.getZ(id);
+    }
+
+    /**
+     * Returns the spin speed of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @return the spin speed in degrees per second.
+     */
+    public double getSpinSpeed(int id) {
+        return store.getSpinSpeed(id);
+    }
+
+    /**
+     * Returns the current spin angle of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @return the spin angle in degrees.
+     */
+    public double getSpinAngle(int id) {
+        return store.getSpinAngle(id);
+    }
+
+    /**
+     * Returns the model id of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @return the model id.
+     */
+    public int getModelId(int id) {
+        return store.getModelId(id);
+    }
+
+    /**
+     * Returns the amount of resources remaining in an asteroid.
+     *
+     * @param id the asteroid id.
+     * @return the remaining resources.
+     */
+    public int getResources(int id) {
+        return store.getResources(id);
+    }
+
+    /**
+     * Returns whether an asteroid has been removed.
+     *
+     * @param id the asteroid id.
+     * @return true if the asteroid has been removed.
+     */
+    public boolean isRemoved(int id) {
+        return store.isRemoved(id);
+    }
+
+    /**
+     * Returns the store holding the asteroid columns, for bulk processing such as saving.
+     *
+     * @return the asteroid store.
+     */
+    public AsteroidStore getStore() {
+        return store;
+    }
+
+    /**
+     * Releases the memory of the asteroid store. Only needed for off-heap fields.
+     */
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    /**
+     * A copy of the field that is taken a chunk at a time. The copied rows are kept in chunks of equal capacity,
+     * each in a store of the same kind as the field, so no step allocates or copies more than one chunk.
+     */
+    public final class Capture implements AutoCloseable {
+        private final int chunkRows;
+        private final List<AsteroidStore> chunks = new ArrayList<>();
+        private int copied;
+
+        private Capture(int chunkRows) {
+            this.chunkRows = chunkRows;
+        }
+
+        /**
+         * Copies the rows up to the end of the next chunk, or none if every row has been copied.
+         *
+         * @return true if every row of the field has been copied.
+         */
+        public boolean step() {
+            if (copied < count) {
+                int end = Math.min(count, (copied / chunkRows + 1) * chunkRows);
+                if (copied % chunkRows == 0) {
+                    chunks.add(AsteroidStore.allocate(chunkRows));
+                }
+                copyRows(copied, end);
+                copied = end;
+            }
+            return copied == count;
+        }
+
+        /**
+         * Copies the rows that are left and those that changed since they were copied, and detaches the capture
+         * from the field. Later changes to the field no longer affect it.
+         */
+        public void finish() {
+            while (!step()) {
+                // Copies the rest, including rows added during the capture
+            }
+            for (int i = 0; i < dirtyCount; i++) {
+                copyRows(dirtyIds[i], dirtyIds[i] + 1);
+            }
+            clearDirty();
+            capture = null;
+        }
+
+        private void copyRows(int from, int to) {
+            AsteroidStore chunk = chunks.get(from / chunkRows);
+            long offset = from % chunkRows;
+            for (AsteroidStore.Column column : AsteroidStore.Column.values()) {
+                int bytes = column.getBytes();
+                MemorySegment.copy(store.column(column), (long) from * bytes, chunk.column(column), offset * bytes,
+                        (long) (to - from) * bytes);
+            }
+        }
+
+        private void advanceSpins(double dt) {
+            for (int i = 0; i < chunks.size(); i++) {
+                chunks.get(i).advanceSpins(getChunkSize(i), dt);
+            }
+        }
+
+        /**
+         * Returns the number of rows copied so far, which is the size of the field once the capture has finished.
+         *
+         * @return the number of copied rows.
+         */
+        public int size() {
+            return copied;
+        }
+
+        /**
+         * Returns the number of chunks holding the copied rows.
+         *
+         * @return the number of chunks.
+         */
+        public int getChunkCount() {
+            return chunks.size();
+        }
+
+        /**
+         * Returns a chunk of copied rows. Row {@code i} of chunk {@code k} is asteroid {@code k * chunkRows + i}.
+         *
+         * @param index the chunk index.
+         * @return the store holding the chunk.
+         */
+        public AsteroidStore getChunk(int index) {
+            return chunks.get(index);
+        }
+
+        /**
+         * Returns the number of copied rows in a chunk.
+         *
+         * @param index the chunk index.
+         * @return the number of rows.
+         */
+        public int getChunkSize(int index) {
+            return Math.min(chunkRows, copied - index * chunkRows);
+        }
+
+        /**
+         * Releases the chunks, and detaches the capture from the field if it has not finished.
+         */
+        @Override
+        public void close() {
+            if (capture == this) {
+                capture = null;
+            }
+            for (AsteroidStore chunk : chunks) {
+                chunk.close();
+            }
+        }
+    }
+}
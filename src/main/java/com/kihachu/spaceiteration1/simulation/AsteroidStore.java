@@ -0,0 +1,231 @@
+package com.kihachu.spaceiteration1.simulation;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.function.IntConsumer;
+
+/**
+ * Column storage of the per-asteroid state of an {@link AsteroidField}, indexed by asteroid id.
+ * The columns can live in Java arrays ({@link HeapAsteroidStore}) or in native memory
+ * ({@link OffHeapAsteroidStore}), which keeps fields of millions of asteroids out of the Java heap and
+ * out of the garbage collector's way. Either way each column is exposed as a {@link MemorySegment}, so it
+ * can be copied to and from files in bulk.
+ */
+public interface AsteroidStore extends AutoCloseable {
+    /**
+     * System property that stores the asteroids of new fields off-heap when set to true.
+     */
+    String OFF_HEAP_PROPERTY = "spaceiteration.asteroids.offheap";
+
+    /**
+     * The columns of the store, in the order they are saved.
+     */
+    enum Column {
+        X(ValueLayout.JAVA_DOUBLE),
+        Y(ValueLayout.JAVA_DOUBLE),
+        Z(ValueLayout.JAVA_DOUBLE),
+        SPIN_SPEED(ValueLayout.JAVA_DOUBLE),
+        SPIN_ANGLE(ValueLayout.JAVA_DOUBLE),
+        MODEL_ID(ValueLayout.JAVA_INT),
+        RESOURCES(ValueLayout.JAVA_INT),
+        REMOVED(ValueLayout.JAVA_BYTE);
+
+        private final ValueLayout layout;
+
+        Column(ValueLayout layout) {
+            this.layout = layout;
+        }
+
+        /**
+         * Returns the layout of one element of the column.
+         *
+         * @return the element layout.
+         */
+        public ValueLayout getLayout() {
+            return layout;
+        }
+
+        /**
+         * Returns the size of one element of the column.
+         *
+         * @return the element size in bytes.
+         */
+        public int getBytes() {
+            return (int) layout.byteSize();
+        }
+    }
+
+    /**
+     * Allocates a store on or off the heap, depending on the {@value #OFF_HEAP_PROPERTY} system property.
+     *
+     * @param capacity the initial capacity.
+     * @return the new store.
+     */
+    static AsteroidStore allocate(int capacity) {
+        return Boolean.getBoolean(OFF_HEAP_PROPERTY) ? new OffHeapAsteroidStore(capacity) : new HeapAsteroidStore(capacity);
+    }
+
+    /**
+     * Returns the number of asteroids the store can hold without growing.
+     *
+     * @return the capacity.
+     */
+    int capacity();
+
+    /**
+     * Grows the store to hold at least the specified number of asteroids, keeping its contents.
+     * Column segments obtained before are invalid afterwards.
+     *
+     * @param capacity the required capacity.
+     */
+    void ensureCapacity(int capacity);
+
+    /**
+     * Overwrites all columns of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @param x the X coordinate.
+     * @param y the Y coordinate.
+     * @param z the Z coordinate.
+     * @param spinSpeed the spin speed in degrees per second.
+     * @param spinAngle the spin angle in degrees.
+     * @param modelId the model id.
+     * @param resources the remaining resources.
+     * @param removed whether the asteroid has been removed.
+     */
+    void set(int id, double x, double y, double z, double spinSpeed, double spinAngle, int modelId, int resources, boolean removed);
+
+    /**
+     * Returns the X coordinate of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @return the X coordinate.
+     */
+    double getX(int id);
+
+    /**
+     * Returns the Y coordinate of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @return the Y coordinate.
+     */
+    double getY(int id);
+
+    /**
+     * Returns the Z coordinate of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @return the Z coordinate.
+     */
+    double getZ(int id);
+
+    /**
+     * Returns the spin speed of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @return the spin speed in degrees per second.
+     */
+    double getSpinSpeed(int id);
+
+    /**
+     * Returns the spin angle of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @return the spin angle in degrees.
+     */
+    double getSpinAngle(int id);
+
+    /**
+     * Returns the model id of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @return the model id.
+     */
+    int getModelId(int id);
+
+    /**
+     * Returns the remaining resources of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @return the remaining resources.
+     */
+    int getResources(int id);
+
+    /**
+     * Sets the remaining resources of an asteroid.
+     *
+     * @param id the asteroid id.
+     * @param resources the remaining resources.
+     */
+    void setResources(int id, int resources);
+
+    /**
+     * Returns whether an asteroid has been removed.
+     *
+     * @param id the asteroid id.
+     * @return true if the asteroid has been removed.
+     */
+    boolean isRemoved(int id);
+
+    /**
+     * Sets whether an asteroid has been removed.
+     *
+     * @param id the asteroid id.
+     * @param removed whether the asteroid has been removed.
+     */
+    void setRemoved(int id, boolean removed);
+
+    /**
+     * Advances the spin angles of the first asteroids, keeping them below 360 degrees.
+     *
+     * @param count the number of asteroid ids to advance.
+     * @param dt the elapsed time in seconds.
+     */
+    void advanceSpins(int count, double dt);
+
+    /**
+     * Returns the id of the active asteroid closest to the specified point.
+     *
+     * @param count the number of asteroid ids to search.
+     * @param px the X coordinate.
+     * @param py the Y coordinate.
+     * @param pz the Z coordinate.
+     * @return the id of the closest asteroid, or -1 if there is none.
+     */
+    int findNearest(int count, double px, double py, double pz);
+
+    /**
+     * Calls the consumer with the id of every active asteroid within a distance of the specified point.
+     *
+     * @param count the number of asteroid ids to search.
+     * @param px the X coordinate.
+     * @param py the Y coordinate.
+     * @param pz the Z coordinate.
+     * @param radius the distance.
+     * @param consumer the consumer of the asteroid ids.
+     */
+    void forEachWithin(int count, double px, double py, double pz, double radius, IntConsumer consumer);
+
+    /**
+     * Returns a live view of a column. The segment covers the capacity of the store; only the first
+     * {@link AsteroidField#size()} elements are valid, and the view is invalid once the store grows or is closed.
+     *
+     * @param column the column.
+     * @return the column segment.
+     */
+    MemorySegment column(Column column);
+
+    /**
+     * Returns a copy of the first asteroids in a store of the same kind.
+     *
+     * @param count the number of asteroid ids to copy.
+     * @return the copy.
+     */
+    AsteroidStore copy(int count);
+
+    /**
+     * Releases the memory of the store. A heap store is left to the garbage collector.
+     */
+    @Override
+    void close();
+}
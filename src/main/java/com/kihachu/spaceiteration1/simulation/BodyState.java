@@ -0,0 +1,85 @@
+package com.kihachu.spaceiteration1.simulation;
+
+/**
+ * Simulation state of a celestial body, such as a planet or a moon.
+ */
+public class BodyState {
+    private final String name;
+    private final double radius;
+    private double x;
+    private double y;
+    private double z;
+
+    /**
+     * Constructs a BodyState with the specified name, radius and position.
+     *
+     * @param name the name of the body.
+     * @param radius the radius of the body.
+     * @param x the X coordinate.
+     * @param y the Y coordinate.
+     * @param z the Z coordinate.
+     */
+    public BodyState(String name, double radius, double x, double y, double z) {
+        this.name = name;
+        this.radius = radius;
+        setPosition(x, y, z);
+    }
+
+    /**
+     * Sets the position of the body.
+     *
+     * @param x the X coordinate.
+     * @param y the Y coordinate.
+     * @param z the Z coordinate.
+     */
+    public void setPosition(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Returns the name of the body.
+     *
+     * @return the name of the body.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the radius of the body.
+     *
+     * @return the radius of the body.
+     */
+    public double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Returns the X coordinate of the body.
+     *
+     * @return the X coordinate.
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the Y coordinate of the body.
+     *
+     * @return the Y coordinate.
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Returns the Z coordinate of the body.
+     *
+     * @return the Z coordinate.
+     */
+    public double getZ() {
+        return z;
+    }
+}
@@ -0,0 +1,167 @@
+package com.kihachu.spaceiteration1.simulation;
+
+import com.kihachu.spaceiteration1.simd.Kernels;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Asteroid columns in parallel Java arrays. This is the default store; it is the fastest for fields that fit
+ * comfortably in the heap.
+ */
+public class HeapAsteroidStore implements AsteroidStore {
+    private double[] x;
+    private double[] y;
+    private double[] z;
+    private double[] spinSpeed;
+    private double[] spinAngle;
+    private int[] modelId;
+    private int[] resources;
+    private byte[] removed;
+
+    /**
+     * Constructs an empty HeapAsteroidStore with the specified capacity.
+     *
+     * @param capacity the initial capacity.
+     */
+    public HeapAsteroidStore(int capacity) {
+        x = new double[capacity];
+        y = new double[capacity];
+        z = new double[capacity];
+        spinSpeed = new double[capacity];
+        spinAngle = new double[capacity];
+        modelId = new int[capacity];
+        resources = new int[capacity];
+        removed = new byte[capacity];
+    }
+
+    @Override
+    public int capacity() {
+        return x.length;
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        if (capacity > x.length) {
+            int newCapacity = Math.max(capacity, x.length * 2);
+            x = Arrays.copyOf(x, newCapacity);
+            y = Arrays.copyOf(y, newCapacity);
+            z = Arrays.copyOf(z, newCapacity);
+            spinSpeed = Arrays.copyOf(spinSpeed, newCapacity);
+            spinAngle = Arrays.copyOf(spinAngle, newCapacity);
+            modelId = Arrays.copyOf(modelId, newCapacity);
+            resources = Arrays.copyOf(resources, newCapacity);
+            removed = Arrays.copyOf(removed, newCapacity);
+        }
+    }
+
+    @Override
+    public void set(int id, double px, double py, double pz, double speed, double angle, int model, int amount, boolean isRemoved) {
+        x[id] = px;
+        y[id] = py;
+        z[id] = pz;
+        spinSpeed[id] = speed;
+        spinAngle[id] = angle;
+        modelId[id] = model;
+        resources[id] = amount;
+        removed[id] = isRemoved ? (byte) 1 : 0;
+    }
+
+    @Override
+    public double getX(int id) {
+        return x[id];
+    }
+
+    @Override
+    public double getY(int id) {
+        return y[id];
+    }
+
+    @Override
+    public double getZ(int id) {
+        return z[id];
+    }
+
+    @Override
+    public double getSpinSpeed(int id) {
+        return spinSpeed[id];
+    }
+
+    @Override
+    public double getSpinAngle(int id) {
+        return spinAngle[id];
+    }
+
+    @Override
+    public int getModelId(int id) {
+        return modelId[id];
+    }
+
+    @Override
+    public int getResources(int id) {
+        return resources[id];
+    }
+
+    @Override
+    public void setResources(int id, int amount) {
+        resources[id] = amount;
+    }
+
+    @Override
+    public boolean isRemoved(int id) {
+        return removed[id] != 0;
+    }
+
+    @Override
+    public void setRemoved(int id, boolean isRemoved) {
+        removed[id] = isRemoved ? (byte) 1 : 0;
+    }
+
+    @Override
+    public void advanceSpins(int count, double dt) {
+        Kernels.advanceSpins(spinAngle, spinSpeed, count, dt);
+    }
+
+    @Override
+    public int findNearest(int count, double px, double py, double pz) {
+        return Kernels.findNearest(x, y, z, removed, count, px, py, pz);
+    }
+
+    @Override
+    public void forEachWithin(int count, double px, double py, double pz, double radius, IntConsumer consumer) {
+        Kernels.forEachWithin(x, y, z, removed, count, px, py, pz, radius, consumer);
+    }
+
+    @Override
+    public MemorySegment column(Column column) {
+        return switch (column) {
+            case X -> MemorySegment.ofArray(x);
+            case Y -> MemorySegment.ofArray(y);
+            case Z -> MemorySegment.ofArray(z);
+            case SPIN_SPEED -> MemorySegment.ofArray(spinSpeed);
+            case SPIN_ANGLE -> MemorySegment.ofArray(spinAngle);
+            case MODEL_ID -> MemorySegment.ofArray(modelId);
+            case RESOURCES -> MemorySegment.ofArray(resources);
+            case REMOVED -> MemorySegment.ofArray(removed);
+        };
+    }
+
+    @Override
+    public AsteroidStore copy(int count) {
+        HeapAsteroidStore copy = new HeapAsteroidStore(0);
+        copy.x = Arrays.copyOf(x, count);
+        copy.y = Arrays.copyOf(y, count);
+        copy.z = Arrays.copyOf(z, count);
+        copy.spinSpeed = Arrays.copyOf(spinSpeed, count);
+        copy.spinAngle = Arrays.copyOf(spinAngle, count);
+        copy.modelId = Arrays.copyOf(modelId, count);
+        copy.resources = Arrays.copyOf(resources, count);
+        copy.removed = Arrays.copyOf(removed, count);
+        return copy;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,189 @@
+package com.kihachu.spaceiteration1.simulation;
+
+import com.kihachu.spaceiteration1.simd.Kernels;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.function.IntConsumer;
+
+/**
+ * Asteroid columns in native memory. Each column is one flat, aligned segment, allocated together in a shared
+ * {@link Arena}, so a field of ten million asteroids costs a handful of heap objects instead of gigabytes of heap.
+ * The memory is released when the store is closed or has grown into a new arena. The store may be read from other
+ * threads, for example to save a copy, but must only be modified by one thread at a time.
+ */
+public class OffHeapAsteroidStore implements AsteroidStore {
+    private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE;
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT;
+    private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+
+    private Arena arena;
+    private int capacity;
+    private MemorySegment x;
+    private MemorySegment y;
+    private MemorySegment z;
+    private MemorySegment spinSpeed;
+    private MemorySegment spinAngle;
+    private MemorySegment modelId;
+    private MemorySegment resources;
+    private MemorySegment removed;
+
+    /**
+     * Constructs an empty OffHeapAsteroidStore with the specified capacity.
+     *
+     * @param capacity the initial capacity.
+     */
+    public OffHeapAsteroidStore(int capacity) {
+        allocate(Math.max(capacity, 1));
+    }
+
+    private void allocate(int newCapacity) {
+        arena = Arena.ofShared();
+        capacity = newCapacity;
+        x = allocate(Column.X);
+        y = allocate(Column.Y);
+        z = allocate(Column.Z);
+        spinSpeed = allocate(Column.SPIN_SPEED);
+        spinAngle = allocate(Column.SPIN_ANGLE);
+        modelId = allocate(Column.MODEL_ID);
+        resources = allocate(Column.RESOURCES);
+        removed = allocate(Column.REMOVED);
+    }
+
+    private MemorySegment allocate(Column column) {
+        ValueLayout layout = column.getLayout();
+        return arena.allocate(layout.byteSize() * capacity, layout.byteAlignment());
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        Arena oldArena = arena;
+        MemorySegment[] old = new MemorySegment[Column.values().length];
+        for (Column column : Column.values()) {
+            old[column.ordinal()] = column(column);
+        }
+        int oldCapacity = capacity;
+        allocate((int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, oldCapacity * 2L)));
+        for (Column column : Column.values()) {
+            MemorySegment.copy(old[column.ordinal()], 0, column(column), 0, (long) column.getBytes() * oldCapacity);
+        }
+        oldArena.close();
+    }
+
+    @Override
+    public void set(int id, double px, double py, double pz, double speed, double angle, int model, int amount, boolean isRemoved) {
+        x.setAtIndex(DOUBLE, id, px);
+        y.setAtIndex(DOUBLE, id, py);
+        z.setAtIndex(DOUBLE, id, pz);
+        spinSpeed.setAtIndex(DOUBLE, id, speed);
+        spinAngle.setAtIndex(DOUBLE, id, angle);
+        modelId.setAtIndex(INT, id, model);
+        resources.setAtIndex(INT, id, amount);
+        removed.set(BYTE, id, isRemoved ? (byte) 1 : 0);
+    }
+
+    @Override
+    public double getX(int id) {
+        return x.getAtIndex(DOUBLE, id);
+    }
+
+    @Override
+    public double getY(int id) {
+        return y.getAtIndex(DOUBLE, id);
+    }
+
+    @Override
+    public double getZ(int id) {
+        return z.getAtIndex(DOUBLE, id);
+    }
+
+    @Override
+    public double getSpinSpeed(int id) {
+        return spinSpeed.getAtIndex(DOUBLE, id);
+    }
+
+    @Override
+    public double getSpinAngle(int id) {
+        return spinAngle.getAtIndex(DOUBLE, id);
+    }
+
+    @Override
+    public int getModelId(int id) {
+        return modelId.getAtIndex(INT, id);
+    }
+
+    @Override
+    public int getResources(int id) {
+        return resources.getAtIndex(INT, id);
+    }
+
+    @Override
+    public void setResources(int id, int amount) {
+        resources.setAtIndex(INT, id, amount);
+    }
+
+    @Override
+    public boolean isRemoved(int id) {
+        return removed.get(BYTE, id) != 0;
+    }
+
+    @Override
+    public void setRemoved(int id, boolean isRemoved) {
+        removed.set(BYTE, id, isRemoved ? (byte) 1 : 0);
+    }
+
+    @Override
+    public void advanceSpins(int count, double dt) {
+        Kernels.advanceSpins(spinAngle, spinSpeed, count, dt);
+    }
+
+    @Override
+    public int findNearest(int count, double px, double py, double pz) {
+        return Kernels.findNearest(x, y, z, removed, count, px, py, pz);
+    }
+
+    @Override
+    public void forEachWithin(int count, double px, double py, double pz, double radius, IntConsumer consumer) {
+        Kernels.forEachWithin(x, y, z, removed, count, px, py, pz, radius, consumer);
+    }
+
+    @Override
+    public MemorySegment column(Column column) {
+        return switch (column) {
+            case X -> x;
+            case Y -> y;
+            case Z -> z;
+            case SPIN_SPEED -> spinSpeed;
+            case SPIN_ANGLE -> spinAngle;
+            case MODEL_ID -> modelId;
+            case RESOURCES -> resources;
+            case REMOVED -> removed;
+        };
+    }
+
+    @Override
+    public AsteroidStore copy(int count) {
+        OffHeapAsteroidStore copy = new OffHeapAsteroidStore(count);
+        for (Column column : Column.values()) {
+            MemorySegment.copy(column(column), 0, copy.column(column), 0, (long) column.getBytes() * count);
+        }
+        return copy;
+    }
+
+    @Override
+    public void close() {
+        if (arena != null) {
+            arena.close();
+            arena = null;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.kihachu.spaceiteration1.simulation;
+
+/**
+ * The control actions that can be applied to a ship.
+ */
+public enum ShipAction {
+    FORWARD,
+    BACKWARD,
+    YAW_LEFT,
+    YAW_RIGHT,
+    PITCH_UP,
+    PITCH_DOWN,
+    ROLL_LEFT,
+    ROLL_RIGHT;
+
+    private static final ShipAction[] VALUES = values();
+
+    /**
+     * Returns the action with the specified ordinal.
+     *
+     * @param ordinal the ordinal of the action.
+     * @return the action.
+     */
+    public static ShipAction fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
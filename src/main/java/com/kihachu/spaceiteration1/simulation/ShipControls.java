@@ -0,0 +1,53 @@
+package com.kihachu.spaceiteration1.simulation;
+
+/**
+ * The set of ship actions currently held down, stored as a bitset indexed by {@link ShipAction#ordinal()}.
+ * The simulation samples it once per tick, so thrust and rotation do not depend on key repeat or frame rate.
+ */
+public class ShipControls {
+    private int pressed;
+
+    /**
+     * Marks an action as held down.
+     *
+     * @param action the action.
+     */
+    public void press(ShipAction action) {
+        pressed |= 1 << action.ordinal();
+    }
+
+    /**
+     * Marks an action as released.
+     *
+     * @param action the action.
+     */
+    public void release(ShipAction action) {
+        pressed &= ~(1 << action.ordinal());
+    }
+
+    /**
+     * Releases all actions.
+     */
+    public void releaseAll() {
+        pressed = 0;
+    }
+
+    /**
+     * Returns whether an action is held down.
+     *
+     * @param action the action.
+     * @return true if the action is held down.
+     */
+    public boolean isPressed(ShipAction action) {
+        return (pressed & (1 << action.ordinal())) != 0;
+    }
+
+    /**
+     * Returns whether any action is held down.
+     *
+     * @return true if at least one action is held down.
+     */
+    public boolean isAnyPressed() {
+        return pressed != 0;
+    }
+}
@@ -0,0 +1,512 @@
+package com.kihachu.spaceiteration1.simulation;
+
+/**
+ * Simulation state of a spacecraft: position, orientation and velocities.
+ * Holds no scene graph nodes, so it can be stepped without JavaFX rendering.
+ */
+public class ShipState {
+    /**
+     * The number of control impulses applied per second while a control is held down.
+     * Matches the typical OS key repeat rate the impulses were originally tuned for.
+     */
+    public static final double CONTROL_RATE = 30;
+
+    /**
+     * The factor the linear and rotation velocities are multiplied by after every tick.
+     */
+    public static final double DAMPING = 0.98;
+
+    /**
+     * The largest heading change, in degrees, over which {@link #advance} treats the heading as constant.
+     */
+    public static final double MAX_SUBSTEP_DEGREES = 2;
+
+    /**
+     * The maximum number of sub-steps of one {@link #advance} call. Steps get longer than
+     * {@value #MAX_SUBSTEP_DEGREES} degrees of turning once the budget runs out, so a fast warp stays cheap.
+     */
+    public static final int MAX_SUBSTEPS = 64;
+
+    private double x;
+    private double y;
+    private double z;
+
+    private double rotateX;
+    private double rotateY;
+    private double rotateZ;
+
+    private double velocityZ = 0;
+
+    private double rotationVelocityX = 0;
+    private double rotationVelocityY = 0;
+    private double rotationVelocityZ = 0;
+
+    private double acceleration = 1;
+    private double rotationAcceleration = 0.01;
+
+    /**
+     * Constructs a ShipState at the origin with the specified initial rotations.
+     *
+     * @param initialRotationX the initial rotation angle around the X axis.
+     * @param initialRotationY the initial rotation angle around the Y axis.
+     * @param initialRotationZ the initial rotation angle around the Z axis.
+     */
+    public ShipState(double initialRotationX, double initialRotationY, double initialRotationZ) {
+        this.rotateX = initialRotationX;
+        this.rotateY = initialRotationY;
+        this.rotateZ = initialRotationZ;
+    }
+
+    /**
+     * Sets the position of the ship.
+     *
+     * @param x the X coordinate.
+     * @param y the Y coordinate.
+     * @param z the Z coordinate.
+     */
+    public void setPosition(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Sets the rotation angles of the ship.
+     *
+     * @param x the rotation angle around the X axis.
+     * @param y the rotation angle around the Y axis.
+     * @param z the rotation angle around the Z axis.
+     */
+    public void setRotation(double x, double y, double z) {
+        this.rotateX = x;
+        this.rotateY = y;
+        this.rotateZ = z;
+    }
+
+    /**
+     * Returns the X coordinate of the ship.
+     *
+     * @return the X coordinate.
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the Y coordinate of the ship.
+     *
+     * @return the Y coordinate.
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Returns the Z coordinate of the ship.
+     *
+     * @return the Z coordinate.
+     */
+    public double getZ() {
+        return z;
+    }
+
+    /**
+     * Returns the rotation angle around the X axis.
+     *
+     * @return the rotation angle around the X axis.
+     */
+    public double getRotateX() {
+        return rotateX;
+    }
+
+    /**
+     * Returns the rotation angle around the Y axis.
+     *
+     * @return the rotation angle around the Y axis.
+     */
+    public double getRotateY() {
+        return rotateY;
+    }
+
+    /**
+     * Returns the rotation angle around the Z axis.
+     *
+     * @return the rotation angle around the Z axis.
+     */
+    public double getRotateZ() {
+        return rotateZ;
+    }
+
+    /**
+     * Returns the forward velocity of the ship.
+     *
+     * @return the forward velocity.
+     */
+    public double getVelocity() {
+        return velocityZ;
+    }
+
+    /**
+     * Returns the rotation velocity around the X axis.
+     *
+     * @return the rotation velocity in degrees per tick.
+     */
+    public double getRotationVelocityX() {
+        return rotationVelocityX;
+    }
+
+    /**
+     * Returns the rotation velocity around the Y axis.
+     *
+     * @return the rotation velocity in degrees per tick.
+     */
+    public double getRotationVelocityY() {
+        return rotationVelocityY;
+    }
+
+    /**
+     * Returns the rotation velocity around the Z axis.
+     *
+     * @return the rotation velocity in degrees per tick.
+     */
+    public double getRotationVelocityZ() {
+        return rotationVelocityZ;
+    }
+
+    /**
+     * Sets the forward and rotation velocities of the ship, for example when restoring a saved state.
+     *
+     * @param velocity the forward velocity.
+     * @param rotationX the rotation velocity around the X axis.
+     * @param rotationY the rotation velocity around the Y axis.
+     * @param rotationZ the rotation velocity around the Z axis.
+     */
+    public void setVelocities(double velocity, double rotationX, double rotationY, double rotationZ) {
+        this.velocityZ = velocity;
+        this.rotationVelocityX = rotationX;
+        this.rotationVelocityY = rotationY;
+        this.rotationVelocityZ = rotationZ;
+    }
+
+    /**
+     * Accelerates the ship forward.
+     */
+    public void accelerateForward() {
+        this.velocityZ -= acceleration;
+    }
+
+    /**
+     * Accelerates the ship backward.
+     */
+    public void accelerateBackward() {
+        this.velocityZ += acceleration;
+    }
+
+    /**
+     * Rotates the ship to the left around the Y axis (yaw).
+     */
+    public void rotateYawLeft() {
+        this.rotationVelocityY -= rotationAcceleration;
+    }
+
+    /**
+     * Rotates the ship to the right around the Y axis (yaw).
+     */
+    public void rotateYawRight() {
+        this.rotationVelocityY += rotationAcceleration;
+    }
+
+    /**
+     * Rotates the ship upwards around the X axis (pitch).
+     */
+    public void rotatePitchUp() {
+        this.rotationVelocityX -= rotationAcceleration;
+    }
+
+    /**
+     * Rotates the ship downwards around the X axis (pitch).
+     */
+    public void rotatePitchDown() {
+        this.rotationVelocityX += rotationAcceleration;
+    }
+
+    /**
+     * Rotates the ship to the left around the Z axis (roll).
+     */
+    public void rotateRollLeft() {
+        this.rotationVelocityZ -= rotationAcceleration;
+    }
+
+    /**
+     * Rotates the ship to the right around the Z axis (roll).
+     */
+    public void rotateRollRight() {
+        this.rotationVelocityZ += rotationAcceleration;
+    }
+
+    /**
+     * Applies the held-down controls for the specified time step, scaling the impulses by it.
+     *
+     * @param controls the controls held down.
+     * @param dt the time step in seconds.
+     */
+    public void applyControls(ShipControls controls, double dt) {
+        if (!controls.isAnyPressed()) {
+            return;
+        }
+        double scale = CONTROL_RATE * dt;
+        if (controls.isPressed(ShipAction.FORWARD)) {
+            velocityZ -= acceleration * scale;
+        }
+        if (controls.isPressed(ShipAction.BACKWARD)) {
+            velocityZ += acceleration * scale;
+        }
+        if (controls.isPressed(ShipAction.YAW_LEFT)) {
+            rotationVelocityY -= rotationAcceleration * scale;
+        }
+        if (controls.isPressed(ShipAction.YAW_RIGHT)) {
+            rotationVelocityY += rotationAcceleration * scale;
+        }
+        if (controls.isPressed(ShipAction.PITCH_UP)) {
+            rotationVelocityX -= rotationAcceleration * scale;
+        }
+        if (controls.isPressed(ShipAction.PITCH_DOWN)) {
+            rotationVelocityX += rotationAcceleration * scale;
+        }
+        if (controls.isPressed(ShipAction.ROLL_LEFT)) {
+            rotationVelocityZ -= rotationAcceleration * scale;
+        }
+        if (controls.isPressed(ShipAction.ROLL_RIGHT)) {
+            rotationVelocityZ += rotationAcceleration * scale;
+        }
+    }
+
+    /**
+     * Updates the position and rotation of the ship based on its velocity and rotation velocity.
+     */
+    //With chatgpt
+    public void update() {
+        double[] rotatedForward = forwardDirection(rotateX, rotateY, rotateZ);
+
+        // Update the position based on the rotated forward vector
+        this.x += rotatedForward[0] * velocityZ;
+        this.y += rotatedForward[1] * velocityZ;
+        this.z += rotatedForward[2] * velocityZ;
+
+        // Update rotations
+        this.rotateX += rotationVelocityX;
+        this.rotateY += rotationVelocityY;
+        this.rotateZ += rotationVelocityZ;
+
+        // Apply damping to gradually reduce the velocity and rotation velocity
+        velocityZ *= DAMPING;
+        rotationVelocityX *= DAMPING;
+        rotationVelocityY *= DAMPING;
+        rotationVelocityZ *= DAMPING;
+    }
+
+    /**
+     * Advances the ship by the specified number of ticks with the controls held down throughout, as
+     * {@link #applyControls} and {@link #update} once per tick would. The damped velocities and the rotation angles
+     * follow in closed form from the geometric series of the per-tick damping; only the heading has to be integrated,
+     * in sub-steps over which the ship turns by at most {@value #MAX_SUBSTEP_DEGREES} degrees.
+     * A single tick takes the exact per-tick path.
+     *
+     * @param controls the controls held down.
+     * @param ticks the number of ticks to advance.
+     * @return the number of sub-steps taken.
+     */
+    public int advance(ShipControls controls, long ticks) {
+        if (ticks == 1) {
+            applyControls(controls, Simulation.TICK_SECONDS);
+            update();
+            return 1;
+        }
+        double scale = CONTROL_RATE * Simulation.TICK_SECONDS;
+        double thrust = impulse(controls, ShipAction.BACKWARD, ShipAction.FORWARD, acceleration * scale);
+        double pitch = impulse(controls, ShipAction.PITCH_DOWN, ShipAction.PITCH_UP, rotationAcceleration * scale);
+        double yaw = impulse(controls, ShipAction.YAW_RIGHT, ShipAction.YAW_LEFT, rotationAcceleration * scale);
+        double roll = impulse(controls, ShipAction.ROLL_RIGHT, ShipAction.ROLL_LEFT, rotationAcceleration * scale);
+
+        long remaining = ticks;
+        int steps = 0;
+        while (remaining > 0) {
+            double turnRate = Math.max(maxRate(rotationVelocityX, pitch),
+                    Math.max(maxRate(rotationVelocityY, yaw), maxRate(rotationVelocityZ, roll)));
+            long length = turnRate > 0 ? (long) (MAX_SUBSTEP_DEGREES / turnRate) : remaining;
+            long minLength = Math.ceilDiv(remaining, Math.max(1, MAX_SUBSTEPS - steps));
+            length = Math.min(remaining, Math.max(length, minLength));
+
+            double turnX = displacement(rotationVelocityX, pitch, length);
+            double turnY = displacement(rotationVelocityY, yaw, length);
+            double turnZ = displacement(rotationVelocityZ, roll, length);
+            // The heading halfway through the turn keeps the error second order in the sub-step length
+            double half = length == 1 ? 0 : 0.5;
+            double[] forward = forwardDirection(rotateX + turnX * half, rotateY + turnY * half, rotateZ + turnZ * half);
+            double distance = displacement(velocityZ, thrust, length);
+            x += forward[0] * distance;
+            y += forward[1] * distance;
+            z += forward[2] * distance;
+            rotateX += turnX;
+            rotateY += turnY;
+            rotateZ += turnZ;
+
+            double damping = Math.pow(DAMPING, length);
+            velocityZ = dampedVelocity(velocityZ, thrust, damping);
+            rotationVelocityX = dampedVelocity(rotationVelocityX, pitch, damping);
+            rotationVelocityY = dampedVelocity(rotationVelocityY, yaw, damping);
+            rotationVelocityZ = dampedVelocity(rotationVelocityZ, roll, damping);
+            remaining -= length;
+            steps++;
+        }
+        return steps;
+    }
+
+    /**
+     * Returns the per-tick impulse of a pair of opposing controls.
+     *
+     * @param controls the controls held down.
+     * @param positive the action that adds the impulse.
+     * @param negative the action that subtracts the impulse.
+     * @param impulse the impulse of one tick.
+     * @return the net impulse per tick.
+     */
+    private static double impulse(ShipControls controls, ShipAction positive, ShipAction negative, double impulse) {
+        double net = 0;
+        if (controls.isPressed(positive)) {
+            net += impulse;
+        }
+        if (controls.isPressed(negative)) {
+            net -= impulse;
+        }
+        return net;
+    }
+
+    /**
+     * Returns the velocity a constant per-tick impulse damps towards.
+     *
+     * @param impulse the impulse added every tick.
+     * @return the terminal velocity after damping.
+     */
+    private static double terminalVelocity(double impulse) {
+        return DAMPING * impulse / (1 - DAMPING);
+    }
+
+    /**
+     * Returns an upper bound of the distance covered in one tick. The velocity moves monotonically from its
+     * current value towards the terminal velocity, and each tick adds the impulse before moving.
+     *
+     * @param velocity the current velocity.
+     * @param impulse the impulse added every tick.
+     * @return the largest per-tick distance.
+     */
+    private static double maxRate(double velocity, double impulse) {
+        return Math.max(Math.abs(velocity), Math.abs(terminalVelocity(impulse))) + Math.abs(impulse);
+    }
+
+    /**
+     * Returns the distance covered over the specified number of ticks, each of which adds the impulse,
+     * moves by the velocity and then damps it.
+     *
+     * @param velocity the velocity at the start.
+     * @param impulse the impulse added every tick.
+     * @param ticks the number of ticks.
+     * @return the sum of the per-tick distances.
+     */
+    private static double displacement(double velocity, double impulse, long ticks) {
+        double terminal = terminalVelocity(impulse);
+        return ticks * (terminal + impulse) + (velocity - terminal) * (1 - Math.pow(DAMPING, ticks)) / (1 - DAMPING);
+    }
+
+    /**
+     * Returns the velocity after a number of ticks.
+     *
+     * @param velocity the velocity at the start.
+     * @param impulse the impulse added every tick.
+     * @param damping the damping factor raised to the number of ticks.
+     * @return the velocity at the end.
+     */
+    private static double dampedVelocity(double velocity, double impulse, double damping) {
+        double terminal = terminalVelocity(impulse);
+        return terminal + (velocity - terminal) * damping;
+    }
+
+    /**
+     * Returns the direction the ship moves in at the specified rotation angles.
+     *
+     * @param rotateX the rotation angle around the X axis.
+     * @param rotateY the rotation angle around the Y axis.
+     * @param rotateZ the rotation angle around the Z axis.
+     * @return the rotated forward vector.
+     */
+    //With chatgpt
+    private double[] forwardDirection(double rotateX, double rotateY, double rotateZ) {
+        // Create rotation matrices for each axis
+        double[][] rotationX = {
+                {1, 0, 0},
+                {0, Math.cos(Math.toRadians(rotateX)), -Math.sin(Math.toRadians(rotateX))},
+                {0, Math.sin(Math.toRadians(rotateX)), Math.cos(Math.toRadians(rotateX))}
+        };
+
+        double[][] rotationY = {
+                {Math.cos(Math.toRadians(rotateY)), 0, Math.sin(Math.toRadians(rotateY))},
+                {0, 1, 0},
+                {-Math.sin(Math.toRadians(rotateY)), 0, Math.cos(Math.toRadians(rotateY))}
+        };
+
+        double[][] rotationZ = {
+                {Math.cos(Math.toRadians(rotateZ)), -Math.sin(Math.toRadians(rotateZ)), 0},
+                {Math.sin(Math.toRadians(rotateZ)), Math.cos(Math.toRadians(rotateZ)), 0},
+                {0, 0, 1}
+        };
+
+        // Multiply the rotation matrices to get the combined rotation matrix
+        double[][] rotationMatrix = multiplyMatrices(multiplyMatrices(rotationZ, rotationY), rotationX);
+
+        // Define the forward direction vector
+        double[] forward = {0, 0, -1};
+
+        // Apply the rotation to the forward direction vector
+        return multiplyMatrixAndVector(rotationMatrix, forward);
+    }
+
+    /**
+     * Multiplies two 3x3 matrices.
+     *
+     * @param a the first matrix.
+     * @param b the second matrix.
+     * @return the resulting matrix after multiplication.
+     */
+    //With chatgpt
+    private double[][] multiplyMatrices(double[][] a, double[][] b) {
+        double[][] result = new double[3][3];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                result[i][j] = 0;
+                for (int k = 0; k < 3; k++) {
+                    result[i][j] += a[i][k] * b[k][j];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Multiplies a 3x3 matrix and a 3-element vector.
+     *
+     * @param matrix the matrix.
+     * @param vector the vector.
+     * @return the resulting vector after multiplication.
+     */
+    //With chatgpt
+    private double[] multiplyMatrixAndVector(double[][] matrix, double[] vector) {
+        double[] result = new double[3];
+        for (int i = 0; i < 3; i++) {
+            result[i] = 0;
+            for (int j = 0; j < 3; j++) {
+                result[i] += matrix[i][j] * vector[j];
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,296 @@
+package com.kihachu.spaceiteration1.simulation;
+
+import com.kihachu.spaceiteration1.economy.ResourceLedger;
+import com.kihachu.spaceiteration1.economy.ResourceType;
+import com.kihachu.spaceiteration1.metrics.Metrics;
+import com.kihachu.spaceiteration1.metrics.jfr.MiningTickEvent;
+import com.kihachu.spaceiteration1.metrics.jfr.SpaceCraftUpdateEvent;
+import com.kihachu.spaceiteration1.physics.Orbit;
+import com.kihachu.spaceiteration1.physics.OrbitEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The simulated universe: asteroids, the ship, celestial bodies and mining.
+ * It is advanced one tick at a time, either by the render loop or by the headless runner,
+ * and does not depend on the JavaFX scene graph.
+ */
+public class Simulation {
+    /**
+     * The duration of one simulation tick in seconds.
+     */
+    public static final double TICK_SECONDS = 1.0 / 60;
+
+    /**
+     * The amount of resources mined per tick.
+     */
+    public static final int MINING_RATE = 1;
+
+    /**
+     * The ledger owner that the resources mined by the ship are credited to.
+     */
+    public static final String SHIP_ACCOUNT = "ship";
+
+    /**
+     * The highest time warp factor.
+     */
+    public static final int MAX_WARP = 10_000;
+
+    private final AsteroidField asteroidField;
+    private final ShipState ship;
+    private final ResourceLedger ledger;
+    private final ShipControls controls = new ShipControls();
+    private final List<BodyState> bodies = new ArrayList<>();
+    private final OrbitEngine orbits = new OrbitEngine();
+    private long seed;
+    private int miningTarget = -1;
+    private long tick;
+    private int warp = 1;
+
+    /**
+     * Constructs a Simulation with the specified asteroid field and ship and an empty resource ledger.
+     *
+     * @param asteroidField the asteroid field.
+     * @param ship the ship.
+     */
+    public Simulation(AsteroidField asteroidField, ShipState ship) {
+        this(asteroidField, ship, new ResourceLedger());
+    }
+
+    /**
+     * Constructs a Simulation with the specified asteroid field, ship and resource ledger.
+     *
+     * @param asteroidField the asteroid field.
+     * @param ship the ship.
+     * @param ledger the resource ledger.
+     */
+    public Simulation(AsteroidField asteroidField, ShipState ship, ResourceLedger ledger) {
+        this.asteroidField = asteroidField;
+        this.ship = ship;
+        this.ledger = ledger;
+        Metrics.gauge("asteroids", asteroidField::getActiveCount);
+        Metrics.gauge("warp", () -> warp);
+    }
+
+    /**
+     * Creates the default universe: a random asteroid field, the ship at the origin and the Earth.
+     *
+     * @param numberOfAsteroids the number of asteroids to generate.
+     * @param modelCount the number of available asteroid models.
+     * @param seed the seed of the random number generator, so the same universe can be generated again.
+     * @return the new simulation.
+     */
+    public static Simulation createDefault(int numberOfAsteroids, int modelCount, long seed) {
+        AsteroidField field = new AsteroidField(numberOfAsteroids);
+        field.populate(numberOfAsteroids, modelCount, new Random(seed));
+        // A generated universe has no checkpoint yet, so its first save is a full snapshot anyway
+        field.clearDirty();
+        return restore(field, new ShipState(-90, 0, 0), new ResourceLedger(), seed, 0);
+    }
+
+    /**
+     * Recreates a simulation from saved state. The celestial bodies are not saved, since their positions follow from the tick.
+     *
+     * @param field the asteroid field.
+     * @param ship the ship.
+     * @param ledger the resource ledger.
+     * @param seed the seed the universe was generated with.
+     * @param tick the number of ticks simulated before the state was saved.
+     * @return the restored simulation.
+     */
+    public static Simulation restore(AsteroidField field, ShipState ship, ResourceLedger ledger, long seed, long tick) {
+        Simulation simulation = new Simulation(field, ship, ledger);
+        simulation.seed = seed;
+        simulation.tick = tick;
+        int earth = simulation.addBody(new BodyState("Earth", 10000, 0, 0, 200000));
+        simulation.addBody(new BodyState("Moon", 2700, 0, 0, 0), new Orbit(60000, 0.055, 5.1, 0, 0, 0, 655), earth);
+        simulation.updateBodies();
+        return simulation;
+    }
+
+    /**
+     * Advances the simulation by one step: applies the held-down controls, moves the ship, mines the current target
+     * and spins the asteroids. A step covers as many ticks as the time warp factor. Under warp the ship is advanced
+     * in closed form with adaptive sub-steps, the mining target is mined for the whole step at once and the celestial
+     * bodies are evaluated at the new time, so the cost of a step barely depends on the warp factor.
+     */
+    public void tick() {
+        long start = System.nanoTime();
+        int ticks = warp;
+        SpaceCraftUpdateEvent updateEvent = new SpaceCraftUpdateEvent();
+        updateEvent.begin();
+        Metrics.SHIP_SUBSTEPS.add(ship.advance(controls, ticks));
+        updateEvent.end();
+        if (updateEvent.shouldCommit()) {
+            updateEvent.velocity = ship.getVelocity();
+            updateEvent.commit();
+        }
+        if (miningTarget >= 0) {
+            mine(ticks);
+        }
+        asteroidField.advanceSpins(TICK_SECONDS * ticks);
+        tick += ticks;
+        updateBodies();
+        Metrics.SIM_TICK.recordSince(start);
+    }
+
+    /**
+     * Mines the current target for the specified number of ticks and stops mining once it is depleted.
+     * Mining removes {@value #MINING_RATE} per tick until the target runs out, so the ticks are mined in one go.
+     *
+     * @param ticks the number of ticks to mine for.
+     */
+    private void mine(int ticks) {
+        MiningTickEvent tickEvent = new MiningTickEvent();
+        tickEvent.begin();
+        int target = miningTarget;
+        int mined = asteroidField.mine(target, MINING_RATE * ticks);
+        ledger.deposit(SHIP_ACCOUNT, ResourceType.forModel(asteroidField.getModelId(target)), mined);
+        Metrics.MINED.add(mined);
+        if (asteroidField.isRemoved(target)) {
+            miningTarget = -1;
+        }
+        tickEvent.end();
+        if (tickEvent.shouldCommit()) {
+            tickEvent.asteroid = "Asteroid" + target;
+            tickEvent.mined = mined;
+            tickEvent.resourcesLeft = asteroidField.getResources(target);
+            tickEvent.commit();
+        }
+    }
+
+    /**
+     * Sets the time warp factor, the number of ticks each {@link #tick()} call advances.
+     *
+     * @param warp the warp factor, clamped to between 1 and {@value #MAX_WARP}.
+     */
+    public void setWarp(int warp) {
+        this.warp = Math.max(1, Math.min(MAX_WARP, warp));
+    }
+
+    /**
+     * Returns the time warp factor.
+     *
+     * @return the number of ticks each step advances.
+     */
+    public int getWarp() {
+        return warp;
+    }
+
+    /**
+     * Starts mining the specified asteroid, replacing the previous target.
+     *
+     * @param asteroidId the id of the asteroid to mine.
+     */
+    public void startMining(int asteroidId) {
+        this.miningTarget = asteroidField.isRemoved(asteroidId) ? -1 : asteroidId;
+    }
+
+    /**
+     * Returns the id of the asteroid being mined.
+     *
+     * @return the asteroid id, or -1 if the ship is not mining.
+     */
+    public int getMiningTarget() {
+        return miningTarget;
+    }
+
+    /**
+     * Adds a celestial body that stays at its current position.
+     *
+     * @param body the body to add.
+     * @return the index of the body, which can be used as the parent of orbiting bodies.
+     */
+    public int addBody(BodyState body) {
+        bodies.add(body);
+        return orbits.addRoot(body.getX(), body.getY(), body.getZ());
+    }
+
+    /**
+     * Adds a celestial body that orbits another body.
+     *
+     * @param body the body to add.
+     * @param orbit the orbit relative to the parent.
+     * @param parentIndex the index of the parent body.
+     * @return the index of the body.
+     */
+    public int addBody(BodyState body, Orbit orbit, int parentIndex) {
+        bodies.add(body);
+        return orbits.addOrbiting(orbit, parentIndex);
+    }
+
+    /**
+     * Moves the celestial bodies to their positions at the current tick.
+     */
+    private void updateBodies() {
+        orbits.evaluate(tick * TICK_SECONDS);
+        for (int i = 0; i < bodies.size(); i++) {
+            bodies.get(i).setPosition(orbits.getX(i), orbits.getY(i), orbits.getZ(i));
+        }
+    }
+
+    /**
+     * Returns the celestial bodies of the simulation.
+     *
+     * @return the celestial bodies.
+     */
+    public List<BodyState> getBodies() {
+        return bodies;
+    }
+
+    /**
+     * Returns the controls of the ship, which are sampled once per tick.
+     *
+     * @return the ship controls.
+     */
+    public ShipControls getControls() {
+        return controls;
+    }
+
+    /**
+     * Returns the asteroid field.
+     *
+     * @return the asteroid field.
+     */
+    public AsteroidField getAsteroidField() {
+        return asteroidField;
+    }
+
+    /**
+     * Returns the ship.
+     *
+     * @return the ship.
+     */
+    public ShipState getShip() {
+        return ship;
+    }
+
+    /**
+     * Returns the seed the universe was generated with.
+     *
+     * @return the seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the number of ticks simulated so far.
+     *
+     * @return the tick count.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the ledger of the mined resources.
+     *
+     * @return the resource ledger.
+     */
+    public ResourceLedger getLedger() {
+        return ledger;
+    }
+}
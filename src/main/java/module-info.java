@@ -1,6 +1,9 @@
 module com.kihachu.spaceiteration1 {
     requires javafx.controls;
     requires javafx.fxml;
+    requires java.desktop;
+    requires jdk.jfr;
+    requires jdk.incubator.vector;
 
     requires org.controlsfx.controls;
     requires com.almasb.fxgl.all;
@@ -0,0 +1,114 @@
+package com.kihachu.spaceiteration1.controller;
+
+import com.kihachu.spaceiteration1.simulation.ShipAction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InputJournalTest {
+    private static final int HEADER_BYTES = 4 + 1 + 8 + 4;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysEveryEventAtItsTick() throws IOException {
+        // Tick deltas and ids straddle the one, two and three byte boundaries of the variable-length integers
+        List<InputEvent> recorded = List.of(
+                InputEvent.keyPress(ShipAction.FORWARD).atTick(0),
+                InputEvent.keyRelease(ShipAction.ROLL_RIGHT).atTick(0),
+                InputEvent.mine(127).atTick(127),
+                InputEvent.mine(128).atTick(255),
+                InputEvent.camera(0.5, -1.25).atTick(16_639),
+                InputEvent.zoom(-40).atTick(16_640),
+                InputEvent.warp(1000).atTick(3_000_000_000L),
+                InputEvent.mine(Integer.MAX_VALUE).atTick(3_000_000_001L));
+        Path file = directory.resolve("input.journal");
+        try (InputJournal journal = new InputJournal(file, -1234567890123L, 100_000)) {
+            for (InputEvent event : recorded) {
+                journal.record(event);
+            }
+            journal.close(3_000_000_100L);
+        }
+
+        try (InputReplay replay = new InputReplay(file)) {
+            assertEquals(-1234567890123L, replay.getSeed());
+            assertEquals(100_000, replay.getAsteroidCount());
+            List<InputEvent> replayed = new ArrayList<>();
+            replay.poll(Long.MAX_VALUE, replayed::add);
+
+            assertTrue(replay.isFinished());
+            assertEquals(3_000_000_100L, replay.getEndTick());
+            assertEquals(recorded.size(), replayed.size());
+            for (int i = 0; i < recorded.size(); i++) {
+                assertSameEvent(recorded.get(i), replayed.get(i));
+            }
+        }
+    }
+
+    @Test
+    void handsOutEventsTickByTick() throws IOException {
+        Path file = directory.resolve("input.journal");
+        try (InputJournal journal = new InputJournal(file, 1, 10)) {
+            journal.record(InputEvent.keyPress(ShipAction.YAW_LEFT).atTick(5));
+            journal.record(InputEvent.keyRelease(ShipAction.YAW_LEFT).atTick(9));
+        }
+
+        try (InputReplay replay = new InputReplay(file)) {
+            List<InputEvent> events = new ArrayList<>();
+            replay.poll(4, events::add);
+            assertEquals(0, events.size());
+            replay.poll(8, events::add);
+            assertEquals(1, events.size());
+            assertFalse(replay.isFinished());
+            replay.poll(9, events::add);
+            assertEquals(2, events.size());
+            assertTrue(replay.isFinished());
+            assertEquals(9, replay.getEndTick());
+        }
+    }
+
+    @Test
+    void encodesAKeyEventInThreeBytes() throws IOException {
+        Path file = directory.resolve("input.journal");
+        try (InputJournal journal = new InputJournal(file, 1, 10)) {
+            journal.record(InputEvent.keyPress(ShipAction.FORWARD).atTick(100));
+        }
+
+        // The event, then the end marker with a zero tick delta
+        assertEquals(HEADER_BYTES + 3 + 2, Files.size(file));
+    }
+
+    @Test
+    void rejectsAFileThatIsNotAJournal() throws IOException {
+        Path file = directory.resolve("other.journal");
+        Files.write(file, new byte[HEADER_BYTES + 2]);
+
+        assertThrows(IOException.class, () -> new InputReplay(file));
+    }
+
+    private static void assertSameEvent(InputEvent expected, InputEvent actual) {
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getTick(), actual.getTick());
+        switch (expected.getType()) {
+            case KEY_PRESS, KEY_RELEASE -> assertEquals(expected.getAction(), actual.getAction());
+            case MINE -> assertEquals(expected.getAsteroidId(), actual.getAsteroidId());
+            case CAMERA -> {
+                assertEquals(expected.getX(), actual.getX());
+                assertEquals(expected.getY(), actual.getY());
+            }
+            case ZOOM -> assertEquals(expected.getX(), actual.getX());
+            case WARP -> assertEquals(expected.getWarp(), actual.getWarp());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.kihachu.spaceiteration1.persistence;
+
+import com.kihachu.spaceiteration1.economy.ResourceType;
+import com.kihachu.spaceiteration1.simulation.AsteroidField;
+import com.kihachu.spaceiteration1.simulation.ShipState;
+import com.kihachu.spaceiteration1.simulation.Simulation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SnapshotRoundTripTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoresTheSavedState() throws IOException {
+        Simulation simulation = played(Simulation.createDefault(500, 3, 42));
+        Path file = directory.resolve("universe.snapshot");
+        AsteroidField field = simulation.getAsteroidField();
+        long written = SnapshotWriter.write(file, SnapshotWriter.header(simulation, field.size()), field);
+
+        assertEquals(Files.size(file), written);
+        assertSameState(simulation, SnapshotReader.load(file));
+    }
+
+    @Test
+    void restoresAnEmptyField() throws IOException {
+        Simulation simulation = Simulation.createDefault(0, 3, 7);
+        Path file = directory.resolve("empty.snapshot");
+        SnapshotWriter.write(file, SnapshotWriter.header(simulation, 0), simulation.getAsteroidField());
+
+        assertSameState(simulation, SnapshotReader.load(file));
+    }
+
+    @Test
+    void rejectsATruncatedSnapshot() throws IOException {
+        Simulation simulation = Simulation.createDefault(100, 3, 42);
+        Path file = directory.resolve("truncated.snapshot");
+        long written = SnapshotWriter.write(file, SnapshotWriter.header(simulation, 100), simulation.getAsteroidField());
+        try (var channel = Files.newByteChannel(file, StandardOpenOption.WRITE)) {
+            channel.truncate(written - 1);
+        }
+
+        assertThrows(IOException.class, () -> SnapshotReader.load(file));
+    }
+
+    @Test
+    void rejectsAFileThatIsNotASnapshot() throws IOException {
+        Path file = directory.resolve("other.snapshot");
+        Files.write(file, new byte[SnapshotWriter.HEADER_BYTES + SnapshotWriter.SHIP_BYTES]);
+
+        assertThrows(IOException.class, () -> SnapshotReader.load(file));
+    }
+
+    /**
+     * Flies and mines for a while, so that the ship, the ledger and some asteroids differ from a fresh universe.
+     */
+    static Simulation played(Simulation simulation) {
+        ShipState ship = simulation.getShip();
+        ship.setVelocities(12.5, 0.25, -0.5, 1);
+        AsteroidField field = simulation.getAsteroidField();
+        simulation.startMining(field.findNearest(ship.getX(), ship.getY(), ship.getZ()));
+        for (int i = 0; i < 300; i++) {
+            simulation.tick();
+        }
+        field.remove(3);
+        return simulation;
+    }
+
+    static void assertSameState(Simulation expected, Simulation actual) {
+        assertSameState(expected, actual, true);
+    }
+
+    /**
+     * Checks that two simulations are in the same state.
+     *
+     * @param spinAngles whether to compare spin angles, which a journal replay recomputes rather than restores.
+     */
+    static void assertSameState(Simulation expected, Simulation actual, boolean spinAngles) {
+        assertEquals(expected.getSeed(), actual.getSeed());
+        assertEquals(expected.getTick(), actual.getTick());
+        assertEquals(expected.getMiningTarget(), actual.getMiningTarget());
+
+        ShipState expectedShip = expected.getShip();
+        ShipState actualShip = actual.getShip();
+        assertEquals(expectedShip.getX(), actualShip.getX());
+        assertEquals(expectedShip.getY(), actualShip.getY());
+        assertEquals(expectedShip.getZ(), actualShip.getZ());
+        assertEquals(expectedShip.getRotateX(), actualShip.getRotateX());
+        assertEquals(expectedShip.getRotateY(), actualShip.getRotateY());
+        assertEquals(expectedShip.getRotateZ(), actualShip.getRotateZ());
+        assertEquals(expectedShip.getVelocity(), actualShip.getVelocity());
+        assertEquals(expectedShip.getRotationVelocityX(), actualShip.getRotationVelocityX());
+        assertEquals(expectedShip.getRotationVelocityY(), actualShip.getRotationVelocityY());
+        assertEquals(expectedShip.getRotationVelocityZ(), actualShip.getRotationVelocityZ());
+        for (ResourceType type : ResourceType.values()) {
+            assertEquals(expected.getLedger().balance(Simulation.SHIP_ACCOUNT, type),
+                    actual.getLedger().balance(Simulation.SHIP_ACCOUNT, type), type.name());
+        }
+
+        AsteroidField expectedField = expected.getAsteroidField();
+        AsteroidField actualField = actual.getAsteroidField();
+        assertEquals(expectedField.size(), actualField.size());
+        assertEquals(expectedField.getActiveCount(), actualField.getActiveCount());
+        for (int id = 0; id < expectedField.size(); id++) {
+            assertEquals(expectedField.getX(id), actualField.getX(id), "x of " + id);
+            assertEquals(expectedField.getY(id), actualField.getY(id), "y of " + id);
+            assertEquals(expectedField.getZ(id), actualField.getZ(id), "z of " + id);
+            assertEquals(expectedField.getSpinSpeed(id), actualField.getSpinSpeed(id), "spin speed of " + id);
+            if (spinAngles) {
+                assertEquals(expectedField.getSpinAngle(id), actualField.getSpinAngle(id), "spin angle of " + id);
+            }
+            assertEquals(expectedField.getModelId(id), actualField.getModelId(id), "model of " + id);
+            assertEquals(expectedField.getResources(id), actualField.getResources(id), "resources of " + id);
+            assertEquals(expectedField.isRemoved(id), actualField.isRemoved(id), "removal of " + id);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.kihachu.spaceiteration1.persistence;
+
+import com.kihachu.spaceiteration1.simulation.Simulation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UniverseStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysAutosavesOnTopOfTheCheckpoint() throws IOException {
+        Path file = directory.resolve("universe.snapshot");
+        Simulation simulation = SnapshotRoundTripTest.played(Simulation.createDefault(500, 3, 42));
+        UniverseStore store = new UniverseStore(file);
+        store.checkpoint(simulation).join();
+        for (int save = 0; save < 3; save++) {
+            play(simulation, 100, save);
+            store.autosave(simulation).join();
+        }
+        store.close();
+
+        assertEquals(1, store.getCheckpointCount());
+        assertEquals(3, store.getAppendCount());
+        SnapshotRoundTripTest.assertSameState(simulation, new UniverseStore(file).load(), false);
+    }
+
+    @Test
+    void dropsATornRecordAndAppendsAfterTheLastValidOne() throws IOException {
+        Path file = directory.resolve("universe.snapshot");
+        Path journalFile = ChangeJournal.fileFor(file);
+        Simulation simulation = SnapshotRoundTripTest.played(Simulation.createDefault(500, 3, 42));
+        UniverseStore store = new UniverseStore(file);
+        store.checkpoint(simulation).join();
+        play(simulation, 100, 0);
+        store.autosave(simulation).join();
+        long validSize = Files.size(journalFile);
+        long validTick = simulation.getTick();
+        double validY = simulation.getShip().getY();
+        long validTotal = simulation.getLedger().total(Simulation.SHIP_ACCOUNT);
+        play(simulation, 100, 1);
+        store.autosave(simulation).join();
+        store.close();
+        // Cut the second record short, as a crash in the middle of an append would
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            channel.truncate(validSize + 10);
+        }
+
+        UniverseStore reopened = new UniverseStore(file);
+        Simulation loaded = reopened.load();
+        assertEquals(validTick, loaded.getTick());
+        assertEquals(validY, loaded.getShip().getY());
+        assertEquals(validTotal, loaded.getLedger().total(Simulation.SHIP_ACCOUNT));
+        assertEquals(validSize, Files.size(journalFile));
+
+        play(loaded, 100, 2);
+        reopened.autosave(loaded).join();
+        reopened.close();
+        SnapshotRoundTripTest.assertSameState(loaded, new UniverseStore(file).load(), false);
+    }
+
+    @Test
+    void stopsAtACorruptRecord() throws IOException {
+        Path file = directory.resolve("universe.snapshot");
+        Path journalFile = ChangeJournal.fileFor(file);
+        Simulation simulation = SnapshotRoundTripTest.played(Simulation.createDefault(500, 3, 42));
+        UniverseStore store = new UniverseStore(file);
+        store.checkpoint(simulation).join();
+        play(simulation, 100, 0);
+        store.autosave(simulation).join();
+        long validSize = Files.size(journalFile);
+        long validTick = simulation.getTick();
+        play(simulation, 100, 1);
+        store.autosave(simulation).join();
+        store.close();
+        // Flip a byte in the payload of the second record, which its checksum must catch
+        byte[] journal = Files.readAllBytes(journalFile);
+        journal[(int) validSize + ChangeJournal.RECORD_HEADER_BYTES + 4] ^= 1;
+        Files.write(journalFile, journal);
+
+        assertEquals(validTick, new UniverseStore(file).load().getTick());
+        assertEquals(validSize, Files.size(journalFile));
+    }
+
+    @Test
+    void refusesToOverwriteASnapshotItHasNotLoaded() throws IOException {
+        Path file = directory.resolve("universe.snapshot");
+        Files.write(file, new byte[]{1, 2, 3});
+        Simulation simulation = Simulation.createDefault(100, 3, 42);
+
+        UniverseStore store = new UniverseStore(file);
+        assertThrows(CompletionException.class, () -> store.autosave(simulation).join());
+        assertEquals(3, Files.size(file));
+
+        UniverseStore overwriting = new UniverseStore(file, true);
+        overwriting.checkpoint(simulation).join();
+        overwriting.close();
+        SnapshotRoundTripTest.assertSameState(simulation, new UniverseStore(file).load());
+    }
+
+    @Test
+    void movesAnUnreadableSnapshotAside() throws IOException {
+        Path file = directory.resolve("universe.snapshot");
+        Files.write(file, new byte[]{1, 2, 3});
+        Files.write(ChangeJournal.fileFor(file), new byte[]{4, 5});
+        UniverseStore store = new UniverseStore(file);
+        assertThrows(IOException.class, store::load);
+
+        Path moved = store.moveAside();
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(ChangeJournal.fileFor(file)));
+        assertEquals(3, Files.size(moved));
+        String suffix = moved.getFileName().toString().substring(file.getFileName().toString().length());
+        Path journal = ChangeJournal.fileFor(file);
+        assertEquals(2, Files.size(journal.resolveSibling(journal.getFileName() + suffix)));
+
+        Simulation simulation = Simulation.createDefault(100, 3, 42);
+        store.checkpoint(simulation).join();
+        store.close();
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    void capturesACheckpointAcrossTicks() throws IOException {
+        Path file = directory.resolve("universe.snapshot");
+        int size = UniverseStore.CAPTURE_ROWS * 2 + 100;
+        Simulation simulation = SnapshotRoundTripTest.played(Simulation.createDefault(size, 3, 42));
+        UniverseStore store = new UniverseStore(file);
+        CompletableFuture<Long> checkpoint = store.checkpoint(simulation);
+        // One row the capture has copied already and one it has not
+        simulation.getAsteroidField().remove(10);
+        simulation.getAsteroidField().remove(size - 1);
+        simulation.tick();
+        store.advance();
+        assertFalse(checkpoint.isDone());
+        assertSame(checkpoint, store.autosave(simulation));
+        simulation.tick();
+        store.advance();
+        checkpoint.join();
+        store.close();
+
+        assertEquals(1, store.getCheckpointCount());
+        // The rows copied before the last ticks have spun along with the field
+        SnapshotRoundTripTest.assertSameState(simulation, new UniverseStore(file).load());
+    }
+
+    @Test
+    void retriesAFirstCheckpointThatFailed() throws IOException {
+        Path file = directory.resolve("universe.snapshot");
+        // A directory in the way of the temporary file makes the snapshot write fail, even for root
+        Path blocker = Files.createDirectory(directory.resolve("universe.snapshot.tmp"));
+        Simulation simulation = SnapshotRoundTripTest.played(Simulation.createDefault(500, 3, 42));
+        UniverseStore store = new UniverseStore(file);
+        assertThrows(CompletionException.class, () -> store.autosave(simulation).join());
+        play(simulation, 100, 0);
+        assertThrows(CompletionException.class, () -> store.autosave(simulation).join());
+        assertEquals(0, store.getCheckpointCount());
+        assertEquals(0, store.getAppendCount());
+
+        Files.delete(blocker);
+        play(simulation, 100, 1);
+        store.autosave(simulation).join();
+        play(simulation, 100, 2);
+        store.autosave(simulation).join();
+        store.close();
+
+        assertEquals(1, store.getCheckpointCount());
+        assertEquals(1, store.getAppendCount());
+        SnapshotRoundTripTest.assertSameState(simulation, new UniverseStore(file).load(), false);
+    }
+
+    @Test
+    void stopsAppendingToTheOldJournalWhenACompactionFails() throws IOException {
+        Path file = directory.resolve("universe.snapshot");
+        Simulation simulation = SnapshotRoundTripTest.played(Simulation.createDefault(500, 3, 42));
+        UniverseStore store = new UniverseStore(file);
+        store.checkpoint(simulation).join();
+        play(simulation, 100, 0);
+        store.autosave(simulation).join();
+        long savedTick = simulation.getTick();
+
+        Path blocker = Files.createDirectory(directory.resolve("universe.snapshot.tmp"));
+        play(simulation, 100, 1);
+        assertThrows(CompletionException.class, () -> store.checkpoint(simulation).join());
+        play(simulation, 100, 2);
+        assertThrows(CompletionException.class, () -> store.autosave(simulation).join());
+        assertEquals(1, store.getAppendCount());
+        // The files on disk still hold the last state that was saved completely
+        UniverseStore reader = new UniverseStore(file);
+        assertEquals(savedTick, reader.load().getTick());
+        reader.close();
+
+        Files.delete(blocker);
+        play(simulation, 100, 3);
+        store.autosave(simulation).join();
+        store.close();
+        assertEquals(2, store.getCheckpointCount());
+        SnapshotRoundTripTest.assertSameState(simulation, new UniverseStore(file).load(), false);
+    }
+
+    /**
+     * Ticks the simulation and removes an asteroid, so that the next autosave has changes to journal.
+     */
+    private static void play(Simulation simulation, int ticks, int removed) {
+        for (int i = 0; i < ticks; i++) {
+            simulation.tick();
+        }
+        simulation.getAsteroidField().remove(10 + removed);
+    }
+}
@@ -0,0 +1,154 @@
+package com.kihachu.spaceiteration1.simd;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Compares the scalar and vector kernels on heap arrays and native segments at several array sizes.
+ * Run with {@code mvn -Pbenchmark test}; that the kernels agree is checked by {@link KernelsTest}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class KernelBenchmark {
+    private static final double SPREAD = 1_000_000;
+    private static final double RADIUS = 50_000;
+    private static final double DT = 1.0 / 60;
+
+    @Param({"1000", "100000", "10000000"})
+    int size;
+
+    @Param({"false", "true"})
+    boolean vector;
+
+    private double[] x;
+    private double[] y;
+    private double[] z;
+    private double[] speeds;
+    private double[] angles;
+    private byte[] removed;
+
+    private Arena arena;
+    private MemorySegment xs;
+    private MemorySegment ys;
+    private MemorySegment zs;
+    private MemorySegment speedSegment;
+    private MemorySegment angleSegment;
+    private MemorySegment removedSegment;
+
+    private long matches;
+    private final IntConsumer counter = i -> matches += i;
+
+    @Setup
+    public void setUp() {
+        if (vector && !Kernels.isVectorAvailable()) {
+            throw new IllegalStateException("The Vector API is not available, run with --add-modules jdk.incubator.vector");
+        }
+        Random random = new Random(size);
+        x = new double[size];
+        y = new double[size];
+        z = new double[size];
+        speeds = new double[size];
+        angles = new double[size];
+        removed = new byte[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = random.nextDouble(-SPREAD, SPREAD);
+            y[i] = random.nextDouble(-SPREAD, SPREAD);
+            z[i] = random.nextDouble(-SPREAD, SPREAD);
+            speeds[i] = random.nextDouble(-5, 5);
+            angles[i] = random.nextDouble(0, 360);
+            removed[i] = random.nextInt(10) == 0 ? (byte) 1 : 0;
+        }
+        arena = Arena.ofShared();
+        xs = copy(x);
+        ys = copy(y);
+        zs = copy(z);
+        speedSegment = copy(speeds);
+        angleSegment = copy(angles);
+        removedSegment = arena.allocate(Math.max(1, size));
+        MemorySegment.copy(removed, 0, removedSegment, ValueLayout.JAVA_BYTE, 0, size);
+    }
+
+    @TearDown
+    public void tearDown() {
+        arena.close();
+    }
+
+    @Benchmark
+    public double[] advanceSpinsHeap() {
+        if (vector) {
+            VectorKernels.advanceSpins(angles, speeds, size, DT);
+        } else {
+            ScalarKernels.advanceSpins(angles, speeds, 0, size, DT);
+        }
+        return angles;
+    }
+
+    @Benchmark
+    public MemorySegment advanceSpinsNative() {
+        if (vector) {
+            VectorKernels.advanceSpins(angleSegment, speedSegment, size, DT);
+        } else {
+            ScalarKernels.advanceSpins(angleSegment, speedSegment, 0, size, DT);
+        }
+        return angleSegment;
+    }
+
+    @Benchmark
+    public int findNearestHeap() {
+        return vector ? VectorKernels.findNearest(x, y, z, removed, size, 1, 2, 3)
+                : ScalarKernels.findNearest(x, y, z, removed, size, 1, 2, 3);
+    }
+
+    @Benchmark
+    public int findNearestNative() {
+        return vector ? VectorKernels.findNearest(xs, ys, zs, removedSegment, size, 1, 2, 3)
+                : ScalarKernels.findNearest(xs, ys, zs, removedSegment, size, 1, 2, 3);
+    }
+
+    @Benchmark
+    public long forEachWithinHeap() {
+        if (vector) {
+            VectorKernels.forEachWithin(x, y, z, removed, size, 1, 2, 3, RADIUS * RADIUS, counter);
+        } else {
+            ScalarKernels.forEachWithin(x, y, z, removed, 0, size, 1, 2, 3, RADIUS * RADIUS, counter);
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public long forEachWithinNative() {
+        if (vector) {
+            VectorKernels.forEachWithin(xs, ys, zs, removedSegment, size, 1, 2, 3, RADIUS * RADIUS, counter);
+        } else {
+            ScalarKernels.forEachWithin(xs, ys, zs, removedSegment, 0, size, 1, 2, 3, RADIUS * RADIUS, counter);
+        }
+        return matches;
+    }
+
+    private MemorySegment copy(double[] values) {
+        MemorySegment segment = arena.allocate((long) Double.BYTES * Math.max(1, values.length), Double.BYTES);
+        MemorySegment.copy(values, 0, segment, ValueLayout.JAVA_DOUBLE, 0, values.length);
+        return segment;
+    }
+}
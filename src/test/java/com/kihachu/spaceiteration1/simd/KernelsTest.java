@@ -0,0 +1,183 @@
+package com.kihachu.spaceiteration1.simd;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class KernelsTest {
+    // Sizes below, at and around multiples of every vector width, so that both the vector loops and their tails run
+    private static final int[] SIZES = {0, 1, 3, 8, 17, 1000, 10_003};
+    private static final double SPREAD = 1_000_000;
+    private static final double RADIUS = 150_000;
+
+    @Test
+    void advanceSpinsMatchesOnHeapArrays() {
+        assumeVector();
+        for (int size : SIZES) {
+            Columns columns = new Columns(size);
+            double[] scalar = columns.angles.clone();
+            double[] vector = columns.angles.clone();
+            for (double dt : new double[]{1.0 / 60, 10, 1000}) {
+                ScalarKernels.advanceSpins(scalar, columns.speeds, 0, size, dt);
+                VectorKernels.advanceSpins(vector, columns.speeds, size, dt);
+            }
+            assertArrayEquals(scalar, vector, "size " + size);
+        }
+    }
+
+    @Test
+    void advanceSpinsMatchesOnSegments() {
+        assumeVector();
+        for (int size : SIZES) {
+            Columns columns = new Columns(size);
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment speeds = copy(arena, columns.speeds);
+                MemorySegment scalar = copy(arena, columns.angles);
+                MemorySegment vector = copy(arena, columns.angles);
+                for (double dt : new double[]{1.0 / 60, 10, 1000}) {
+                    ScalarKernels.advanceSpins(scalar, speeds, 0, size, dt);
+                    VectorKernels.advanceSpins(vector, speeds, size, dt);
+                }
+                assertArrayEquals(scalar.toArray(ValueLayout.JAVA_DOUBLE), vector.toArray(ValueLayout.JAVA_DOUBLE),
+                        "size " + size);
+            }
+        }
+    }
+
+    @Test
+    void findNearestMatches() {
+        assumeVector();
+        for (int size : SIZES) {
+            Columns c = new Columns(size);
+            try (Arena arena = Arena.ofConfined()) {
+                Segments s = new Segments(arena, c);
+                for (double[] point : c.points) {
+                    double px = point[0];
+                    double py = point[1];
+                    double pz = point[2];
+                    int expected = ScalarKernels.findNearest(c.x, c.y, c.z, c.removed, size, px, py, pz);
+                    assertEquals(expected, VectorKernels.findNearest(c.x, c.y, c.z, c.removed, size, px, py, pz),
+                            "heap, size " + size);
+                    assertEquals(expected, ScalarKernels.findNearest(s.x, s.y, s.z, s.removed, size, px, py, pz),
+                            "scalar segments, size " + size);
+                    assertEquals(expected, VectorKernels.findNearest(s.x, s.y, s.z, s.removed, size, px, py, pz),
+                            "vector segments, size " + size);
+                }
+            }
+        }
+    }
+
+    @Test
+    void findNearestBreaksTiesTowardsTheLowestIndex() {
+        assumeVector();
+        int size = 37;
+        double[] x = new double[size];
+        double[] y = new double[size];
+        double[] z = new double[size];
+        byte[] removed = new byte[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = i % 2 == 0 ? 5 : -5;
+        }
+        removed[0] = 1;
+
+        assertEquals(1, ScalarKernels.findNearest(x, y, z, removed, size, 0, 0, 0));
+        assertEquals(1, VectorKernels.findNearest(x, y, z, removed, size, 0, 0, 0));
+    }
+
+    @Test
+    void forEachWithinMatches() {
+        assumeVector();
+        for (int size : SIZES) {
+            Columns c = new Columns(size);
+            try (Arena arena = Arena.ofConfined()) {
+                Segments s = new Segments(arena, c);
+                double radiusSquared = RADIUS * RADIUS;
+                for (double[] point : c.points) {
+                    double px = point[0];
+                    double py = point[1];
+                    double pz = point[2];
+                    List<Integer> expected = new ArrayList<>();
+                    ScalarKernels.forEachWithin(c.x, c.y, c.z, c.removed, 0, size, px, py, pz, radiusSquared, expected::add);
+                    List<Integer> heap = new ArrayList<>();
+                    VectorKernels.forEachWithin(c.x, c.y, c.z, c.removed, size, px, py, pz, radiusSquared, heap::add);
+                    List<Integer> segments = new ArrayList<>();
+                    VectorKernels.forEachWithin(s.x, s.y, s.z, s.removed, size, px, py, pz, radiusSquared, segments::add);
+
+                    assertEquals(expected, heap, "heap, size " + size);
+                    assertEquals(expected, segments, "segments, size " + size);
+                }
+            }
+        }
+    }
+
+    private static void assumeVector() {
+        assumeTrue(Kernels.isVectorAvailable(), "The Vector API is not available");
+    }
+
+    private static MemorySegment copy(Arena arena, double[] values) {
+        MemorySegment segment = arena.allocate((long) Double.BYTES * Math.max(1, values.length), Double.BYTES);
+        MemorySegment.copy(values, 0, segment, ValueLayout.JAVA_DOUBLE, 0, values.length);
+        return segment;
+    }
+
+    /**
+     * Random asteroid columns, with one in ten asteroids removed, and a few query points, one of them on an asteroid.
+     */
+    private static final class Columns {
+        final double[] x;
+        final double[] y;
+        final double[] z;
+        final double[] speeds;
+        final double[] angles;
+        final byte[] removed;
+        final double[][] points;
+
+        Columns(int size) {
+            Random random = new Random(size);
+            x = new double[size];
+            y = new double[size];
+            z = new double[size];
+            speeds = new double[size];
+            angles = new double[size];
+            removed = new byte[size];
+            for (int i = 0; i < size; i++) {
+                x[i] = random.nextDouble(-SPREAD, SPREAD);
+                y[i] = random.nextDouble(-SPREAD, SPREAD);
+                z[i] = random.nextDouble(-SPREAD, SPREAD);
+                speeds[i] = random.nextDouble(-5, 5);
+                angles[i] = random.nextDouble(0, 360);
+                removed[i] = random.nextInt(10) == 0 ? (byte) 1 : 0;
+            }
+            points = size == 0
+                    ? new double[][]{{0, 0, 0}}
+                    : new double[][]{{0, 0, 0}, {SPREAD, -SPREAD, SPREAD}, {x[size / 2], y[size / 2], z[size / 2]}};
+        }
+    }
+
+    /**
+     * Native copies of columns.
+     */
+    private static final class Segments {
+        final MemorySegment x;
+        final MemorySegment y;
+        final MemorySegment z;
+        final MemorySegment removed;
+
+        Segments(Arena arena, Columns columns) {
+            x = copy(arena, columns.x);
+            y = copy(arena, columns.y);
+            z = copy(arena, columns.z);
+            removed = arena.allocate(Math.max(1, columns.removed.length));
+            MemorySegment.copy(columns.removed, 0, removed, ValueLayout.JAVA_BYTE, 0, columns.removed.length);
+        }
+    }
+}